@@ -0,0 +1,82 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim;
+
+/**
+ * 三阶段方法中的条件活动 (C-activity)
+ * A conditional activity of a three-phase model. Its condition is tested by
+ * ThreePhase after all of the events scheduled for the current simulation
+ * time have occurred, and whenever it holds the activity is started. Starting
+ * an activity normally changes the state of the model and schedules the
+ * events which end it.
+ *
+ * An activity is tested again only after one of the state variables it
+ * depends on has changed; an activity which declares no dependencies is
+ * tested in each C phase which follows an event or process becoming active,
+ * and again whenever any activity starts within that C phase.
+ */
+
+public abstract class Activity {
+    /**
+     * 条件是否需要重新测试
+     */
+    boolean dirty = true;
+    /**
+     * 是否声明了依赖的状态变量
+     */
+    boolean dependent = false;
+    /**
+     * 注册到的仿真上下文，未注册时为 null
+     */
+    SimulationContext context = null;
+
+    /**
+     * Declare the state variables the condition of this activity depends on.
+     *
+     * @param variables the state variables.
+     */
+    public final void dependsOn(StateVariable... variables) {
+        for (StateVariable variable : variables) {
+            variable.addDependent(this);
+
+            if (!dependent) {
+                dependent = true;
+                ThreePhase.becameDependent(this);
+            }
+        }
+    }
+
+    /**
+     * The condition of the activity.
+     *
+     * @return <code>true</code> if the activity can start now.
+     */
+    protected abstract boolean canStart();
+
+    /**
+     * Start the activity. This is only called when canStart has returned
+     * <code>true</code>, and must not wait for simulation time to pass.
+     *
+     * @throws SimulationException thrown if there's an error.
+     * @throws RestartException    thrown if the simulation is restarted.
+     */
+    protected abstract void start() throws SimulationException, RestartException;
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.javasim.internal.EventQueue;
+
+/**
+ * 可以与同一时刻的其它事件并行计算的仿真事件
+ * An event whose work is split into two parts. compute() may only change the
+ * state partitions the event declares with touches, and must not schedule,
+ * cancel or otherwise use other processes; run() is called afterwards as for
+ * any other event and may do anything an event handler can do.
+ *
+ * When the head of the scheduler queue is a run of ParallelEvents scheduled
+ * for the same time, the compute() methods of all of them are called before
+ * any of their run() methods, which are then called one at a time in queue
+ * order. If an event pool has been set with Simulation.setEventPool, events
+ * which touch no common partition are computed concurrently on the pool;
+ * events which do are computed one after the other in queue order, as are
+ * events which declare no partitions at all. Without an event pool the
+ * events are simply computed in queue order, so the results do not depend on
+ * whether there is a pool or how many threads it has.
+ *
+ * Because every compute() of a batch runs before the first run(), this is
+ * only equivalent to executing the events one at a time if no run() changes
+ * the batch or the state a later compute() reads. A compute() must therefore
+ * not read state which the run() of an earlier event of the same time
+ * changes. A run() must not cancel or reschedule a later event of its batch,
+ * whose compute() has already been called: if it does the simulation is
+ * stopped with a SimulationException, as when an event handler fails. Events
+ * which need to do either should be plain SimulationEvents.
+ */
+
+public abstract class ParallelEvent extends SimulationEvent {
+    /**
+     * 声明访问的状态分区，为 null 时与所有事件冲突
+     */
+    private Object[] partitions = null;
+    /**
+     * 本次激活的 compute 是否已经在批量计算中执行过
+     */
+    private boolean computed = false;
+
+    /**
+     * Create an event which declares no partitions yet.
+     */
+    protected ParallelEvent() {
+    }
+
+    /**
+     * Declare the state partitions compute() reads or changes. Partitions
+     * are compared with equals, so any object identifying a part of the
+     * model's state will do.
+     *
+     * @param partitions the partitions.
+     */
+    public final void touches(Object... partitions) {
+        this.partitions = partitions.clone();
+    }
+
+    /**
+     * The part of the event which only depends on and changes the declared
+     * partitions. It may be called on a thread of the event pool, with the
+     * simulation context of the event bound to it, and must not wait.
+     */
+    protected abstract void compute();
+
+    /**
+     * 没有在批量计算中执行过时先执行 compute，compute 失败时不再执行 run
+     */
+    @Override
+    void fire() {
+        if (computed) {
+            computed = false;
+        } else {
+            computeSafely();
+        }
+
+        if (context.failure != null) {
+            deactivate();
+            return;
+        }
+
+        super.fire();
+    }
+
+    /**
+     * 事件被取消时，已经执行过的 compute 与逐个执行的结果不再一致
+     */
+    @Override
+    void deactivate() {
+        invalidate();
+        super.deactivate();
+    }
+
+    /**
+     * 由 deactivate 与调度器移动事件时调用：compute 已经在批量计算中执行过、run 还没有执行的事件
+     * 被取消或者移动时以异常停止仿真；重置或者已经停止的仿真中只丢弃计算结果
+     */
+    void invalidate() {
+        if (computed) {
+            computed = false;
+
+            if (context.failure == null && !Simulation.isReset(context)) {
+                Simulation.stop(context, new SimulationException(
+                        "ParallelEvent cancelled or rescheduled after its batch was computed."));
+            }
+        }
+    }
+
+    private void computeSafely() {
+        try {
+            compute();
+        } catch (RuntimeException e) {
+            Simulation.stop(context, e);
+        }
+    }
+
+    /**
+     * 由调度器在 ParallelEvent 到达队首时调用：取出紧随其后的同时刻 ParallelEvent，
+     * 按声明的分区分成若干轮，每轮中的事件互不冲突，在事件线程池上并行计算，
+     * 冲突的事件按队列顺序分在不同的轮次中；没有线程池时按队列顺序逐个计算。
+     * 取出的事件按原来的顺序放回队首，之后由调度器照常逐个执行它们的 run。
+     */
+    static void prepare(SimulationContext context, ParallelEvent first) {
+        if (first.computed) {
+            return;
+        }
+
+        List<ParallelEvent> batch = new ArrayList<ParallelEvent>();
+
+        batch.add(first);
+
+        synchronized (context) {
+            EventQueue queue = context.readyQueue;
+            SimulationProcess head;
+
+            while ((head = queue.peek()) instanceof ParallelEvent && head.evtime() == first.evtime()
+                    && !((ParallelEvent) head).computed) {
+                batch.add((ParallelEvent) queue.remove());
+            }
+
+            // prior 插入排在所有同时刻进程之前，逆序放回即恢复原来的顺序
+            for (int i = batch.size() - 1; i > 0; i--) {
+                queue.insert(batch.get(i), true);
+            }
+        }
+
+        if (batch.size() == 1) {
+            return;
+        }
+
+        ForkJoinPool pool = Scheduler.getEventPool(context);
+
+        if (pool == null) {
+            for (ParallelEvent event : batch) {
+                if (context.failure != null) {
+                    return;
+                }
+                event.computed = true;
+                event.computeSafely();
+            }
+            return;
+        }
+
+        for (List<ParallelEvent> round : rounds(batch)) {
+            if (context.failure != null) {
+                return;
+            }
+            compute(context, pool, round);
+        }
+    }
+
+    /**
+     * 每个事件排在所有与它冲突的更早事件之后的一轮，不声明分区的事件与所有事件冲突
+     */
+    private static List<List<ParallelEvent>> rounds(List<ParallelEvent> batch) {
+        List<List<ParallelEvent>> rounds = new ArrayList<List<ParallelEvent>>();
+        Map<Object, Integer> last = new HashMap<Object, Integer>();
+        int barrier = -1;
+
+        for (ParallelEvent event : batch) {
+            int round;
+
+            if (event.partitions == null) {
+                round = rounds.size();
+                barrier = round;
+            } else {
+                round = barrier + 1;
+
+                for (Object partition : event.partitions) {
+                    Integer used = last.get(partition);
+
+                    if (used != null && used >= round) {
+                        round = used + 1;
+                    }
+                }
+                for (Object partition : event.partitions) {
+                    last.put(partition, round);
+                }
+            }
+
+            if (round == rounds.size()) {
+                rounds.add(new ArrayList<ParallelEvent>());
+            }
+            rounds.get(round).add(event);
+            event.computed = true;
+        }
+
+        return rounds;
+    }
+
+    /**
+     * 在线程池上并行计算一轮事件，第一个事件在调用线程上计算
+     */
+    private static void compute(SimulationContext context, ForkJoinPool pool, List<ParallelEvent> round) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(round.size() - 1);
+
+        for (int i = 1; i < round.size(); i++) {
+            final ParallelEvent event = round.get(i);
+
+            tasks.add(pool.submit(context.bind(new Runnable() {
+                public void run() {
+                    event.computeSafely();
+                }
+            })));
+        }
+
+        round.get(0).computeSafely();
+
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim;
+
+/**
+ * 一次独立的仿真重复实验
+ * One replication of a model, run by ReplicationRunner. It is called with
+ * a new SimulationContext bound to the calling thread, so the model builds
+ * its processes and streams in the usual way and they belong to this
+ * replication only. It should return once the simulation has finished,
+ * leaving no suspended processes behind, e.g., by having them terminate.
+ *
+ * @param <T> the result of a replication, typically statistics.
+ */
+
+public interface Replication<T> {
+    /**
+     * Build and run the model.
+     *
+     * @param replication the number of the replication, from zero.
+     * @return the results of the replication.
+     * @throws Exception thrown if the replication fails.
+     */
+    T run(int replication) throws Exception;
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.javasim.stats.Mean;
+
+/**
+ * 在多个本机 JVM 中执行独立的重复实验
+ * Runs independent replications of a model in a number of separate JVMs on
+ * the local machine. Each worker JVM is started with ProcessBuilder, using
+ * the same Java installation and class path as the caller, and is given a
+ * contiguous block of replications. It runs them one after another, exactly
+ * as ReplicationRunner would with the same seed, so the results are the
+ * same as running them in one JVM; separate JVMs only add isolation, for
+ * models which keep state of their own in static fields, and give each
+ * worker its own heap and garbage collector.
+ *
+ * The result of each replication must be one of the statistics classes,
+ * which the worker writes with saveState straight into a memory-mapped
+ * results file; the caller maps the file once the worker has finished and
+ * each result reads itself back with restoreState from the mapping, so the
+ * results are not copied on either side. The model is created in each worker from
+ * its class name, so it must be a public class with a public no-argument
+ * constructor.
+ */
+
+public class ReplicationFarm {
+    /**
+     * 工作进程最初映射的结果区域大小，写满时加倍
+     */
+    private static final int MAPPED_SIZE = 64 * 1024;
+    /**
+     * 工作进程数
+     */
+    private final int workers;
+    /**
+     * 所有重复实验的随机数种子由它派生
+     */
+    private final long seed;
+    /**
+     * 工作进程的类路径
+     */
+    private String classPath = System.getProperty("java.class.path");
+    /**
+     * 工作进程额外的 JVM 参数
+     */
+    private List<String> javaOptions = new ArrayList<String>();
+
+    /**
+     * Run replications in one worker JVM per processor.
+     */
+    public ReplicationFarm() {
+        this(Runtime.getRuntime().availableProcessors(), 0);
+    }
+
+    /**
+     * @param workers the number of worker JVMs.
+     * @param seed    the seed from which the seeds of the replications are
+     *                derived, as for ReplicationRunner.
+     */
+    public ReplicationFarm(int workers, long seed) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Invalid number of workers " + workers);
+        }
+
+        this.workers = workers;
+        this.seed = seed;
+    }
+
+    /**
+     * Set the class path of the worker JVMs, which by default is the class
+     * path of this JVM.
+     *
+     * @param classPath the class path.
+     */
+    public void setClassPath(String classPath) {
+        if (classPath == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.classPath = classPath;
+    }
+
+    /**
+     * Set options passed to each worker JVM, such as the heap size.
+     *
+     * @param options the JVM options.
+     */
+    public void setJavaOptions(String... options) {
+        javaOptions = new ArrayList<String>(Arrays.asList(options));
+    }
+
+    /**
+     * Run the replications and wait for all of the workers to finish.
+     *
+     * @param replications the number of replications.
+     * @param model        the class of the model to replicate.
+     * @param results      creates the empty statistics each result is restored into.
+     * @param <T>          the result of a replication.
+     * @return the results, in the order of the replication numbers.
+     * @throws SimulationException thrown if a worker fails.
+     */
+    public <T extends Mean> List<T> run(int replications, Class<? extends Replication<T>> model,
+            Supplier<? extends T> results) throws SimulationException {
+        if (replications < 0 || model == null || results == null) {
+            throw new IllegalArgumentException();
+        }
+
+        int count = Math.max(1, Math.min(workers, replications));
+        List<Process> processes = new ArrayList<Process>(count);
+        List<File> files = new ArrayList<File>(count);
+        List<T> collected = new ArrayList<T>(replications);
+
+        for (int i = 0; i < replications; i++) {
+            collected.add(null);
+        }
+
+        try {
+            for (int w = 0; w < count; w++) {
+                int first = (int) ((long) replications * w / count);
+                int last = (int) ((long) replications * (w + 1) / count);
+                File file = File.createTempFile("javasim-farm-", ".bin");
+
+                files.add(file);
+                processes.add(start(model, first, last - first, file));
+            }
+
+            for (int w = 0; w < count; w++) {
+                int exit = processes.get(w).waitFor();
+
+                if (exit != 0) {
+                    throw new SimulationException("Replication worker " + w + " failed with exit code " + exit);
+                }
+
+                collect(files.get(w), results, collected);
+            }
+        } catch (IOException e) {
+            SimulationException failure = new SimulationException("Replication workers failed: " + e);
+
+            failure.initCause(e);
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SimulationException("Interrupted while waiting for replication workers.");
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+            for (File file : files) {
+                // 映射在缓冲区被回收之前不会解除，有的平台（Windows）这时不能删除文件
+                if (!file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        }
+
+        for (int i = 0; i < replications; i++) {
+            if (collected.get(i) == null) {
+                throw new SimulationException("No result for replication " + i);
+            }
+        }
+
+        return collected;
+    }
+
+    /**
+     * Entry point of the worker JVMs.
+     *
+     * @param args the model class, the seed, the first replication, the
+     *             number of replications and the results file.
+     */
+    public static void main(String[] args) {
+        int status = 0;
+
+        try {
+            work(args[0], Long.parseLong(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                    new File(args[4]));
+        } catch (Throwable e) {
+            e.printStackTrace();
+            status = 1;
+        }
+
+        // 仿真进程的线程可能还没有结束
+        System.exit(status);
+    }
+
+    private Process start(Class<?> model, int first, int count, File file) throws IOException {
+        List<String> command = new ArrayList<String>();
+
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(javaOptions);
+        command.add("-cp");
+        command.add(classPath);
+        command.add(ReplicationFarm.class.getName());
+        command.add(model.getName());
+        command.add(Long.toString(seed));
+        command.add(Integer.toString(first));
+        command.add(Integer.toString(count));
+        command.add(file.getAbsolutePath());
+
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    /**
+     * 结果文件的格式：结果个数，然后每个结果依次为实验编号、长度与 saveState 写出的内容
+     */
+    private static void work(String modelClass, long seed, int first, int count, File file) throws Throwable {
+        Replication<? extends Mean> model;
+
+        try {
+            @SuppressWarnings("unchecked")
+            Class<? extends Replication<? extends Mean>> type = (Class<? extends Replication<? extends Mean>>) Class
+                    .forName(modelClass);
+
+            model = type.getDeclaredConstructor().newInstance();
+        } catch (InvocationTargetException e) {
+            // 模型的构造函数本身抛出的异常
+            throw e.getCause();
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            MappedOutput mapped = new MappedOutput(raf.getChannel(), MAPPED_SIZE);
+            // DataOutputStream 不带缓冲，saveState 写出的内容直接进入映射区域
+            DataOutputStream out = new DataOutputStream(mapped);
+
+            out.writeInt(count);
+
+            for (int replication = first; replication < first + count; replication++) {
+                Mean result = ReplicationRunner.runReplication(model, seed, replication);
+
+                if (result == null) {
+                    throw new IOException("No result for replication " + replication);
+                }
+
+                out.writeInt(replication);
+
+                // 长度在写完之后回填
+                int length = mapped.position();
+
+                out.writeInt(0);
+
+                if (!result.saveState(out)) {
+                    throw new IOException("Cannot save the result of replication " + replication);
+                }
+
+                mapped.putInt(length, mapped.position() - length - 4);
+            }
+
+            mapped.force();
+        }
+    }
+
+    private static <T extends Mean> void collect(File file, Supplier<? extends T> results, List<T> collected)
+            throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            int count = buffer.getInt();
+
+            for (int i = 0; i < count; i++) {
+                int replication = buffer.getInt();
+                int length = buffer.getInt();
+                int end = buffer.position() + length;
+                T result = results.get();
+
+                // restoreState 直接从映射区域读取
+                if (!result.restoreState(new DataInputStream(new MappedInput(buffer, end)))) {
+                    throw new IOException("Cannot restore the result of replication " + replication);
+                }
+
+                ((Buffer) buffer).position(end);
+                collected.set(replication, result);
+            }
+        }
+    }
+
+    /**
+     * 直接写入文件映射区域的输出流，区域写满时映射一个两倍大的区域继续写，已经写入的内容留在文件中
+     */
+    private static final class MappedOutput extends OutputStream {
+
+        private final FileChannel channel;
+
+        private MappedByteBuffer buffer;
+
+        MappedOutput(FileChannel channel, int size) throws IOException {
+            this.channel = channel;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            reserve(1);
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            reserve(len);
+            buffer.put(b, off, len);
+        }
+
+        int position() {
+            return buffer.position();
+        }
+
+        void putInt(int index, int value) {
+            buffer.putInt(index, value);
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        private void reserve(int n) throws IOException {
+            if (buffer.remaining() >= n) {
+                return;
+            }
+
+            int position = buffer.position();
+            long size = Math.max(2L * buffer.capacity(), (long) position + n);
+
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Replication results exceed " + Integer.MAX_VALUE + " bytes.");
+            }
+
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            ((Buffer) buffer).position(position);
+        }
+    }
+
+    /**
+     * 从映射区域读取一个结果的输入流，读到该结果的末尾为止
+     */
+    private static final class MappedInput extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private final int end;
+
+        MappedInput(ByteBuffer buffer, int end) {
+            this.buffer = buffer;
+            this.end = end;
+        }
+
+        @Override
+        public int read() {
+            return buffer.position() < end ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int n = Math.min(len, end - buffer.position());
+
+            if (n <= 0) {
+                return len == 0 ? 0 : -1;
+            }
+
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.javasim.stats.Mean;
+import org.javasim.stats.Variance;
+import org.javasim.streams.RandomStream;
+
+/**
+ * 在同一个 JVM 中并行执行多次独立的重复实验
+ * Runs independent replications of a model concurrently on a fork-join
+ * pool. Each replication runs in its own SimulationContext, so it has its
+ * own clock and scheduler queue, and its random number generator is seeded
+ * from the number of the replication, so the replications are independent
+ * and the results of a replication do not depend on how many others run
+ * alongside it.
+ *
+ * The results of the replications can be combined with summarize, which
+ * gives the mean across replications and its confidence interval, or
+ * pooled with Mean.merge.
+ *
+ * A runner created without a pool creates its own, which close shuts down;
+ * a pool given to the constructor belongs to the caller and is left running.
+ */
+
+public class ReplicationRunner implements AutoCloseable {
+    /**
+     * 执行重复实验的线程池
+     */
+    private final ForkJoinPool pool;
+    /**
+     * 线程池是否由 runner 自己创建，只有这时 close 才关闭它
+     */
+    private final boolean owned;
+    /**
+     * 所有重复实验的随机数种子由它派生
+     */
+    private final long seed;
+
+    /**
+     * Run replications on a pool with one thread per processor, which is
+     * shut down by close.
+     */
+    public ReplicationRunner() {
+        this(new ForkJoinPool(Runtime.getRuntime().availableProcessors()), 0, true);
+    }
+
+    /**
+     * @param pool the pool to run replications on; its parallelism is the
+     *             number of replications which run at the same time.
+     * @param seed the seed from which the seeds of the replications are derived.
+     */
+    public ReplicationRunner(ForkJoinPool pool, long seed) {
+        this(pool, seed, false);
+    }
+
+    private ReplicationRunner(ForkJoinPool pool, long seed, boolean owned) {
+        if (pool == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.pool = pool;
+        this.seed = seed;
+        this.owned = owned;
+    }
+
+    /**
+     * Run the replications and wait for all of them to finish.
+     *
+     * @param replications the number of replications.
+     * @param model        the model to replicate.
+     * @param <T>          the result of a replication.
+     * @return the results, in the order of the replication numbers.
+     * @throws SimulationException thrown if a replication fails.
+     */
+    public <T> List<T> run(int replications, final Replication<T> model) throws SimulationException {
+        if (replications < 0 || model == null) {
+            throw new IllegalArgumentException();
+        }
+
+        List<Callable<T>> tasks = new ArrayList<Callable<T>>(replications);
+
+        for (int i = 0; i < replications; i++) {
+            final int replication = i;
+
+            tasks.add(() -> runReplication(model, seed, replication));
+        }
+
+        List<T> results = new ArrayList<T>(replications);
+        List<Future<T>> futures = pool.invokeAll(tasks);
+
+        for (int i = 0; i < replications; i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                SimulationException failure = new SimulationException("Replication " + i + " failed: " + e.getCause());
+
+                failure.initCause(e.getCause());
+                throw failure;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SimulationException("Interrupted while waiting for replication " + i);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Shut down the pool if the runner created it. Replications which are
+     * still running are allowed to finish.
+     */
+    @Override
+    public void close() {
+        if (owned) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Summarise the results of independent replications: the samples of the
+     * returned Variance are the means of the replications, so its mean() is
+     * the estimate across replications and confidenceInterval(level) the
+     * half width of its confidence interval.
+     *
+     * @param results the results of the replications.
+     * @return the statistics of the replication means.
+     */
+    public static Variance summarize(List<? extends Mean> results) {
+        Variance summary = new Variance();
+
+        for (Mean result : results) {
+            summary.setValue(result.mean());
+        }
+
+        return summary;
+    }
+
+    /**
+     * 在新的上下文中执行一次重复实验，随机数种子只由 seed 与实验编号决定，ReplicationFarm 的工作进程也使用它
+     */
+    static <T> T runReplication(final Replication<T> model, final long seed, final int replication) throws Exception {
+        SimulationContext context = new SimulationContext();
+
+        return context.call(() -> {
+            long z = mix(seed + (replication + 1) * 0x9E3779B97F4A7C15L);
+
+            // 乘法生成器的种子必须是奇数，线性同余生成器的模为 10^8
+            RandomStream.seed((z & 0x3FFFFFFL) | 1, (z >>> 32) % 100000000L);
+
+            return model.run(replication);
+        });
+    }
+
+    /**
+     * SplitMix64 的混合函数，使相邻的重复实验得到不相关的种子
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记需要生成不占用线程的形式的进程类
+ * Marks a process class whose run method should also be compiled into a
+ * ResumableProcess. The class keeps the usual modelling style, calling
+ * hold, passivate and waitForTrigger in run, and can still be executed with
+ * a thread of control. When it is compiled with JavaSim on the class path,
+ * the annotation processor org.javasim.processing.ResumableProcessor
+ * generates, in the same package, a class named Resumable followed by the
+ * name of the annotated class. The generated class extends ResumableProcess
+ * and has the same constructors, fields and methods, with run divided into
+ * steps at each wait, so it is executed without a thread.
+ *
+ * The annotated class must be a top-level class which extends
+ * SimulationProcess or SimulationEntity directly. The restrictions on its
+ * run method are described with ResumableProcessor.
+ */
+
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Resumable {
+}
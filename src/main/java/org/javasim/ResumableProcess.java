@@ -0,0 +1,336 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim;
+
+import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 不占用线程、以状态机形式编写的仿真进程
+ * A resumable process is written in the same process-interaction style as a
+ * SimulationProcess, but its body is divided into steps at the points where
+ * it waits for simulation time to pass, so that it can be executed without
+ * a thread of control. Each time the process becomes active the scheduler
+ * calls resume with the label recorded when it last waited, directly on the
+ * thread which is handing over control, as for a SimulationEvent. The body
+ * runs from that label until it waits again with holdThen, passivateThen or
+ * waitForTriggerThen and returns; if it returns without waiting the process
+ * is terminated.
+ *
+ * For example, a process which would be written with threads as
+ *
+ * <pre>
+ * public void run () {
+ *     for (int i = 0; i &lt; 10; i++) {
+ *         work();
+ *         hold(5);
+ *     }
+ *     terminate();
+ * }
+ * </pre>
+ *
+ * is written as a resumable process, keeping the loop variable in a field, as
+ *
+ * <pre>
+ * protected void resume (int label) throws SimulationException, RestartException {
+ *     switch (label) {
+ *     case 0:
+ *         i = 0;
+ *     case 1:
+ *         if (i &lt; 10) {
+ *             work();
+ *             i++;
+ *             holdThen(5, 1);
+ *         }
+ *     }
+ * }
+ * </pre>
+ *
+ * 进程之间的交互方式与 SimulationProcess 相同：其他进程可以用 activate 与 reactivate 激活它，
+ * 它也可以与基于线程的进程、事件在同一个调度队列中按相同的顺序交替执行。
+ *
+ * The steps may be written by hand, or generated from an ordinary run
+ * method by annotating its class with {@link Resumable}; see
+ * org.javasim.processing.ResumableProcessor. waitForTriggerThen is the
+ * resumable form of SimulationEntity.waitForTrigger; the other waits of
+ * SimulationEntity have no resumable form.
+ */
+
+public abstract class ResumableProcess extends SimulationEvent {
+    /**
+     * 下一次被激活时继续执行的位置
+     */
+    private int label;
+    /**
+     * 本次执行是否已经通过 holdThen、passivateThen 或 waitForTriggerThen 等待
+     */
+    private boolean waiting;
+    /**
+     * 是否在触发队列中等待
+     */
+    private boolean waitingForTrigger;
+    /**
+     * 是否被触发队列触发
+     */
+    private boolean triggered;
+
+    protected ResumableProcess() {
+        label = 0;
+        waiting = false;
+        waitingForTrigger = triggered = false;
+    }
+
+    /**
+     * The body of the process, continued from the given label.
+     *
+     * @param label the label given to the last holdThen, passivateThen or
+     *              waitForTriggerThen, or 0
+     *              when the process becomes active for the first time.
+     * @throws SimulationException thrown if there's an error.
+     * @throws RestartException    thrown if the simulation is restarted.
+     */
+    protected abstract void resume(int label) throws SimulationException, RestartException;
+
+    /**
+     * Continue the body of the process from where it last waited. If the
+     * body throws a SimulationException the simulation is stopped with it,
+     * as for an event handler which fails, and the process is terminated;
+     * a RestartException ends the body and terminates the process.
+     */
+    @Override
+    public final void run() {
+        SimulationException failure = null;
+
+        waiting = false;
+        waitingForTrigger = false;
+
+        try {
+            resume(label);
+        } catch (SimulationException e) {
+            waiting = false;
+            failure = e;
+        } catch (RestartException e) {
+            // 仿真正在重置，进程体不再继续，与线程进程的进程体因 RestartException 返回一样结束进程
+            waiting = false;
+        }
+
+        if (!waiting) {
+            terminate();
+        }
+
+        // 先结束进程再停止仿真，被唤醒的主线程看到的进程已经结束
+        if (failure != null) {
+            Simulation.stop(context, failure);
+        }
+    }
+
+    /**
+     * Wait for the specified amount of simulation time and then continue from
+     * the given label. The body should return after calling this.
+     *
+     * @param t    the simulation time to wait.
+     * @param next the label to continue from.
+     * @throws SimulationException thrown if the time is invalid.
+     * @throws RestartException    thrown if the simulation is restarted.
+     */
+    protected final void holdThen(double t, int next) throws SimulationException, RestartException {
+        if (this != context.current) {
+            throw new SimulationException("Hold applied to inactive object.");
+        }
+
+        activateDelay(t);
+
+        label = next;
+        waiting = true;
+    }
+
+    /**
+     * Become passive, and continue from the given label when another process
+     * activates this one again. The body should return after calling this.
+     *
+     * @param next the label to continue from.
+     * @throws SimulationException thrown if the process is not active.
+     */
+    protected final void passivateThen(int next) throws SimulationException {
+        if (this != context.current) {
+            throw new SimulationException("Passivate applied to inactive object.");
+        }
+
+        label = next;
+        waiting = true;
+    }
+
+    /**
+     * Wait on the given trigger queue, and continue from the given label when
+     * the process is reactivated, normally because the queue has triggered it.
+     * The body should return after calling this, and should then call
+     * triggered to tell a trigger from any other reactivation, just as
+     * SimulationEntity.waitForTrigger throws InterruptedException when the
+     * entity was not triggered.
+     *
+     * @param queue the trigger queue to wait on.
+     * @param next  the label to continue from.
+     * @throws SimulationException thrown if the process is not active or is
+     *                             already waiting on a trigger queue.
+     */
+    protected final void waitForTriggerThen(TriggerQueue queue, int next) throws SimulationException {
+        if (this != context.current) {
+            throw new SimulationException("WaitForTrigger applied to inactive object.");
+        }
+
+        queue.insert(this);
+        waitingForTrigger = true;
+
+        label = next;
+        waiting = true;
+    }
+
+    /**
+     * Whether the process was triggered by the trigger queue it waited on
+     * with waitForTriggerThen. The trigger is consumed, so the next call
+     * returns <code>false</code> until the process is triggered again.
+     *
+     * @return <code>true</code> if the process has been triggered.
+     */
+    protected final boolean triggered() {
+        boolean result = triggered;
+
+        triggered = false;
+
+        return result;
+    }
+
+    /**
+     * Is the process waiting on a trigger queue?
+     *
+     * @return whether or not the process is waiting for a trigger.
+     */
+    public final boolean isWaiting() {
+        return waitingForTrigger;
+    }
+
+    /**
+     * An iterator over the elements of an Iterable or array. The classes
+     * generated by ResumableProcessor keep it in a field to continue an
+     * enhanced for statement after a wait.
+     *
+     * @param iterable the Iterable.
+     * @return an iterator over its elements.
+     */
+    protected static Iterator<?> iterate(Iterable<?> iterable) {
+        return iterable.iterator();
+    }
+
+    /**
+     * @see #iterate(Iterable)
+     */
+    protected static Iterator<?> iterate(Object[] array) {
+        return elements(array);
+    }
+
+    /**
+     * @see #iterate(Iterable)
+     */
+    protected static Iterator<?> iterate(int[] array) {
+        return elements(array);
+    }
+
+    /**
+     * @see #iterate(Iterable)
+     */
+    protected static Iterator<?> iterate(long[] array) {
+        return elements(array);
+    }
+
+    /**
+     * @see #iterate(Iterable)
+     */
+    protected static Iterator<?> iterate(double[] array) {
+        return elements(array);
+    }
+
+    /**
+     * @see #iterate(Iterable)
+     */
+    protected static Iterator<?> iterate(float[] array) {
+        return elements(array);
+    }
+
+    /**
+     * @see #iterate(Iterable)
+     */
+    protected static Iterator<?> iterate(short[] array) {
+        return elements(array);
+    }
+
+    /**
+     * @see #iterate(Iterable)
+     */
+    protected static Iterator<?> iterate(byte[] array) {
+        return elements(array);
+    }
+
+    /**
+     * @see #iterate(Iterable)
+     */
+    protected static Iterator<?> iterate(char[] array) {
+        return elements(array);
+    }
+
+    /**
+     * @see #iterate(Iterable)
+     */
+    protected static Iterator<?> iterate(boolean[] array) {
+        return elements(array);
+    }
+
+    /**
+     * 数组元素的迭代器，基本类型的元素被装箱
+     */
+    private static Iterator<?> elements(final Object array) {
+        return new Iterator<Object>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < Array.getLength(array);
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return Array.get(array, next++);
+            }
+        };
+    }
+
+    /**
+     * 由触发队列调用，与 SimulationEntity.trigger 相同
+     */
+    final void trigger() {
+        triggered = true;
+        waitingForTrigger = false;
+    }
+}
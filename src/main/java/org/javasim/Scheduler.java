@@ -32,7 +32,10 @@
 package org.javasim;
 
 import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
 
+import org.javasim.internal.EventQueue;
+import org.javasim.internal.ProcessExecutor;
 import org.javasim.internal.SimulationProcessIterator;
 import org.javasim.internal.SimulationProcessList;
 import org.javasim.internal.SimulationProcessQueue;
@@ -48,29 +51,17 @@ import org.javasim.internal.SimulationProcessQueue;
  */
 public class Scheduler extends Thread {
 
-    /**
-     * 系统模拟的仿真时间
-     */
-    private static double SimulatedTime = 0.0;
-    /**
-     * 事件调度队列
-     */
-    private static SimulationProcessQueue ReadyQueue = new SimulationProcessQueue();
-    /**
-     * 互斥锁
-     */
-    static Scheduler theScheduler = new Scheduler();
-
     private Scheduler() {
     }
 
     /**
      * Get the current simulation time.
      * 获取当前的仿真时间
+     * 调度器的状态属于 SimulationContext，这里的方法都作用于指定的或当前线程绑定的上下文
      * @return the current simulation time.
      */
     public static double currentTime() {
-        return Scheduler.SimulatedTime;
+        return SimulationContext.current().simulatedTime;
     }
 
     /**
@@ -87,19 +78,29 @@ public class Scheduler extends Thread {
      * 然后，在对进程调用Cancel之前，它应该执行任何必要的工作，将进程恢复到可以重新启动模拟的状态。
      * @throws SimulationException if an error occurs.
      */
-    static synchronized void reset() throws SimulationException {
+    static void reset(SimulationContext context) throws SimulationException {
+        synchronized (context) {
+            doReset(context);
+        }
+    }
+
+    private static void doReset(SimulationContext context) throws SimulationException {
         boolean finished = false;
-        SimulationProcess tmp = SimulationProcess.current();
+        SimulationProcess tmp = context.current;
+
+        if (tmp == null) {
+            throw new SimulationException("Current not set.");
+        }
 
         // set resetting process to idle
 
         // 将激活的进程切换为 passive
-        Scheduler.unschedule(tmp);
+        Scheduler.unschedule(context, tmp);
 
         // 将挂起的进程状态切换成 passive
         do {
             try {
-                tmp = Scheduler.ReadyQueue.remove();
+                tmp = context.readyQueue.remove();
                 tmp.deactivate();
             } catch (NoSuchElementException e) {
                 finished = true;
@@ -110,7 +111,7 @@ public class Scheduler extends Thread {
         finished = false;
 
         // 仿真系统中的非 terminal 线程
-        SimulationProcessQueue allProcesses = SimulationProcess.allProcesses;
+        SimulationProcessQueue allProcesses = context.allProcesses;
         SimulationProcess iterator = allProcesses.peek();
 
         /**
@@ -129,26 +130,32 @@ public class Scheduler extends Thread {
                  * to become ready to restart.
                  */
 
-                tmp.resumeProcess();
+                // 从未开始执行的进程没有被挂起，恢复它只会让它开始执行
+                if (tmp.isStarted()) {
+                    tmp.resumeProcess();
 
-                /*
-                 * Wait for this process to become idle again.
-                 */
+                    /*
+                     * Wait for this process to become idle again.
+                     */
 
-                while (!tmp.idle())
-                    Thread.yield();
+                    while (!tmp.idle())
+                        Thread.yield();
+                }
             } catch (NullPointerException e) {
                 finished = true;
             }
 
-            iterator = allProcesses.getNext(iterator);
+            if (!finished) {
+                iterator = allProcesses.getNext(iterator);
+            }
 
         } while (!finished);
 
-        Scheduler.SimulatedTime = 0.0;
+        context.simulatedTime = 0.0;
+        ThreePhase.reset(context);
 
-        SimulationProcess.Current = null;
-        SimulationProcess.allProcesses = new SimulationProcessQueue();
+        context.current = null;
+        context.allProcesses = new SimulationProcessQueue();
     }
 
     /**
@@ -158,10 +165,90 @@ public class Scheduler extends Thread {
      * whether or not to call suspend on the currently active process.
      *
      * 调度器从进程队列中调度一个进程
+     * 选择下一个进程时持有调度器的锁，交出控制权在锁外进行，
+     * 被唤醒的进程访问调度器时不会因为当前线程还持有锁而再次阻塞。
+     * 队首是 SimulationEvent 时直接在当前线程上执行它的处理函数，再继续选择，直到遇到需要恢复的进程
+     */
+    static boolean schedule(SimulationContext context) throws SimulationException {
+        SimulationProcess caller = context.current;
+
+        if (caller instanceof SimulationEvent) {
+            // 在事件处理函数中，返回之后由外层的调度循环继续
+            return false;
+        }
+
+        Scheduler.conditionalPhase(context, caller);
+
+        if (context.failure != null) {
+            // 事件失败使仿真停止，交出控制权的进程挂起，直到仿真被重置
+            return true;
+        }
+
+        SimulationProcess next = Scheduler.selectNext(context);
+
+        while (next instanceof SimulationEvent) {
+            if (next instanceof ParallelEvent) {
+                ParallelEvent.prepare(context, (ParallelEvent) next);
+            }
+
+            ((SimulationEvent) next).fire();
+
+            // 每次都相对于交出控制权的进程选择，事件之后轮到它自己时它继续运行
+            context.current = caller;
+            Scheduler.conditionalPhase(context, caller);
+
+            if (context.failure != null) {
+                return true;
+            }
+
+            next = Scheduler.selectNext(context);
+        }
+
+        if (next == null) {
+            return false;
+        }
+
+        // Simulation.printQueue();
+
+        next.resumeProcess();
+        return true;
+    }
+
+    /**
+     * 当前时刻的事件都已执行完、仿真时间即将推进时，执行三阶段方法的 C 阶段，见 ThreePhase
+     * C 阶段像事件一样在交出控制权的线程上执行，它开始的活动可能在当前时刻安排新的事件，这时先执行这些事件
+     */
+    private static void conditionalPhase(SimulationContext context, SimulationProcess caller) {
+        while (ThreePhase.isPending(context) && Simulation.isStarted(context)) {
+            SimulationProcess head = Scheduler.getQueue(context).peek();
+
+            if (head != null && head.evtime() <= Scheduler.getSimulationTime(context)) {
+                return;
+            }
+
+            context.current = context.phase;
+            context.phase.fire();
+            context.current = caller;
+        }
+    }
+
+    /**
+     * 从调度队列中取出下一个进程并推进仿真时间
+     * @return 需要恢复的进程，当前进程继续运行或队列为空时返回 null
      */
-    static synchronized boolean schedule() throws SimulationException {
-        if (Simulation.isStarted()) {
-            SimulationProcess p = SimulationProcess.current();
+    private static SimulationProcess selectNext(SimulationContext context) throws SimulationException {
+        synchronized (context) {
+            return doSelectNext(context);
+        }
+    }
+
+    private static SimulationProcess doSelectNext(SimulationContext context) throws SimulationException {
+        if (Simulation.isStarted(context)) {
+            SimulationProcess p = context.current;
+
+            if (p == null) {
+                throw new SimulationException("Current not set.");
+            }
 
             try {
                 /*
@@ -177,15 +264,15 @@ public class Scheduler extends Thread {
                  * https://github.com/nmcl/JavaSim/issues/76
                  */
 
-                SimulationProcess.Current = Scheduler.ReadyQueue.remove();
+                context.current = context.readyQueue.remove();
                 boolean done = true;
 
                 do {
-                    if (SimulationProcess.Current != null) {
-                        if (SimulationProcess.Current.getThreadGroup() == null) {
+                    if (context.current != null) {
+                        if (context.current.isFinished()) {
                             // 如果此线程已死(已停止)
-                            SimulationProcess.Current = Scheduler.ReadyQueue.remove();
-                            p = SimulationProcess.current();
+                            context.current = context.readyQueue.remove();
+                            p = context.current;
                             done = false;
                         } else {
                             done = true;
@@ -198,27 +285,28 @@ public class Scheduler extends Thread {
             } catch (NoSuchElementException e) {
                 System.out.println("Simulation queue empty.");
 
-                return false;
+                return null;
             } catch (NullPointerException e) {
                 System.out.println("Simulation queue empty.");
 
-                return false;
+                return null;
             }
 
-            if (SimulationProcess.Current.evtime() < 0) {
+            if (context.current.evtime() < 0) {
                 throw new SimulationException("Invalid SimulationProcess wakeup time.");
             } else {
                 // 系统仿真时间推进
-                Scheduler.SimulatedTime = SimulationProcess.Current.evtime();
+                context.simulatedTime = context.current.evtime();
             }
 
-            if (p != SimulationProcess.Current) {
-                // Simulation.printQueue();
+            if (context.phase != null) {
+                ThreePhase.eventOccurred(context);
+            }
 
-                SimulationProcess.Current.resumeProcess();
-                return true;
+            if (p != context.current) {
+                return context.current;
             } else {
-                return false;
+                return null;
             }
         } else {
             throw new SimulationException("Simulation not started.");
@@ -229,23 +317,106 @@ public class Scheduler extends Thread {
      * 将指定线程从调度队列中移除，并将线程状态切换为空闲
      * @param process
      */
-    static synchronized void unschedule(SimulationProcess process) {
-        try {
-            // 将线程从队列中移除
-            Scheduler.ReadyQueue.remove(process);
-        } catch (NoSuchElementException e) {
+    static void unschedule(SimulationContext context, SimulationProcess process) {
+        synchronized (context) {
+            try {
+                // 将线程从队列中移除
+                context.readyQueue.remove(process);
+            } catch (NoSuchElementException e) {
+            }
+            // 切换线程状态为空闲
+            process.deactivate();
+        }
+    }
+
+    /**
+     * 把仍在调度队列中的线程移动到它新的唤醒时间
+     * @param process 唤醒时间已经更新的线程
+     * @param prior 是否排在同时间的进程之前
+     * @return 线程在队列中并已移动时返回 true
+     */
+    static boolean reschedule(SimulationContext context, SimulationProcess process, boolean prior) {
+        if (process instanceof ParallelEvent) {
+            // 移动之后它已经执行过的 compute 不再属于它所在的那一批
+            ((ParallelEvent) process).invalidate();
+        }
+
+        synchronized (context) {
+            return context.readyQueue.reschedule(process, prior);
         }
-        // 切换线程状态为空闲
-        process.deactivate();
     }
 
     /**
      * 获得事件队列
      * @return
      */
-    static SimulationProcessQueue getQueue() {
-        synchronized (theScheduler) {
-            return ReadyQueue;
+    static EventQueue getQueue(SimulationContext context) {
+        synchronized (context.stateLock) {
+            return context.readyQueue;
+        }
+    }
+
+    /**
+     * 替换事件队列，原队列中等待的进程按原有顺序迁移到新队列
+     * @param queue 新的事件队列
+     */
+    static void setQueue(SimulationContext context, EventQueue queue) {
+        synchronized (context) {
+            EventQueue old = context.readyQueue;
+
+            if (queue == old) {
+                return;
+            }
+
+            try {
+                for (;;) {
+                    queue.insert(old.remove(), false);
+                }
+            } catch (NoSuchElementException e) {
+            }
+
+            synchronized (context.stateLock) {
+                context.readyQueue = queue;
+            }
+        }
+    }
+
+    /**
+     * 获得新进程使用的执行方式
+     * @return
+     */
+    static ProcessExecutor getExecutor(SimulationContext context) {
+        synchronized (context.stateLock) {
+            return context.executor;
+        }
+    }
+
+    /**
+     * 替换执行方式，只影响之后才开始执行的进程
+     * @param executor 新的执行方式
+     */
+    static void setExecutor(SimulationContext context, ProcessExecutor executor) {
+        synchronized (context.stateLock) {
+            context.executor = executor;
+        }
+    }
+
+    /**
+     * 获得并行计算同时刻 ParallelEvent 使用的线程池
+     * @return 没有设置时返回 null
+     */
+    static ForkJoinPool getEventPool(SimulationContext context) {
+        synchronized (context.stateLock) {
+            return context.eventPool;
+        }
+    }
+
+    /**
+     * 设置并行计算同时刻 ParallelEvent 使用的线程池，为 null 时逐个计算
+     */
+    static void setEventPool(SimulationContext context, ForkJoinPool pool) {
+        synchronized (context.stateLock) {
+            context.eventPool = pool;
         }
     }
 
@@ -253,9 +424,9 @@ public class Scheduler extends Thread {
      * 获得系统仿真时间
      * @return
      */
-    static double getSimulationTime() {
-        synchronized (theScheduler) {
-            return SimulatedTime;
+    static double getSimulationTime(SimulationContext context) {
+        synchronized (context.stateLock) {
+            return context.simulatedTime;
         }
     }
 
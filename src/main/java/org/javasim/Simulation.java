@@ -21,13 +21,19 @@
 package org.javasim;
 
 import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
 
+import org.javasim.internal.EventQueue;
+import org.javasim.internal.EventQueueFactory;
+import org.javasim.internal.ProcessExecutor;
+import org.javasim.internal.ProcessExecutorFactory;
 import org.javasim.internal.SimulationProcessIterator;
 import org.javasim.internal.SimulationProcessList;
 
 /**
  * A class to encapsulate the various methods to start, stop or
- * reset the simulation.
+ * reset the simulation. They act on the SimulationContext bound to the
+ * calling thread, or on the default context.
  *
  * @author marklittle
  */
@@ -44,13 +50,17 @@ public class Simulation {
      * @throws SimulationException if an error occurs.
      */
 
-    public static synchronized void reset() throws SimulationException {
-        Simulation._reset = true;
+    public static void reset() throws SimulationException {
+        SimulationContext context = SimulationContext.current();
 
-        try {
-            Scheduler.reset();
-        } finally {
-            Simulation._reset = false;
+        synchronized (context.controlLock) {
+            context.reset = true;
+
+            try {
+                Scheduler.reset(context);
+            } finally {
+                context.reset = false;
+            }
         }
     }
 
@@ -62,8 +72,8 @@ public class Simulation {
      * @return <code>true</code> if the simulation is being reset, <code>false</code> otherwise.
      */
 
-    public static synchronized boolean isReset() {
-        return Simulation._reset;
+    public static boolean isReset() {
+        return isReset(SimulationContext.current());
     }
 
     /**
@@ -72,8 +82,12 @@ public class Simulation {
      * is, then they should act accordingly.
      */
 
-    public static synchronized void stop() {
-        Simulation.running = false;
+    public static void stop() {
+        SimulationContext context = SimulationContext.current();
+
+        synchronized (context.controlLock) {
+            context.running = false;
+        }
     }
 
     /**
@@ -81,16 +95,114 @@ public class Simulation {
      * previously stopped.
      */
 
-    public static synchronized void start() {
-        Simulation.running = true;
+    public static void start() {
+        SimulationContext context = SimulationContext.current();
+
+        synchronized (context.controlLock) {
+            context.running = true;
+            context.failure = null;
+        }
+    }
+
+    /**
+     * If an event handler failed, the simulation was stopped and this
+     * returns the exception it threw. It is cleared by start.
+     *
+     * @return the exception which stopped the simulation, or <code>null</code>.
+     */
+
+    public static Throwable getFailure() {
+        return SimulationContext.current().failure;
+    }
+
+    /**
+     * Replace the event queue used by the scheduler. Any processes which are
+     * already scheduled are moved to the new queue in their current order, so
+     * this may be called at any point, although it is normally done before
+     * the simulation is started. The default queue can also be selected with
+     * the <code>org.javasim.eventqueue</code> system property.
+     *
+     * @param queue the new event queue.
+     */
+
+    public static void setEventQueue(EventQueue queue) {
+        if (queue == null)
+            throw new IllegalArgumentException();
+
+        Scheduler.setQueue(SimulationContext.current(), queue);
+    }
+
+    /**
+     * Replace the event queue used by the scheduler with a new instance of
+     * the named type.
+     *
+     * @param type "heap", "list" or the class name of an EventQueue implementation.
+     * @throws IllegalArgumentException if the type cannot be created.
+     */
+
+    public static void setEventQueue(String type) throws IllegalArgumentException {
+        setEventQueue(EventQueueFactory.create(type));
+    }
+
+    /**
+     * Replace the executor which gives simulation processes their thread of
+     * control. Processes which have already started keep the executor they
+     * were started with, so this is normally done before any process is
+     * activated. The default executor can also be selected with the
+     * <code>org.javasim.threads</code> system property.
+     *
+     * @param executor the new process executor.
+     */
+
+    public static void setProcessExecutor(ProcessExecutor executor) {
+        if (executor == null)
+            throw new IllegalArgumentException();
+
+        Scheduler.setExecutor(SimulationContext.current(), executor);
+    }
+
+    /**
+     * Replace the process executor with a new instance of the named type.
+     *
+     * @param type "platform", "virtual" or the class name of a ProcessExecutor implementation.
+     * @throws IllegalArgumentException if the type cannot be created.
+     */
+
+    public static void setProcessExecutor(String type) throws IllegalArgumentException {
+        setProcessExecutor(ProcessExecutorFactory.create(type));
+    }
+
+    /**
+     * Set the pool on which the compute() methods of ParallelEvents scheduled
+     * for the same time are run concurrently, or <code>null</code> (the
+     * default) to compute each of them on the scheduling thread. The pool is
+     * not shut down by the simulation.
+     *
+     * @param pool the event pool.
+     */
+
+    public static void setEventPool(ForkJoinPool pool) {
+        Scheduler.setEventPool(SimulationContext.current(), pool);
+    }
+
+    /**
+     * @return the pool set with setEventPool, or <code>null</code>.
+     */
+
+    public static ForkJoinPool getEventPool() {
+        return Scheduler.getEventPool(SimulationContext.current());
     }
 
     /**
      * Print out the contents of the current simulation queue.
      */
 
-    public static synchronized void printQueue() {
-        SimulationProcess.allProcesses.print();
+    public static void printQueue() {
+        SimulationContext context = SimulationContext.current();
+
+        synchronized (context.controlLock) {
+            context.allProcesses.print();
+        }
     }
 
     /**
@@ -100,10 +212,38 @@ public class Simulation {
      * otherwise.
      */
 
-    protected static synchronized boolean isStarted() {
-        return Simulation.running;
+    protected static boolean isStarted() {
+        return isStarted(SimulationContext.current());
+    }
+
+    static boolean isStarted(SimulationContext context) {
+        synchronized (context.controlLock) {
+            return context.running;
+        }
     }
 
-    private static boolean running = false;
-    private static boolean _reset = false;
+    /**
+     * 事件处理函数抛出异常时停止仿真并记录异常，唤醒在 mainSuspend 中等待的主线程，
+     * 主线程从 mainSuspend 得到这个异常；交出控制权的进程保持挂起，直到仿真被重置。
+     * 只记录第一个异常，仿真停止之后的失败被忽略
+     */
+    static void stop(SimulationContext context, Throwable cause) {
+        synchronized (context.controlLock) {
+            context.running = false;
+
+            if (context.failure != null) {
+                return;
+            }
+
+            context.failure = cause;
+        }
+
+        context.mainHandoff.release();
+    }
+
+    static boolean isReset(SimulationContext context) {
+        synchronized (context.controlLock) {
+            return context.reset;
+        }
+    }
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import org.javasim.internal.EventQueue;
+import org.javasim.internal.EventQueueFactory;
+import org.javasim.internal.Handoff;
+import org.javasim.internal.ProcessExecutor;
+import org.javasim.internal.ProcessExecutorFactory;
+import org.javasim.internal.SimulationProcessQueue;
+
+/**
+ * 一个独立仿真的全部状态：仿真时钟、事件队列、进程表与运行状态
+ * The state of one simulation: its clock, scheduler queue, processes and
+ * run state. The static methods of Scheduler, Simulation and
+ * SimulationProcess operate on the context bound to the calling thread, or
+ * on the default context if none is bound, so existing models run
+ * unchanged in the default context. Independent models can run at the same
+ * time in one JVM by giving each its own context: a process belongs to the
+ * context which was current when it was created, and its thread of control
+ * is bound to that context while it runs.
+ *
+ * 不同的上下文之间不共享任何锁，可以在不同的线程上并行执行。
+ */
+
+public final class SimulationContext {
+    /**
+     * 没有绑定上下文的线程使用的默认上下文
+     */
+    private static final SimulationContext DEFAULT = new SimulationContext();
+    /**
+     * 绑定到当前线程的上下文
+     */
+    private static final ThreadLocal<SimulationContext> BOUND = new ThreadLocal<SimulationContext>();
+
+    /**
+     * 系统模拟的仿真时间
+     */
+    double simulatedTime = 0.0;
+    /**
+     * 事件调度队列，默认基于二叉堆实现，可通过系统属性 org.javasim.eventqueue 选择
+     */
+    EventQueue readyQueue = EventQueueFactory.fromSystemProperty();
+    /**
+     * 仿真进程的执行方式，默认每个进程一个平台线程，可通过系统属性 org.javasim.threads 选择
+     */
+    ProcessExecutor executor = ProcessExecutorFactory.fromSystemProperty();
+    /**
+     * 并行计算同时刻 ParallelEvent 使用的线程池，默认为 null
+     */
+    ForkJoinPool eventPool = null;
+    /**
+     * 当前激活的进程
+     */
+    SimulationProcess current = null;
+    /**
+     * 仿真系统中的非 terminal 进程
+     */
+    SimulationProcessQueue allProcesses = new SimulationProcessQueue();
+    /**
+     * 仿真是否正在运行
+     */
+    boolean running = false;
+    /**
+     * 仿真是否正在重置
+     */
+    boolean reset = false;
+    /**
+     * 使仿真停止的异常，由 start 清除
+     */
+    volatile Throwable failure = null;
+    /**
+     * 挂起与恢复主线程使用的信号量
+     */
+    final Handoff mainHandoff = new Handoff();
+    /**
+     * 读取仿真时间、队列与执行方式时使用的锁，调度本身使用上下文对象的锁
+     */
+    final Object stateLock = new Object();
+    /**
+     * Simulation 的 start / stop / reset 使用的锁
+     */
+    final Object controlLock = new Object();
+    /**
+     * 已注册的条件活动，按优先级排列，见 ThreePhase
+     */
+    final List<Activity> activities = new ArrayList<Activity>();
+    /**
+     * 需要重新测试的活动个数
+     */
+    int pendingActivities = 0;
+    /**
+     * 没有声明依赖的活动个数
+     */
+    int independentActivities = 0;
+    /**
+     * 上一次 C 阶段之后是否执行过事件或进程 (B 阶段)，没有声明依赖的活动只在这之后重新测试
+     */
+    boolean eventsOccurred = false;
+    /**
+     * 执行 C 阶段的事件，第一次注册活动时创建
+     */
+    SimulationEvent phase = null;
+
+    /**
+     * Create a new, empty, simulation context.
+     */
+    public SimulationContext() {
+    }
+
+    /**
+     * @return the context used by threads which have no context bound.
+     */
+    public static SimulationContext getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return the context bound to the calling thread, or the default context.
+     */
+    public static SimulationContext current() {
+        SimulationContext context = BOUND.get();
+
+        return context != null ? context : DEFAULT;
+    }
+
+    /**
+     * Run the task with this context bound to the calling thread, so that
+     * the processes it creates and the static simulation methods it calls
+     * use this context. The previous binding is restored afterwards.
+     *
+     * @param task the task to run.
+     */
+    public void execute(Runnable task) {
+        SimulationContext previous = bind();
+
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Call the task with this context bound to the calling thread.
+     *
+     * @param task the task to call.
+     * @param <V> the result type of the task.
+     * @return the result of the task.
+     * @throws Exception thrown by the task.
+     */
+    public <V> V call(Callable<V> task) throws Exception {
+        SimulationContext previous = bind();
+
+        try {
+            return task.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * @return the current simulation time of this context.
+     */
+    public double currentTime() {
+        return Scheduler.getSimulationTime(this);
+    }
+
+    /**
+     * 进程体在执行单元的线程上运行时绑定进程所属的上下文，
+     * 池化的载体线程执行完之后恢复原来的绑定
+     */
+    Runnable bind(final Runnable body) {
+        return new Runnable() {
+            public void run() {
+                execute(body);
+            }
+        };
+    }
+
+    private SimulationContext bind() {
+        SimulationContext previous = BOUND.get();
+
+        BOUND.set(this);
+
+        return previous;
+    }
+
+    private static void restore(SimulationContext previous) {
+        if (previous == null) {
+            BOUND.remove();
+        } else {
+            BOUND.set(previous);
+        }
+    }
+}
@@ -52,12 +52,12 @@ public class SimulationEntity extends SimulationProcess
 
         // remove from queue for "immediate" activation
 
-        Scheduler.unschedule(toInterrupt); // remove from queue and prepare to
+        Scheduler.unschedule(toInterrupt.context, toInterrupt); // remove from queue and prepare to
                                             // suspend
 
         // will take over when this process is suspended
 
-        toInterrupt.reactivateAt(SimulationProcess.currentTime(), true);
+        toInterrupt.reactivateAt(time(), true);
 
         /*
          * Put "this" on to queue and suspend so that interrupted process can
@@ -65,7 +65,7 @@ public class SimulationEntity extends SimulationProcess
          */
 
         if (immediate)
-            reactivateAt(SimulationProcess.currentTime());
+            reactivateAt(time());
     }
 
     /**
@@ -105,7 +105,7 @@ public class SimulationEntity extends SimulationProcess
             try
             {
                 _isWaitedOnBy.cancel();
-                _isWaitedOnBy.reactivateAt(SimulationProcess.currentTime(), true);
+                _isWaitedOnBy.reactivateAt(time(), true);
             }
             catch (RestartException e)
             {
@@ -187,7 +187,7 @@ public class SimulationEntity extends SimulationProcess
         try
         {
             if (reAct)
-                controller.reactivateAt(SimulationProcess.currentTime(), true);
+                controller.reactivateAt(time(), true);
         }
         catch (SimulationException e)
         {
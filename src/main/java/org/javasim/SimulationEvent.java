@@ -0,0 +1,128 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim;
+
+/**
+ * 不占用线程的仿真事件
+ * An event is scheduled on the same queue as simulation processes, using the
+ * inherited activate and reactivate operations, and is ordered with them in
+ * exactly the same way. When it reaches the head of the queue its handler,
+ * run(), is called directly by the scheduler on the thread which is handing
+ * over control, so no thread is ever created for it and no context switch
+ * is needed. This suits entities which do a little work at each event, such
+ * as counters, arrival generators and timers.
+ *
+ * 事件处理函数执行期间事件处于 passive 状态，处理函数可以再次激活事件自身，例如 activateDelay 实现周期性的定时器。
+ * 处理函数必须直接返回：它不能 hold，也不能像进程那样挂起等待，
+ * 在处理函数中调用的 cancel、passivate 与 terminate 只改变事件的状态。
+ *
+ * If a handler throws an exception the simulation is stopped: no further
+ * events are fired, the process which handed over control stays suspended
+ * until the simulation is reset, and the exception is thrown to the main
+ * thread by mainSuspend and returned by Simulation.getFailure.
+ */
+
+public class SimulationEvent extends SimulationProcess {
+    /**
+     * 事件处理函数，为 null 时执行子类覆盖的 run
+     */
+    private final Runnable action;
+
+    /**
+     * Create an event whose handler is the run method of the subclass.
+     */
+    protected SimulationEvent() {
+        action = null;
+    }
+
+    /**
+     * Create an event which calls the given handler each time it occurs.
+     *
+     * @param action the handler.
+     */
+    public SimulationEvent(Runnable action) {
+        if (action == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.action = action;
+    }
+
+    /**
+     * 在指定的上下文中创建事件，供调度器内部使用
+     */
+    SimulationEvent(SimulationContext context, Runnable action) {
+        super(context);
+
+        this.action = action;
+    }
+
+    /**
+     * The handler of the event, called each time the event occurs. Subclasses
+     * which do not pass a handler to the constructor override this.
+     */
+    @Override
+    public void run() {
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    /**
+     * Events cannot wait for simulation time to pass; schedule the event
+     * again instead.
+     *
+     * @throws SimulationException always.
+     */
+    @Override
+    protected void hold(double t) throws SimulationException {
+        throw new SimulationException("Hold cannot be applied to an event.");
+    }
+
+    /**
+     * 事件没有自己的线程，处理函数返回之后调度器继续调度，因此不需要挂起
+     */
+    @Override
+    protected void suspendProcess() {
+    }
+
+    /**
+     * 事件没有自己的线程，由调度器通过 fire 执行
+     */
+    @Override
+    protected void resumeProcess() {
+    }
+
+    /**
+     * 由调度器在事件到达队首时调用
+     * 先把事件切换为 passive，处理函数中可以直接再次激活它；
+     * 处理函数抛出异常时仿真以该异常停止，调度器不再执行后面的事件，异常由 mainSuspend 抛给主线程。
+     */
+    void fire() {
+        deactivate();
+
+        try {
+            run();
+        } catch (RuntimeException e) {
+            Simulation.stop(context, e);
+        }
+    }
+}
@@ -33,16 +33,18 @@ package org.javasim;
 
 import java.util.NoSuchElementException;
 
+import org.javasim.internal.EventNode;
+import org.javasim.internal.ProcessExecutor;
+import org.javasim.internal.QueueHandles;
 import org.javasim.internal.SimulationProcessList;
-import org.javasim.internal.SimulationProcessQueue;
 
-public class SimulationProcess extends Thread {
+public class SimulationProcess implements Runnable {
     public static final int NEVER = -1;
 
     /**
-     * 仿真系统中的非 terminal 线程 （类变量）
+     * 进程所属的仿真上下文
      */
-    static SimulationProcessQueue allProcesses = new SimulationProcessQueue();
+    final SimulationContext context;
     /**
      * 进程唤醒时间
      */
@@ -60,28 +62,59 @@ public class SimulationProcess extends Thread {
      */
     private boolean started;
     /**
-     * 互斥锁
+     * 进程的执行单元，第一次被恢复时才由 ProcessExecutor 分配
      */
-    private Object mutex = new Object();
+    private ProcessExecutor.Execution execution;
     /**
-     * 线程调度的信号量，1 表示可以挂起， 0 表示等待唤醒
+     * 进程在事件队列中的节点，由事件队列维护
      */
-    private int count = 1;
-
-    private static Thread mainThread = null;
+    private EventNode queueNode;
     /**
-     * 当前激活的线程 （类的属性）
+     * 进程在不使用节点的事件队列中的编号，由事件队列维护
      */
-    static SimulationProcess Current = null;
+    private int queueSlot = -1;
+
+    static {
+        // 事件队列通过 QueueHandles 读写节点与编号，它们不作为公开方法暴露给应用
+        QueueHandles.install(new QueueHandles() {
+            @Override
+            protected EventNode getNode(SimulationProcess process) {
+                return process.queueNode;
+            }
+
+            @Override
+            protected void setNode(SimulationProcess process, EventNode node) {
+                process.queueNode = node;
+            }
+
+            @Override
+            protected int getSlot(SimulationProcess process) {
+                return process.queueSlot;
+            }
+
+            @Override
+            protected void setSlot(SimulationProcess process, int slot) {
+                process.queueSlot = slot;
+            }
+        });
+    }
 
 
     protected SimulationProcess() {
+        this(SimulationContext.current());
+    }
+
+    /**
+     * 在指定的上下文中创建进程
+     */
+    SimulationProcess(SimulationContext context) {
+        this.context = context;
         wakeuptime = SimulationProcess.NEVER;
         terminated = false;
         passivated = true;
         started = false;
 
-        SimulationProcess.allProcesses.insert(this);
+        context.allProcesses.insert(this);
     }
 
     public void finalize() {
@@ -92,12 +125,12 @@ public class SimulationProcess extends Thread {
 
             if (!idle()) {
                 // remove from scheduler queue
-                Scheduler.unschedule(this);
+                Scheduler.unschedule(context, this);
             }
 
-            if (this == SimulationProcess.Current) {
+            if (this == context.current) {
                 try {
-                    Scheduler.schedule();
+                    Scheduler.schedule(context);
                 } catch (SimulationException e) {
                 }
             }
@@ -105,13 +138,21 @@ public class SimulationProcess extends Thread {
         }
     }
 
+    /**
+     * 进程体，子类在这里描述进程的行为
+     * The actions of the process. Subclasses override this; it is executed
+     * by the process executor when the process first becomes active.
+     */
+    public void run() {
+    }
+
     /**
      * 获取当前的仿真时间
      *
      * @return the current simulation time.
      */
     public final double time() {
-        return SimulationProcess.currentTime();
+        return Scheduler.getSimulationTime(context);
     }
 
     /**
@@ -124,7 +165,7 @@ public class SimulationProcess extends Thread {
     public synchronized SimulationProcess nextEv() throws SimulationException, NoSuchElementException {
         if (!idle()) {
             // 该进程仍在等待队列中，没被唤醒
-            return Scheduler.getQueue().getNext(this);
+            return Scheduler.getQueue(context).getNext(this);
         } else {
             // 该进程已经被唤醒，空闲状态
             throw new SimulationException("SimulationProcess not on run queue.");
@@ -157,7 +198,7 @@ public class SimulationProcess extends Thread {
 
         passivated = false;
 
-        if (Scheduler.getQueue().insertBefore(this, p)) {
+        if (Scheduler.getQueue(context).insertBefore(this, p)) {
             wakeuptime = p.wakeuptime;
         } else {
             throw new SimulationException("'before' process is not scheduled.");
@@ -185,7 +226,7 @@ public class SimulationProcess extends Thread {
 
         passivated = false;
 
-        if (Scheduler.getQueue().insertAfter(this, p)) {
+        if (Scheduler.getQueue(context).insertAfter(this, p)) {
             wakeuptime = p.wakeuptime;
         } else {
             throw new SimulationException("'after' process is not scheduled.");
@@ -211,13 +252,13 @@ public class SimulationProcess extends Thread {
             return;
         }
 
-        if (AtTime < SimulationProcess.currentTime()) {
+        if (AtTime < time()) {
             throw new SimulationException("Invalid time " + AtTime);
         }
 
         passivated = false;
         wakeuptime = AtTime;
-        Scheduler.getQueue().insert(this, prior);
+        Scheduler.getQueue(context).insert(this, prior);
     }
 
     /**
@@ -258,8 +299,8 @@ public class SimulationProcess extends Thread {
         }
 
         passivated = false;
-        wakeuptime = Scheduler.getSimulationTime() + Delay;
-        Scheduler.getQueue().insert(this, prior);
+        wakeuptime = Scheduler.getSimulationTime(context) + Delay;
+        Scheduler.getQueue(context).insert(this, prior);
     }
 
     /**
@@ -290,8 +331,8 @@ public class SimulationProcess extends Thread {
         }
 
         passivated = false;
-        wakeuptime = currentTime();
-        Scheduler.getQueue().insert(this, true);
+        wakeuptime = time();
+        Scheduler.getQueue(context).insert(this, true);
     }
 
     /**
@@ -308,12 +349,12 @@ public class SimulationProcess extends Thread {
         if (!idle()) {
             // 若进程正在运行，或还在等待队列中
             // 则将该进程从队列中移除
-            Scheduler.unschedule(this);
+            Scheduler.unschedule(context, this);
         }
 
         activateBefore(p);
 
-        if (SimulationProcess.Current == this) {
+        if (context.current == this) {
             suspendProcess();
         }
     }
@@ -330,12 +371,12 @@ public class SimulationProcess extends Thread {
     public void reactivateAfter(SimulationProcess p)
             throws SimulationException, RestartException {
         if (!idle()) {
-            Scheduler.unschedule(this);
+            Scheduler.unschedule(context, this);
         }
 
         activateAfter(p);
 
-        if (SimulationProcess.Current == this) {
+        if (context.current == this) {
             suspendProcess();
         }
     }
@@ -355,13 +396,17 @@ public class SimulationProcess extends Thread {
 
     public void reactivateAt(double AtTime, boolean prior)
             throws SimulationException, RestartException {
+        if (reschedule(AtTime, prior)) {
+            return;
+        }
+
         if (!idle()) {
-            Scheduler.unschedule(this);
+            Scheduler.unschedule(context, this);
         }
 
         activateAt(AtTime, prior);
 
-        if (SimulationProcess.Current == this) {
+        if (context.current == this) {
             suspendProcess();
         }
     }
@@ -393,13 +438,17 @@ public class SimulationProcess extends Thread {
      * @throws RestartException    thrown if the simulation is restarted.
      */
     public void reactivateDelay(double Delay, boolean prior) throws SimulationException, RestartException {
+        if (reschedule(Scheduler.getSimulationTime(context) + Delay, prior)) {
+            return;
+        }
+
         if (!idle()) {
-            Scheduler.unschedule(this);
+            Scheduler.unschedule(context, this);
         }
 
         activateDelay(Delay, prior);
 
-        if (SimulationProcess.Current == this) {
+        if (context.current == this) {
             suspendProcess();
         }
     }
@@ -425,17 +474,46 @@ public class SimulationProcess extends Thread {
      * @throws RestartException    thrown if the simulation is restarted.
      */
     public void reactivate() throws SimulationException, RestartException {
+        if (reschedule(time(), true)) {
+            return;
+        }
+
         if (!idle()) {
-            Scheduler.unschedule(this);
+            Scheduler.unschedule(context, this);
         }
 
         activate();
 
-        if (SimulationProcess.Current == this) {
+        if (context.current == this) {
             suspendProcess();
         }
     }
 
+    /**
+     * 进程仍在调度队列中时，直接把它移动到新的唤醒时间，避免先移除再插入
+     * 其余情况（正在运行、空闲、已结束或者时间无效）返回 false，由调用者按原来的方式处理
+     *
+     * @param time  the new wakeup time.
+     * @param prior whether to run before other processes with the same time.
+     * @return whether or not the process was moved.
+     */
+    private boolean reschedule(double time, boolean prior) {
+        if (terminated || this == context.current || idle() || time < time()) {
+            return false;
+        }
+
+        double previous = wakeuptime;
+        wakeuptime = time;
+
+        if (Scheduler.reschedule(context, this, prior)) {
+            passivated = false;
+            return true;
+        }
+
+        wakeuptime = previous;
+        return false;
+    }
+
     /**
      * Cancels next burst of activity, process becomes idle.
      *
@@ -449,13 +527,13 @@ public class SimulationProcess extends Thread {
 
         if (!idle()) {
             // process is running or on queue to be run
-            if (this == SimulationProcess.Current) {
+            if (this == context.current) {
                 // currently active, so simply suspend
                 wakeuptime = SimulationProcess.NEVER;
                 passivated = true;
                 suspendProcess();
             } else {
-                Scheduler.unschedule(this); // remove from queue
+                Scheduler.unschedule(context, this); // remove from queue
             }
         }
     }
@@ -468,17 +546,17 @@ public class SimulationProcess extends Thread {
             terminated = passivated = true;
             wakeuptime = SimulationProcess.NEVER;
 
-            if ((this != SimulationProcess.Current) && (!idle())) {
-                Scheduler.unschedule(this);
+            if ((this != context.current) && (!idle())) {
+                Scheduler.unschedule(context, this);
             }
 
             try {
                 // 调度器继续下一个事件的调度
-                Scheduler.schedule();
+                Scheduler.schedule(context);
             } catch (SimulationException e) {
             }
 
-            SimulationProcess.allProcesses.remove(this);
+            context.allProcesses.remove(this);
         }
     }
 
@@ -490,7 +568,7 @@ public class SimulationProcess extends Thread {
      * @return whether or not this process is idle.
      */
     public synchronized boolean idle() {
-        if (wakeuptime >= SimulationProcess.currentTime()) {
+        if (wakeuptime >= time()) {
             return false;
         } else {
             return true;
@@ -523,11 +601,13 @@ public class SimulationProcess extends Thread {
      * @throws SimulationException thrown if there's an error.
      */
     public static SimulationProcess current() throws SimulationException {
-        if (SimulationProcess.Current == null) {
+        SimulationProcess current = SimulationContext.current().current;
+
+        if (current == null) {
             throw new SimulationException("Current not set.");
         }
 
-        return SimulationProcess.Current;
+        return current;
     }
 
     /**
@@ -536,42 +616,38 @@ public class SimulationProcess extends Thread {
      * @return the current simulation time.
      */
     public static double currentTime() {
-        return Scheduler.getSimulationTime();
+        return Scheduler.getSimulationTime(SimulationContext.current());
     }
 
     /**
      * 用于挂起主线程
-     * Suspend the main thread.
+     * Suspend the main thread until mainResume is called. If mainResume has
+     * already been called this returns immediately.
+     *
+     * @throws IllegalStateException if the simulation was stopped because an
+     *                               event handler failed; the cause is the
+     *                               exception thrown by the handler.
      */
     public static void mainSuspend() {
-        SimulationProcess.mainThread = Thread.currentThread();
+        SimulationContext context = SimulationContext.current();
 
-        synchronized (SimulationProcess.mainThread) {
-            try {
-                SimulationProcess.mainThread.wait();
-            } catch (final Exception ex) {
-                ex.printStackTrace();
-            }
+        context.mainHandoff.acquire();
+
+        Throwable failure = context.failure;
+
+        if (failure != null) {
+            throw new IllegalStateException("Simulation stopped: " + failure, failure);
         }
     }
 
     /**
      * 恢复主线程
+     * 使用信号量而不是 wait/notify，在主线程挂起之前调用也不会丢失
      * Resume the main thread.
      */
 
     public static void mainResume() throws SimulationException {
-        if (SimulationProcess.mainThread == null) {
-            throw new SimulationException("No main thread");
-        }
-
-        synchronized (SimulationProcess.mainThread) {
-            try {
-                SimulationProcess.mainThread.notify();
-            } catch (final Exception ex) {
-                ex.printStackTrace();
-            }
-        }
+        SimulationContext.current().mainHandoff.release();
     }
 
 
@@ -582,7 +658,7 @@ public class SimulationProcess extends Thread {
      */
     protected void setEvtime(double time) throws SimulationException {
         if (!idle()) {
-            if (time >= SimulationProcess.currentTime()) {
+            if (time >= time()) {
                 wakeuptime = time;
             } else {
                 throw new SimulationException("Time " + time + " invalid.");
@@ -596,7 +672,7 @@ public class SimulationProcess extends Thread {
      * Hold the current process for the specified amount of simulation time.
      */
     protected void hold(double t) throws SimulationException, RestartException {
-        if ((this == SimulationProcess.Current) || (SimulationProcess.Current == null)) {
+        if ((this == context.current) || (context.current == null)) {
             wakeuptime = SimulationProcess.NEVER;
             activateDelay(t, false);
             suspendProcess();
@@ -610,7 +686,7 @@ public class SimulationProcess extends Thread {
      * @throws RestartException
      */
     protected void passivate() throws RestartException {
-        if (!passivated && (this == SimulationProcess.Current)) {
+        if (!passivated && (this == context.current)) {
             cancel();
         }
     }
@@ -622,24 +698,14 @@ public class SimulationProcess extends Thread {
      */
     protected void suspendProcess() throws RestartException {
         try {
-            if (Scheduler.schedule()) {
-                synchronized (mutex) {
-                    count--;
-
-                    if (count == 0) {
-                        try {
-                            mutex.wait();
-                        } catch (Exception e) {
-                        }
-                    }
-
-                }
+            if (Scheduler.schedule(context)) {
+                execution.suspend();
             }
         } catch (SimulationException e) {
         }
 
-        // 判断线程是否正被重置
-        if (Simulation.isReset()) {
+        // 判断线程是否正被重置，仿真因异常停止之后只能由重置唤醒
+        if (Simulation.isReset(context) || context.failure != null) {
             throw new RestartException();
         }
     }
@@ -656,28 +722,41 @@ public class SimulationProcess extends Thread {
          * To compensate for the initial call to Resume by the application.
          */
 
-        if (SimulationProcess.Current == null) {
-            SimulationProcess.Current = this;
-            wakeuptime = SimulationProcess.currentTime();
+        if (context.current == null) {
+            context.current = this;
+            wakeuptime = time();
         }
 
         if (!terminated) {
             if (!started) {
                 started = true;
-                start();
+                execution = Scheduler.getExecutor(context).create(context.bind(this), getClass().getName());
+                execution.start();
             } else {
-                synchronized (mutex) {
-                    count++;
-
-                    if (count >= 0) {
-                        mutex.notify();
-                    }
-                }
+                execution.resume();
             }
         }
     }
 
 
+    /**
+     * 进程是否已经开始执行
+     *
+     * @return whether or not this process has been given its thread of control.
+     */
+    boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * 进程体是否已经执行结束
+     *
+     * @return whether or not the body of this process has finished.
+     */
+    boolean isFinished() {
+        return execution != null && execution.isFinished();
+    }
+
     /**
      * 切换线程到 空闲 状态
      * passive: the process is not on the scheduler queue. Unless another process brings it back on to the queue it will not execute any further actions.
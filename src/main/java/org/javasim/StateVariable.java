@@ -0,0 +1,53 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 三阶段方法中条件活动所依赖的模型状态
+ * Part of the state of a three-phase model which the conditions of
+ * activities depend on. The model calls changed() whenever it modifies the
+ * state, so that only the activities which depend on it are tested again.
+ */
+
+public class StateVariable {
+    /**
+     * 依赖该状态的条件活动
+     */
+    private final List<Activity> dependents = new ArrayList<Activity>();
+
+    /**
+     * Record that the state has changed.
+     */
+    public void changed() {
+        for (int i = 0; i < dependents.size(); i++) {
+            ThreePhase.markDirty(dependents.get(i));
+        }
+    }
+
+    void addDependent(Activity activity) {
+        if (!dependents.contains(activity)) {
+            dependents.add(activity);
+        }
+    }
+}
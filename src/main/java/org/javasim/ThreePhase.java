@@ -0,0 +1,261 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim;
+
+import java.util.List;
+
+/**
+ * 三阶段方法 (bound events / conditional activities) 的执行器
+ * The three-phase executive. The A and B phases are performed by the
+ * scheduler as usual: simulation time advances to the next scheduled event,
+ * and all of the events and processes scheduled for that time are executed;
+ * bound events are normally SimulationEvents. The C phase is performed by
+ * the scheduler just before simulation time advances again: the registered
+ * activities whose state has changed are tested, in the order in which they
+ * were added, and those which can start are started. Whenever an activity
+ * starts the scan begins again from the first activity, until none can
+ * start. Activities which have declared no dependencies are tested again
+ * after every start, so an activity may start several times at the same
+ * simulation time. Conditions therefore never have to be polled with hold.
+ *
+ * Activities belong to the simulation context they were added to, and are
+ * removed when that simulation is reset.
+ *
+ * 与事件一样，C 阶段在交出控制权的线程上直接执行，不需要额外的线程。
+ */
+
+public final class ThreePhase {
+
+    private ThreePhase() {
+    }
+
+    /**
+     * Add an activity to the current simulation context. Activities added
+     * first have the highest priority.
+     *
+     * @param activity the activity.
+     */
+    public static void add(Activity activity) {
+        SimulationContext context = SimulationContext.current();
+
+        synchronized (context.activities) {
+            if (activity.context != null) {
+                return;
+            }
+
+            if (context.phase == null) {
+                context.phase = new SimulationEvent(context, () -> scan(context));
+            }
+
+            context.activities.add(activity);
+            activity.context = context;
+            activity.dirty = false;
+            if (!activity.dependent) {
+                context.independentActivities++;
+            }
+            markDirty(activity);
+        }
+    }
+
+    /**
+     * Remove an activity.
+     *
+     * @param activity the activity.
+     */
+    public static void remove(Activity activity) {
+        SimulationContext context = activity.context;
+
+        if (context == null) {
+            return;
+        }
+
+        synchronized (context.activities) {
+            if (!context.activities.remove(activity)) {
+                return;
+            }
+            activity.context = null;
+            if (!activity.dependent) {
+                context.independentActivities--;
+            }
+
+            if (activity.dirty) {
+                activity.dirty = false;
+                context.pendingActivities--;
+            }
+        }
+    }
+
+    /**
+     * 仿真重置时移除所有活动
+     */
+    static void reset(SimulationContext context) {
+        synchronized (context.activities) {
+            for (int i = 0; i < context.activities.size(); i++) {
+                context.activities.get(i).context = null;
+                context.activities.get(i).dirty = false;
+            }
+            context.activities.clear();
+            context.pendingActivities = 0;
+            context.independentActivities = 0;
+            context.eventsOccurred = false;
+        }
+    }
+
+    /**
+     * 是否有活动需要在仿真时间推进之前重新测试：状态发生变化的活动，
+     * 以及上一次 C 阶段之后执行过事件时没有声明依赖的活动
+     */
+    static boolean isPending(SimulationContext context) {
+        synchronized (context.activities) {
+            return context.pendingActivities > 0 || (context.eventsOccurred && context.independentActivities > 0);
+        }
+    }
+
+    /**
+     * 调度器从队列中取出了一个事件或进程 (B 阶段)
+     */
+    static void eventOccurred(SimulationContext context) {
+        synchronized (context.activities) {
+            context.eventsOccurred = true;
+        }
+    }
+
+    /**
+     * 已注册的活动声明了第一个依赖，之后只在依赖的状态变量变化时测试
+     */
+    static void becameDependent(Activity activity) {
+        SimulationContext context = activity.context;
+
+        if (context == null) {
+            return;
+        }
+
+        synchronized (context.activities) {
+            if (activity.context == context) {
+                context.independentActivities--;
+            }
+        }
+    }
+
+    /**
+     * 未注册的活动在注册时才计入
+     */
+    static void markDirty(Activity activity) {
+        SimulationContext context = activity.context;
+
+        if (context == null) {
+            return;
+        }
+
+        synchronized (context.activities) {
+            if (!activity.dirty && activity.context == context) {
+                activity.dirty = true;
+                context.pendingActivities++;
+            }
+        }
+    }
+
+    /**
+     * C 阶段：测试状态发生变化的活动，能开始的就开始，直到没有活动能开始
+     */
+    private static void scan(SimulationContext context) {
+        List<Activity> activities = context.activities;
+
+        // 没有声明依赖的活动在 B 阶段之后测试，C 阶段内部每开始一个活动都再测试一次
+        synchronized (activities) {
+            if (context.eventsOccurred) {
+                context.eventsOccurred = false;
+                markIndependent(context);
+            }
+        }
+
+        try {
+            doScan(context);
+        } finally {
+            // 扫描结束后不再有需要测试的独立活动，否则 isPending 会一直为 true 而仿真时间无法推进
+            synchronized (activities) {
+                for (int i = 0; i < activities.size(); i++) {
+                    Activity activity = activities.get(i);
+
+                    if (!activity.dependent && activity.dirty) {
+                        activity.dirty = false;
+                        context.pendingActivities--;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 从优先级最高的活动开始测试，每开始一个活动就重新扫描
+     */
+    private static void doScan(SimulationContext context) {
+        List<Activity> activities = context.activities;
+        boolean started;
+
+        do {
+            started = false;
+
+            for (int i = 0; i < activities.size() && !started; i++) {
+                Activity activity = activities.get(i);
+
+                synchronized (activities) {
+                    if (!activity.dirty) {
+                        continue;
+                    }
+
+                    activity.dirty = false;
+                    context.pendingActivities--;
+                }
+
+                if (activity.canStart()) {
+                    try {
+                        activity.start();
+                    } catch (SimulationException e) {
+                        // 与事件处理函数失败一样以该异常停止仿真，不再测试其余的活动
+                        Simulation.stop(context, e);
+                        return;
+                    } catch (RestartException e) {
+                        return;
+                    }
+
+                    // 开始的活动和没有声明依赖的活动都可能可以再次开始，从优先级最高的活动重新扫描
+                    markDirty(activity);
+                    synchronized (activities) {
+                        markIndependent(context);
+                    }
+                    started = true;
+                }
+            }
+        } while (started);
+    }
+
+    /**
+     * 标记所有没有声明依赖的活动需要重新测试，调用者持有 activities 的锁
+     */
+    private static void markIndependent(SimulationContext context) {
+        for (int i = 0; i < context.activities.size(); i++) {
+            if (!context.activities.get(i).dependent) {
+                markDirty(context.activities.get(i));
+            }
+        }
+    }
+}
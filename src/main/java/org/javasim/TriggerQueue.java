@@ -24,7 +24,9 @@ import java.util.LinkedList;
 import java.util.NoSuchElementException;
 
 /**
- * A TriggerQueue is used to hold simulation process instances.
+ * A TriggerQueue is used to hold simulation process instances: entities
+ * waiting with waitForTrigger and resumable processes waiting with
+ * waitForTriggerThen.
  */
  
 public class TriggerQueue
@@ -35,7 +37,7 @@ public class TriggerQueue
      
     public TriggerQueue()
     {
-        head = new LinkedList<SimulationEntity>();
+        head = new LinkedList<SimulationProcess>();
     }
 
     /**
@@ -78,14 +80,32 @@ public class TriggerQueue
         if (head.size() == 0)
             throw new NoSuchElementException();
 
-        SimulationEntity removed = this.remove();
+        SimulationProcess removed;
 
-        if (setTrigger)
-            removed.trigger();
+        // resumable processes wait on the same queue, in the same order
+
+        if (head.getFirst() instanceof ResumableProcess)
+        {
+            ResumableProcess resumable = (ResumableProcess) head.removeFirst();
+
+            if (setTrigger)
+                resumable.trigger();
+
+            removed = resumable;
+        }
+        else
+        {
+            SimulationEntity entity = this.remove();
+
+            if (setTrigger)
+                entity.trigger();
+
+            removed = entity;
+        }
 
         try
         {
-            removed.reactivateAt(SimulationProcess.currentTime());
+            removed.reactivateAt(removed.time());
         }
         catch (RestartException e)
         {
@@ -133,11 +153,19 @@ public class TriggerQueue
         head.add(toAdd);
     }
 
+    synchronized void insert (ResumableProcess toAdd) throws SimulationException
+    {
+        if (toAdd.isWaiting())
+            throw new SimulationException("Process already waiting on event.");
+
+        head.add(toAdd);
+    }
+
     protected synchronized SimulationEntity remove ()
             throws NoSuchElementException
     {
-        return head.removeFirst();
+        return (SimulationEntity) head.removeFirst();
     }
 
-    private LinkedList<SimulationEntity> head;
+    private LinkedList<SimulationProcess> head;
 }
@@ -0,0 +1,329 @@
+package org.javasim.internal;
+
+import org.javasim.SimulationProcess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * @description: 以 (事件时间, 序号) 为排序键的事件队列的公共实现
+ * 普通插入分配递增的序号，prior 插入分配递减的序号，这样同时间的进程先进先出，
+ * 而 prior 进程排在所有已存在的同时间进程之前，与 SimulationProcessQueue 的顺序完全一致。
+ * insertBefore / insertAfter 在目标与其同时间的相邻节点之间取一个序号，
+ * 没有空隙时重新编号。进程持有指向自己节点的句柄，定位与移除进程不需要查找整个队列。
+ * 移出队列的节点会被重用，稳定状态下插入与弹出不分配内存。
+ * 子类只需要实现节点的存取与导航。
+ * @author: zhanyeye
+ * @create: 2026-10-18 13:45
+ **/
+abstract class AbstractEventQueue implements EventQueue {
+
+    /**
+     * 相邻序号之间的间隔，为 insertBefore / insertAfter 预留插入空间
+     */
+    static final long GAP = 1L << 20;
+
+    /**
+     * 已分配的最小序号，prior 插入从这里向下分配
+     */
+    private long firstSeq = 0;
+    /**
+     * 已分配的最大序号，普通插入从这里向上分配
+     */
+    private long lastSeq = 0;
+    /**
+     * 已经移出队列、可以重用的节点，通过 sibling 串起来
+     */
+    private EventNode free;
+    /**
+     * 互斥锁对象
+     */
+    protected final Object mutex = new Object();
+
+    /**
+     * 向事件队列插入线程，不考虑优先级
+     * @param process
+     */
+    public void insert(SimulationProcess process) {
+        insert(process, false);
+    }
+
+    /**
+     * 向事件队列插入线程，考虑优先级
+     * @param toInsert 需要插入的线程
+     * @param prior 是否排在同时间的进程之前
+     */
+    public void insert(SimulationProcess toInsert, boolean prior) {
+        synchronized (mutex) {
+            if (firstSeq < Long.MIN_VALUE / 2 || lastSeq > Long.MAX_VALUE / 2) {
+                renumber();
+            }
+            long seq = prior ? (firstSeq -= GAP) : (lastSeq += GAP);
+            add(attach(toInsert, toInsert.evtime(), seq));
+        }
+    }
+
+    /**
+     * 插入到指定进程之前
+     * @param toInsert 需要插入的线程
+     * @param target 目标线程
+     * @return 如果插入的位置存在，返回true
+     */
+    public boolean insertBefore(SimulationProcess toInsert, SimulationProcess target) {
+        synchronized (mutex) {
+            EventNode node = find(target);
+            if (node == null) {
+                return false;
+            }
+            // 没有同时间的前驱时，下界是下一个 prior 插入将获得的序号
+            EventNode pred = previousAtSameTime(node);
+            long lo = pred != null ? pred.seq : firstSeq - GAP;
+            if (node.seq - lo < 2) {
+                renumber();
+                pred = previousAtSameTime(node);
+                lo = pred != null ? pred.seq : firstSeq - GAP;
+            }
+            add(attach(toInsert, node.time, lo + (node.seq - lo) / 2));
+            return true;
+        }
+    }
+
+    /**
+     * 插入到指定进程之后
+     * @param toInsert 需要插入的线程
+     * @param target 目标线程
+     * @return 如果插入的位置存在，返回true
+     */
+    public boolean insertAfter(SimulationProcess toInsert, SimulationProcess target) {
+        synchronized (mutex) {
+            EventNode node = find(target);
+            if (node == null) {
+                return false;
+            }
+            // 没有同时间的后继时，上界是下一个普通插入将获得的序号
+            EventNode succ = nextAtSameTime(node);
+            long hi = succ != null ? succ.seq : lastSeq + GAP;
+            if (hi - node.seq < 2) {
+                renumber();
+                succ = nextAtSameTime(node);
+                hi = succ != null ? succ.seq : lastSeq + GAP;
+            }
+            add(attach(toInsert, node.time, node.seq + (hi - node.seq) / 2));
+            return true;
+        }
+    }
+
+    /**
+     * 移除事件队列中的某一个线程，并返回该线程
+     * @param target 需要删除的线程
+     * @return 被删除的线程
+     * @throws NoSuchElementException 如果事件队列中没有要删除的目标
+     */
+    public SimulationProcess remove(SimulationProcess target) throws NoSuchElementException {
+        synchronized (mutex) {
+            EventNode node = find(target);
+            if (node == null) {
+                throw new NoSuchElementException();
+            }
+            unlink(node);
+            return detach(node);
+        }
+    }
+
+    /**
+     * 把已经在队列中的线程按它新的事件时间移动到新的位置
+     * @param process 需要移动的线程，事件时间已经更新
+     * @param prior 是否排在同时间的进程之前
+     * @return 线程在队列中并已移动时返回 true
+     */
+    public boolean reschedule(SimulationProcess process, boolean prior) {
+        synchronized (mutex) {
+            EventNode node = find(process);
+            if (node == null) {
+                return false;
+            }
+            if (firstSeq < Long.MIN_VALUE / 2 || lastSeq > Long.MAX_VALUE / 2) {
+                renumber();
+            }
+            move(node, process.evtime(), prior ? (firstSeq -= GAP) : (lastSeq += GAP));
+            return true;
+        }
+    }
+
+    /**
+     * 弹出队首线程
+     * @return 被弹出的元素
+     * @throws NoSuchElementException 队列为空
+     */
+    public SimulationProcess remove() throws NoSuchElementException {
+        synchronized (mutex) {
+            EventNode node = first();
+            if (node == null) {
+                throw new NoSuchElementException();
+            }
+            unlink(node);
+            return detach(node);
+        }
+    }
+
+    /**
+     * 查看队首线程
+     * @return 队首线程
+     */
+    public SimulationProcess peek() {
+        synchronized (mutex) {
+            EventNode node = first();
+            return node == null ? null : node.process;
+        }
+    }
+
+    /**
+     * 获得current线程的后继线程
+     * @param current 基准线程
+     * @return current线程的后继
+     * @throws NoSuchElementException 队列或者current为空
+     */
+    public SimulationProcess getNext(SimulationProcess current) throws NoSuchElementException {
+        synchronized (mutex) {
+            EventNode head = first();
+            if (head == null || current == null) {
+                throw new NoSuchElementException();
+            }
+            EventNode node = find(current);
+            if (node == null) {
+                // 队列中没有current,意味着current处于活动状态
+                return head.process;
+            }
+            EventNode next = next(node);
+            return next == null ? null : next.process;
+        }
+    }
+
+    /**
+     * 打印事件发生的时间
+     */
+    public void print() {
+        synchronized (mutex) {
+            for (EventNode node = first(); node != null; node = next(node)) {
+                System.out.println(node.process.evtime());
+            }
+        }
+    }
+
+    /**
+     * 按当前顺序重新分配序号，恢复相邻序号之间的间隔
+     */
+    private void renumber() {
+        List<EventNode> nodes = new ArrayList<>();
+        for (EventNode node = first(); node != null; node = first()) {
+            unlink(node);
+            nodes.add(node);
+        }
+        long seq = 0;
+        for (EventNode node : nodes) {
+            node.seq = (seq += GAP);
+            add(node);
+        }
+        firstSeq = 0;
+        lastSeq = seq;
+    }
+
+    /**
+     * 为进程取一个属于本队列的节点（优先重用空闲节点），并挂到进程的句柄上
+     */
+    private EventNode attach(SimulationProcess process, double time, long seq) {
+        EventNode node = free;
+        if (node == null) {
+            node = new EventNode(this, process, time, seq);
+        } else {
+            free = node.sibling;
+            node.process = process;
+            node.time = time;
+            node.seq = seq;
+        }
+        node.sibling = QueueHandles.node(process);
+        QueueHandles.node(process, node);
+        return node;
+    }
+
+    /**
+     * 把已经移出队列的节点从进程的句柄上摘下，放回空闲节点中
+     * @return 节点原来对应的进程
+     */
+    private SimulationProcess detach(EventNode node) {
+        SimulationProcess process = node.process;
+        EventNode n = QueueHandles.node(process);
+        if (n == node) {
+            QueueHandles.node(process, node.sibling);
+        } else {
+            while (n.sibling != node) {
+                n = n.sibling;
+            }
+            n.sibling = node.sibling;
+        }
+        node.process = null;
+        node.owner = null;
+        node.next = node.prev = null;
+        node.sibling = free;
+        free = node;
+        return process;
+    }
+
+    /**
+     * 通过进程的句柄定位节点，进程一般只在一个队列中，复杂度为 O(1)
+     * @return 进程在本队列中的节点，不在队列中时返回 null
+     */
+    private EventNode find(SimulationProcess process) {
+        if (process == null) {
+            return null;
+        }
+        EventNode n = QueueHandles.node(process);
+        while (n != null && n.queue != this) {
+            n = n.sibling;
+        }
+        return n;
+    }
+
+    private EventNode nextAtSameTime(EventNode node) {
+        EventNode next = next(node);
+        return next != null && next.time == node.time ? next : null;
+    }
+
+    /**
+     * 加入一个已经分配好排序键的节点
+     */
+    abstract void add(EventNode node);
+
+    /**
+     * 修改在队列中的节点的排序键，默认先移除再加入，子类可以原地调整
+     */
+    void move(EventNode node, double time, long seq) {
+        unlink(node);
+        node.time = time;
+        node.seq = seq;
+        add(node);
+    }
+
+    /**
+     * 移除一个在队列中的节点
+     */
+    abstract void unlink(EventNode node);
+
+    /**
+     * @return 队首节点，队列为空时返回 null
+     */
+    abstract EventNode first();
+
+
+    /**
+     * @return 排在 node 之后的节点，没有时返回 null
+     */
+    abstract EventNode next(EventNode node);
+
+    /**
+     * @return 排在 node 之前且事件时间相同的节点，没有时返回 null
+     */
+    abstract EventNode previousAtSameTime(EventNode node);
+
+}
@@ -0,0 +1,230 @@
+package org.javasim.internal;
+
+import org.javasim.SimulationProcess;
+
+import java.util.NoSuchElementException;
+
+/**
+ * @description: 根据队列长度与事件间隔自动切换实现的事件队列
+ * 队列很短时使用有序数组，较长时使用二叉堆，很长且弹出的事件大多不在同一时刻时使用梯形队列。
+ * 梯形队列对事件间隔分布的变化不敏感，在大队列上比日历队列更稳定；
+ * 而大量事件同时发生时桶式结构只能整体排序同时间的事件，此时保留堆。
+ * 每隔一段操作检查一次是否需要切换，切换时按顺序把所有进程迁移到新的结构中，
+ * 迁移保持原有的顺序，并且之后的 prior 插入仍然排在所有同时间进程之前，因此可观察的顺序与 SimulationProcessQueue 一致。
+ * 上下阈值之间留有余量，避免在阈值附近来回切换。
+ * @author: zhanyeye
+ * @create: 2026-10-18 20:55
+ **/
+public class AdaptiveEventQueue implements EventQueue {
+
+    /**
+     * 每隔多少次操作检查一次是否需要切换
+     */
+    private static final int CHECK_INTERVAL = 256;
+    /**
+     * 同时发生的事件比例不超过该值时才使用桶式结构
+     */
+    private static final double SIMULTANEOUS_LIMIT = 0.5;
+    /**
+     * 同时发生的事件比例超过该值时从桶式结构切换回堆
+     */
+    private static final double SIMULTANEOUS_RETURN = 0.75;
+    /**
+     * 事件间隔统计的平滑系数
+     */
+    private static final double SMOOTHING = 1.0 / 1024;
+
+    /**
+     * 超过该长度时从有序数组切换到堆，低于它的四分之一时切换回来
+     */
+    private final int smallSize;
+    /**
+     * 超过该长度时可以从堆切换到梯形队列，低于它的四分之一时切换回来
+     */
+    private final int largeSize;
+    /**
+     * 当前使用的队列
+     */
+    private EventQueue delegate = new SortedArrayQueue();
+    /**
+     * 元素个数
+     */
+    private int size = 0;
+    /**
+     * 距离下一次检查的操作次数
+     */
+    private int countdown = CHECK_INTERVAL;
+    /**
+     * 上一个弹出事件的时间
+     */
+    private double lastTime = Double.NaN;
+    /**
+     * 弹出事件与上一个事件同时发生的平滑比例，初始时假设都同时发生
+     */
+    private double simultaneous = 1;
+    /**
+     * 互斥锁对象
+     */
+    private final Object mutex = new Object();
+
+    public AdaptiveEventQueue() {
+        this(64, 8192);
+    }
+
+    /**
+     * @param smallSize 超过该长度时不再使用有序数组
+     * @param largeSize 超过该长度时可以使用梯形队列
+     */
+    public AdaptiveEventQueue(int smallSize, int largeSize) {
+        if (smallSize < 4 || largeSize <= smallSize) {
+            throw new IllegalArgumentException("Invalid sizes " + smallSize + ", " + largeSize);
+        }
+        this.smallSize = smallSize;
+        this.largeSize = largeSize;
+    }
+
+    /**
+     * @return 当前使用的队列
+     */
+    public EventQueue getDelegate() {
+        synchronized (mutex) {
+            return delegate;
+        }
+    }
+
+    public void insert(SimulationProcess process) {
+        insert(process, false);
+    }
+
+    public void insert(SimulationProcess toInsert, boolean prior) {
+        synchronized (mutex) {
+            delegate.insert(toInsert, prior);
+            size++;
+            operated();
+        }
+    }
+
+    public boolean insertBefore(SimulationProcess toInsert, SimulationProcess target) {
+        synchronized (mutex) {
+            if (!delegate.insertBefore(toInsert, target)) {
+                return false;
+            }
+            size++;
+            operated();
+            return true;
+        }
+    }
+
+    public boolean insertAfter(SimulationProcess toInsert, SimulationProcess target) {
+        synchronized (mutex) {
+            if (!delegate.insertAfter(toInsert, target)) {
+                return false;
+            }
+            size++;
+            operated();
+            return true;
+        }
+    }
+
+    public boolean reschedule(SimulationProcess process, boolean prior) {
+        synchronized (mutex) {
+            return delegate.reschedule(process, prior);
+        }
+    }
+
+    public SimulationProcess remove(SimulationProcess target) throws NoSuchElementException {
+        synchronized (mutex) {
+            SimulationProcess process = delegate.remove(target);
+            size--;
+            operated();
+            return process;
+        }
+    }
+
+    public SimulationProcess remove() throws NoSuchElementException {
+        synchronized (mutex) {
+            SimulationProcess process = delegate.remove();
+            size--;
+            sample(process.evtime());
+            operated();
+            return process;
+        }
+    }
+
+    public SimulationProcess peek() {
+        synchronized (mutex) {
+            return delegate.peek();
+        }
+    }
+
+    public SimulationProcess getNext(SimulationProcess current) throws NoSuchElementException {
+        synchronized (mutex) {
+            return delegate.getNext(current);
+        }
+    }
+
+    public void print() {
+        synchronized (mutex) {
+            delegate.print();
+        }
+    }
+
+    /**
+     * 记录弹出事件与上一个弹出事件是否同时发生
+     */
+    private void sample(double time) {
+        simultaneous += ((time == lastTime ? 1 : 0) - simultaneous) * SMOOTHING;
+        lastTime = time;
+    }
+
+    /**
+     * @return 弹出事件的时间是否足够分散，适合按时间分桶
+     */
+    private boolean spreadOut() {
+        return simultaneous <= SIMULTANEOUS_LIMIT;
+    }
+
+    private void operated() {
+        if (--countdown == 0) {
+            countdown = CHECK_INTERVAL;
+            adapt();
+        }
+    }
+
+    /**
+     * 根据当前的长度与事件间隔选择合适的结构，需要时迁移
+     */
+    private void adapt() {
+        EventQueue target = null;
+        if (delegate instanceof SortedArrayQueue) {
+            if (size > smallSize) {
+                target = new SimulationProcessHeap();
+            }
+        } else if (delegate instanceof SimulationProcessHeap) {
+            if (size < smallSize / 4) {
+                target = new SortedArrayQueue();
+            } else if (size > largeSize && spreadOut()) {
+                target = new LadderQueue();
+            }
+        } else if (size < largeSize / 4 || simultaneous > SIMULTANEOUS_RETURN) {
+            target = new SimulationProcessHeap();
+        }
+        if (target != null) {
+            migrate(target);
+        }
+    }
+
+    /**
+     * 按顺序把所有进程迁移到新的队列，普通插入保持了同时间进程的先后顺序
+     */
+    private void migrate(EventQueue target) {
+        try {
+            for (;;) {
+                target.insert(delegate.remove(), false);
+            }
+        } catch (NoSuchElementException e) {
+        }
+        delegate = target;
+    }
+
+}
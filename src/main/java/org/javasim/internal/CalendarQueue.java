@@ -0,0 +1,257 @@
+package org.javasim.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @description: 日历队列 (R. Brown, "Calendar Queues: A Fast O(1) Priority Queue
+ * Implementation for the Simulation Event Set Problem", CACM 31(10), 1988)
+ * 每个桶对应长度为 width 的一天，一年共 buckets.length 天，桶内为按排序键有序的双向链表。
+ * 当事件时间增量比较稳定时，插入与弹出队首的均摊复杂度为 O(1)。
+ * 元素个数超过桶数的两倍或少于一半时，按队首事件的平均间隔重新计算天的长度并调整桶数。
+ * @author: zhanyeye
+ * @create: 2026-10-18 14:10
+ **/
+public class CalendarQueue extends AbstractEventQueue {
+
+    /**
+     * 最少的桶数
+     */
+    private static final int MIN_BUCKETS = 2;
+    /**
+     * 重新计算天的长度时采样的事件个数
+     */
+    private static final int SAMPLE_SIZE = 25;
+
+    /**
+     * 每个桶的链表头
+     */
+    private EventNode[] heads;
+    /**
+     * 每个桶的链表尾
+     */
+    private EventNode[] tails;
+    /**
+     * 一天的长度
+     */
+    private double width;
+    /**
+     * 元素个数
+     */
+    private int size;
+    /**
+     * 当前所在的天（从零时刻起的绝对编号），队列中不存在更早的事件
+     */
+    private long currentDay;
+    /**
+     * 是否允许调整桶数，重建过程中关闭
+     */
+    private boolean resizeEnabled = true;
+
+    public CalendarQueue() {
+        this(MIN_BUCKETS, 1.0);
+    }
+
+    /**
+     * @param buckets 初始桶数
+     * @param width 初始天的长度
+     */
+    public CalendarQueue(int buckets, double width) {
+        if (buckets < MIN_BUCKETS || !(width > 0)) {
+            throw new IllegalArgumentException();
+        }
+        init(buckets, width, 0);
+    }
+
+    @Override
+    void add(EventNode node) {
+        long day = day(node.time);
+        int b = bucket(day);
+        // 从链表尾部向前查找插入位置，普通插入一般位于尾部
+        EventNode after = tails[b];
+        while (after != null && after.compareTo(node) > 0) {
+            after = after.prev;
+        }
+        node.prev = after;
+        if (after == null) {
+            node.next = heads[b];
+            heads[b] = node;
+        } else {
+            node.next = after.next;
+            after.next = node;
+        }
+        if (node.next == null) {
+            tails[b] = node;
+        } else {
+            node.next.prev = node;
+        }
+        if (size == 0 || day < currentDay) {
+            currentDay = day;
+        }
+        if (++size > 2 * heads.length && resizeEnabled) {
+            resize(heads.length * 2);
+        }
+    }
+
+    @Override
+    void unlink(EventNode node) {
+        int b = bucket(day(node.time));
+        if (node.prev == null) {
+            heads[b] = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tails[b] = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.next = node.prev = null;
+        if (--size < heads.length / 2 && heads.length > MIN_BUCKETS && resizeEnabled) {
+            resize(heads.length / 2);
+        }
+    }
+
+    @Override
+    EventNode first() {
+        if (size == 0) {
+            return null;
+        }
+        long day = currentDay;
+        for (int i = 0; i < heads.length; i++, day++) {
+            EventNode head = heads[bucket(day)];
+            if (head != null && day(head.time) == day) {
+                currentDay = day;
+                return head;
+            }
+        }
+        // 一整年都没有事件，直接在所有桶的队首中查找最小者
+        EventNode min = null;
+        for (EventNode head : heads) {
+            if (head != null && (min == null || head.compareTo(min) < 0)) {
+                min = head;
+            }
+        }
+        currentDay = day(min.time);
+        return min;
+    }
+
+    @Override
+    EventNode next(EventNode node) {
+        long day = day(node.time);
+        if (node.next != null && day(node.next.time) == day) {
+            return node.next;
+        }
+        for (int i = 1; i < heads.length; i++) {
+            EventNode n = firstOfDay(day + i);
+            if (n != null) {
+                return n;
+            }
+        }
+        // 后继在一年之后，扫描所有桶
+        EventNode succ = null;
+        for (EventNode head : heads) {
+            for (EventNode n = head; n != null; n = n.next) {
+                if (n.compareTo(node) > 0) {
+                    if (succ == null || n.compareTo(succ) < 0) {
+                        succ = n;
+                    }
+                    break;
+                }
+            }
+        }
+        return succ;
+    }
+
+    /**
+     * 同时间的节点一定在同一个桶内且相邻
+     */
+    @Override
+    EventNode previousAtSameTime(EventNode node) {
+        EventNode prev = node.prev;
+        return prev != null && prev.time == node.time ? prev : null;
+    }
+
+    /**
+     * @return 属于指定那一天的第一个节点
+     */
+    private EventNode firstOfDay(long day) {
+        for (EventNode n = heads[bucket(day)]; n != null; n = n.next) {
+            long d = day(n.time);
+            if (d == day) {
+                return n;
+            }
+            if (d > day) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    private long day(double time) {
+        return (long) Math.floor(time / width);
+    }
+
+    private int bucket(long day) {
+        return (int) Math.floorMod(day, (long) heads.length);
+    }
+
+    private void init(int buckets, double width, long day) {
+        this.heads = new EventNode[buckets];
+        this.tails = new EventNode[buckets];
+        this.width = width;
+        this.currentDay = day;
+        this.size = 0;
+    }
+
+    /**
+     * 调整桶数并重新计算天的长度，然后把所有节点重新放入新的桶中
+     */
+    private void resize(int buckets) {
+        double newWidth = sampleWidth();
+        List<EventNode> nodes = new ArrayList<>(size);
+        for (EventNode head : heads) {
+            for (EventNode n = head; n != null; ) {
+                EventNode next = n.next;
+                n.next = n.prev = null;
+                nodes.add(n);
+                n = next;
+            }
+        }
+        init(buckets, newWidth, 0);
+        resizeEnabled = false;
+        for (EventNode n : nodes) {
+            add(n);
+        }
+        resizeEnabled = true;
+    }
+
+    /**
+     * 根据队首若干事件的平均间隔估算天的长度，忽略超过平均值两倍的间隔
+     * @return 新的天的长度，无法估算时保持原值
+     */
+    private double sampleWidth() {
+        int count = Math.min(size, SAMPLE_SIZE);
+        if (count < 2) {
+            return width;
+        }
+        double[] times = new double[count];
+        EventNode n = first();
+        for (int i = 0; i < count; i++, n = next(n)) {
+            times[i] = n.time;
+        }
+        double average = (times[count - 1] - times[0]) / (count - 1);
+        double total = 0;
+        int separations = 0;
+        for (int i = 1; i < count; i++) {
+            double gap = times[i] - times[i - 1];
+            if (gap <= 2 * average) {
+                total += gap;
+                separations++;
+            }
+        }
+        double result = separations == 0 ? 0 : 3 * total / separations;
+        return result > 0 ? result : width;
+    }
+
+}
@@ -0,0 +1,395 @@
+package org.javasim.internal;
+
+import org.javasim.SimulationProcess;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * @description: 以结构数组存放的二叉堆事件队列，面向等待事件数量极大的仿真
+ * 不为每个事件创建节点对象，每个事件在五个数组中各占一项：times / seqs / ids 是堆本身（8 + 8 + 4 字节），
+ * ids 中的编号通过 processes 表（一个引用，开启压缩指针时 4 字节，否则 8 字节）对应到进程，
+ * positions（4 字节）记录编号在堆中的位置，合计每个事件 28 字节（不压缩指针时 32 字节）；
+ * 数组按 1.5 倍扩容，因此实际占用最多再多一半。按字段布局估算，其它队列的一个 EventNode 约 64 字节，另加容器中的引用。
+ * 垃圾回收仍然要扫描 processes 中的引用，每个事件一个，但这些引用指向本来就存在的进程，
+ * 没有需要分配、追踪和回收的节点对象，堆中的调整只移动基本类型的值。
+ * 进程通过 QueueHandles 记录自己的编号，因此移除与定位进程不需要查找，
+ * 同一个进程同一时间只能在一个 CompactHeapQueue 中。
+ * 排序规则与 AbstractEventQueue 相同。
+ * @author: zhanyeye
+ * @create: 2026-10-18 20:10
+ **/
+public class CompactHeapQueue implements EventQueue {
+
+    private static final long GAP = AbstractEventQueue.GAP;
+
+    /**
+     * 堆中各项的事件时间，下标 0 为队首
+     */
+    private double[] times;
+    /**
+     * 堆中各项的序号
+     */
+    private long[] seqs;
+    /**
+     * 堆中各项对应的进程编号
+     */
+    private int[] ids;
+    /**
+     * 编号对应的进程，空闲的编号为 null
+     */
+    private SimulationProcess[] processes;
+    /**
+     * 编号在堆中的位置；空闲的编号在这里记录下一个空闲编号
+     */
+    private int[] positions;
+    /**
+     * 堆中的元素个数
+     */
+    private int size = 0;
+    /**
+     * 已经使用过的编号个数
+     */
+    private int used = 0;
+    /**
+     * 第一个空闲编号，没有时为 -1
+     */
+    private int freeId = -1;
+    /**
+     * 已分配的最小序号，prior 插入从这里向下分配
+     */
+    private long firstSeq = 0;
+    /**
+     * 已分配的最大序号，普通插入从这里向上分配
+     */
+    private long lastSeq = 0;
+    /**
+     * 互斥锁对象
+     */
+    private final Object mutex = new Object();
+
+    public CompactHeapQueue() {
+        this(16);
+    }
+
+    /**
+     * @param capacity 初始容量，预计等待事件很多时可以避免扩容
+     */
+    public CompactHeapQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        times = new double[capacity];
+        seqs = new long[capacity];
+        ids = new int[capacity];
+        processes = new SimulationProcess[capacity];
+        positions = new int[capacity];
+    }
+
+    public void insert(SimulationProcess process) {
+        insert(process, false);
+    }
+
+    public void insert(SimulationProcess toInsert, boolean prior) {
+        synchronized (mutex) {
+            checkSeq();
+            add(toInsert, toInsert.evtime(), prior ? (firstSeq -= GAP) : (lastSeq += GAP));
+        }
+    }
+
+    public boolean insertBefore(SimulationProcess toInsert, SimulationProcess target) {
+        synchronized (mutex) {
+            int index = find(target);
+            if (index < 0) {
+                return false;
+            }
+            // 没有同时间的前驱时，下界是下一个 prior 插入将获得的序号
+            int pred = neighbourAtSameTime(index, false);
+            long lo = pred >= 0 ? seqs[pred] : firstSeq - GAP;
+            if (seqs[index] - lo < 2) {
+                renumber();
+                index = find(target);
+                pred = neighbourAtSameTime(index, false);
+                lo = pred >= 0 ? seqs[pred] : firstSeq - GAP;
+            }
+            add(toInsert, times[index], lo + (seqs[index] - lo) / 2);
+            return true;
+        }
+    }
+
+    public boolean insertAfter(SimulationProcess toInsert, SimulationProcess target) {
+        synchronized (mutex) {
+            int index = find(target);
+            if (index < 0) {
+                return false;
+            }
+            // 没有同时间的后继时，上界是下一个普通插入将获得的序号
+            int succ = neighbourAtSameTime(index, true);
+            long hi = succ >= 0 ? seqs[succ] : lastSeq + GAP;
+            if (hi - seqs[index] < 2) {
+                renumber();
+                index = find(target);
+                succ = neighbourAtSameTime(index, true);
+                hi = succ >= 0 ? seqs[succ] : lastSeq + GAP;
+            }
+            add(toInsert, times[index], seqs[index] + (hi - seqs[index]) / 2);
+            return true;
+        }
+    }
+
+    public boolean reschedule(SimulationProcess process, boolean prior) {
+        synchronized (mutex) {
+            if (find(process) < 0) {
+                return false;
+            }
+            // 重新编号会移动元素，之后再取位置
+            checkSeq();
+            int index = find(process);
+            times[index] = process.evtime();
+            seqs[index] = prior ? (firstSeq -= GAP) : (lastSeq += GAP);
+            fix(index);
+            return true;
+        }
+    }
+
+    public SimulationProcess remove(SimulationProcess target) throws NoSuchElementException {
+        synchronized (mutex) {
+            int index = find(target);
+            if (index < 0) {
+                throw new NoSuchElementException();
+            }
+            return removeAt(index);
+        }
+    }
+
+    public SimulationProcess remove() throws NoSuchElementException {
+        synchronized (mutex) {
+            if (size == 0) {
+                throw new NoSuchElementException();
+            }
+            return removeAt(0);
+        }
+    }
+
+    public SimulationProcess peek() {
+        synchronized (mutex) {
+            return size == 0 ? null : processes[ids[0]];
+        }
+    }
+
+    public SimulationProcess getNext(SimulationProcess current) throws NoSuchElementException {
+        synchronized (mutex) {
+            if (size == 0 || current == null) {
+                throw new NoSuchElementException();
+            }
+            int index = find(current);
+            if (index < 0) {
+                // 队列中没有current,意味着current处于活动状态
+                return processes[ids[0]];
+            }
+            int next = successor(index);
+            return next < 0 ? null : processes[ids[next]];
+        }
+    }
+
+    public void print() {
+        synchronized (mutex) {
+            if (size == 0) {
+                return;
+            }
+            for (int index = 0; index >= 0; index = successor(index)) {
+                System.out.println(processes[ids[index]].evtime());
+            }
+        }
+    }
+
+    /**
+     * @return 进程在堆中的位置，不在队列中时返回 -1
+     */
+    private int find(SimulationProcess process) {
+        if (process == null) {
+            return -1;
+        }
+        int id = QueueHandles.slot(process);
+        return id >= 0 && id < used && processes[id] == process ? positions[id] : -1;
+    }
+
+    private void add(SimulationProcess process, double time, long seq) {
+        if (size == times.length) {
+            grow();
+        }
+        int id;
+        if (freeId >= 0) {
+            id = freeId;
+            freeId = positions[id];
+        } else {
+            id = used++;
+        }
+        processes[id] = process;
+        QueueHandles.slot(process, id);
+        int index = size++;
+        times[index] = time;
+        seqs[index] = seq;
+        ids[index] = id;
+        positions[id] = index;
+        siftUp(index);
+    }
+
+    private SimulationProcess removeAt(int index) {
+        int id = ids[index];
+        SimulationProcess process = processes[id];
+        int last = --size;
+        if (index != last) {
+            move(last, index);
+            fix(index);
+        }
+        processes[id] = null;
+        positions[id] = freeId;
+        freeId = id;
+        return process;
+    }
+
+    /**
+     * 位置 index 上的键改变之后，向上或向下调整
+     */
+    private void fix(int index) {
+        int id = ids[index];
+        siftDown(index);
+        if (positions[id] == index) {
+            siftUp(index);
+        }
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!less(index, parent)) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && less(right, child)) {
+                child = right;
+            }
+            if (!less(child, index)) {
+                break;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private boolean less(int a, int b) {
+        if (times[a] != times[b]) {
+            return times[a] < times[b];
+        }
+        return seqs[a] < seqs[b];
+    }
+
+    private void swap(int a, int b) {
+        double time = times[a];
+        long seq = seqs[a];
+        int id = ids[a];
+        move(b, a);
+        times[b] = time;
+        seqs[b] = seq;
+        ids[b] = id;
+        positions[id] = b;
+    }
+
+    private void move(int from, int to) {
+        times[to] = times[from];
+        seqs[to] = seqs[from];
+        ids[to] = ids[from];
+        positions[ids[to]] = to;
+    }
+
+    /**
+     * 堆不维护全序，需要扫描整个数组查找后继
+     * @return 排在 index 之后的位置，没有时返回 -1
+     */
+    private int successor(int index) {
+        int succ = -1;
+        for (int i = 0; i < size; i++) {
+            if (less(index, i) && (succ < 0 || less(i, succ))) {
+                succ = i;
+            }
+        }
+        return succ;
+    }
+
+    /**
+     * @param after true 查找同时间的后继，false 查找同时间的前驱
+     * @return 事件时间相同的相邻位置，没有时返回 -1
+     */
+    private int neighbourAtSameTime(int index, boolean after) {
+        int best = -1;
+        for (int i = 0; i < size; i++) {
+            if (i == index || times[i] != times[index] || (seqs[i] > seqs[index]) != after) {
+                continue;
+            }
+            if (best < 0 || (seqs[i] < seqs[best]) == after) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private void checkSeq() {
+        if (firstSeq < Long.MIN_VALUE / 2 || lastSeq > Long.MAX_VALUE / 2) {
+            renumber();
+        }
+    }
+
+    /**
+     * 按当前顺序重新分配序号，恢复相邻序号之间的间隔
+     * 依次弹出队首得到的有序数组本身就是一个合法的堆
+     */
+    private void renumber() {
+        int count = size;
+        double[] sortedTimes = new double[times.length];
+        long[] sortedSeqs = new long[seqs.length];
+        int[] sortedIds = new int[ids.length];
+        for (int i = 0; i < count; i++) {
+            sortedTimes[i] = times[0];
+            sortedIds[i] = ids[0];
+            int last = --size;
+            if (last > 0) {
+                move(last, 0);
+                siftDown(0);
+            }
+        }
+        long seq = 0;
+        for (int i = 0; i < count; i++) {
+            sortedSeqs[i] = (seq += GAP);
+            positions[sortedIds[i]] = i;
+        }
+        times = sortedTimes;
+        seqs = sortedSeqs;
+        ids = sortedIds;
+        size = count;
+        firstSeq = 0;
+        lastSeq = seq;
+    }
+
+    private void grow() {
+        int capacity = times.length + Math.max(1, times.length >>> 1);
+        if (capacity < 0) {
+            capacity = Integer.MAX_VALUE - 8;
+        }
+        times = Arrays.copyOf(times, capacity);
+        seqs = Arrays.copyOf(seqs, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        processes = Arrays.copyOf(processes, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+    }
+
+}
@@ -0,0 +1,100 @@
+package org.javasim.internal;
+
+/**
+ * @description: 由 EventNode 组成的双向链表，作为桶式事件队列中的一个桶
+ * 节点的 owner 字段指向所在的桶，因此可以在 O(1) 时间内移除任意节点
+ * @author: zhanyeye
+ * @create: 2026-10-18 16:40
+ **/
+final class EventBucket {
+
+    EventNode head;
+    EventNode tail;
+    int size;
+    /**
+     * 由队列实现自行解释的编号
+     */
+    int id;
+
+    void append(EventNode node) {
+        node.owner = this;
+        node.next = null;
+        node.prev = tail;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        size++;
+    }
+
+    /**
+     * 有序插入
+     * 普通插入一般排在尾部，prior 插入一般排在头部，这两种情况都是 O(1)，其余情况从尾部向前查找
+     */
+    void insertSorted(EventNode node) {
+        if (tail == null || tail.compareTo(node) < 0) {
+            append(node);
+            return;
+        }
+        EventNode after = head.compareTo(node) > 0 ? null : tail;
+        while (after != null && after.compareTo(node) > 0) {
+            after = after.prev;
+        }
+        node.owner = this;
+        node.prev = after;
+        if (after == null) {
+            node.next = head;
+            head = node;
+        } else {
+            node.next = after.next;
+            after.next = node;
+        }
+        node.next.prev = node;
+        size++;
+    }
+
+    void remove(EventNode node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.next = node.prev = null;
+        node.owner = null;
+        size--;
+    }
+
+    void clear() {
+        head = tail = null;
+        size = 0;
+    }
+
+    boolean sameTime() {
+        for (EventNode n = head; n != null; n = n.next) {
+            if (n.time != head.time) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 本桶中排在 node 之后的最小节点与 best 中较小的一个
+     */
+    EventNode after(EventNode node, EventNode best) {
+        for (EventNode n = head; n != null; n = n.next) {
+            if (n.compareTo(node) > 0 && (best == null || n.compareTo(best) < 0)) {
+                best = n;
+            }
+        }
+        return best;
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.javasim.internal;
+
+import org.javasim.SimulationProcess;
+
+/**
+ * @description: 事件队列中的节点，排序键为 (事件时间, 序号)
+ * next / prev / index 字段由具体的队列实现按需使用。
+ * 进程通过 QueueHandles 持有自己所在的节点，同一进程在多个队列中的节点由 sibling 串起来，
+ * 因此移除与定位进程不需要查找整个队列。
+ * @author: zhanyeye
+ * @create: 2026-10-18 13:40
+ **/
+public final class EventNode {
+
+    /**
+     * 节点所在的队列
+     */
+    final AbstractEventQueue queue;
+    /**
+     * 节点对应的进程
+     */
+    SimulationProcess process;
+    /**
+     * 插入时的事件时间
+     */
+    double time;
+    /**
+     * 同一事件时间内的先后顺序
+     */
+    long seq;
+    /**
+     * 链表中的后继节点
+     */
+    EventNode next;
+    /**
+     * 链表中的前驱节点
+     */
+    EventNode prev;
+    /**
+     * 跳表中各层的后继节点
+     */
+    EventNode[] forward;
+    /**
+     * 在数组结构中的下标
+     */
+    int index;
+    /**
+     * 节点所在的容器，由使用多个链表的队列实现使用
+     */
+    Object owner;
+    /**
+     * 同一进程在其他队列中的节点，节点空闲时指向下一个空闲节点
+     */
+    EventNode sibling;
+
+    EventNode(AbstractEventQueue queue, SimulationProcess process, double time, long seq) {
+        this.queue = queue;
+        this.process = process;
+        this.time = time;
+        this.seq = seq;
+    }
+
+    /**
+     * 比较两个节点的先后顺序
+     * @param other 另一个节点
+     * @return 负数表示当前节点在前，正数表示在后
+     */
+    int compareTo(EventNode other) {
+        if (time != other.time) {
+            return time < other.time ? -1 : 1;
+        }
+        return Long.compare(seq, other.seq);
+    }
+
+}
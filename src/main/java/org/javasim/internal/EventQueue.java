@@ -0,0 +1,98 @@
+package org.javasim.internal;
+
+import org.javasim.SimulationProcess;
+
+import java.util.NoSuchElementException;
+
+/**
+ * @description: 调度器事件队列的接口
+ * 实现类必须保持 SimulationProcessQueue 的排序规则：按事件时间升序排列，
+ * 事件时间相同的进程先进先出，prior 为 true 的进程排在所有同时间进程之前。
+ * 实现类需要提供公共的无参构造函数，以便通过 EventQueueFactory 按类名创建。
+ * @author: zhanyeye
+ * @create: 2026-10-18 11:05
+ **/
+public interface EventQueue {
+
+    /**
+     * 向事件队列插入线程，不考虑优先级
+     * @param process 需要插入的线程
+     */
+    void insert(SimulationProcess process);
+
+    /**
+     * 向事件队列插入线程，考虑优先级
+     * @param toInsert 需要插入的线程
+     * @param prior 是否排在同时间的进程之前
+     */
+    void insert(SimulationProcess toInsert, boolean prior);
+
+    /**
+     * 插入到指定进程之前
+     * @param toInsert 需要插入的线程
+     * @param target 目标线程
+     * @return 如果插入的位置存在，返回true
+     */
+    boolean insertBefore(SimulationProcess toInsert, SimulationProcess target);
+
+    /**
+     * 插入到指定进程之后
+     * @param toInsert 需要插入的线程
+     * @param target 目标线程
+     * @return 如果插入的位置存在，返回true
+     */
+    boolean insertAfter(SimulationProcess toInsert, SimulationProcess target);
+
+    /**
+     * 移除事件队列中的某一个线程，并返回该线程
+     * @param target 需要删除的线程
+     * @return 被删除的线程
+     * @throws NoSuchElementException 如果事件队列中没有要删除的目标
+     */
+    SimulationProcess remove(SimulationProcess target) throws NoSuchElementException;
+
+    /**
+     * 把已经在队列中的线程按它新的事件时间移动到新的位置，
+     * 结果与先移除再以 insert(process, prior) 插入相同。
+     * 默认实现就是先移除再插入，实现类可以提供一步完成的版本。
+     * @param process 需要移动的线程，事件时间已经更新
+     * @param prior 是否排在同时间的进程之前
+     * @return 线程在队列中并已移动时返回 true，不在队列中时返回 false
+     */
+    default boolean reschedule(SimulationProcess process, boolean prior) {
+        try {
+            remove(process);
+        } catch (NoSuchElementException e) {
+            return false;
+        }
+        insert(process, prior);
+        return true;
+    }
+
+    /**
+     * 弹出队首线程
+     * @return 被弹出的元素
+     * @throws NoSuchElementException 队列为空
+     */
+    SimulationProcess remove() throws NoSuchElementException;
+
+    /**
+     * 查看队首线程
+     * @return 队首线程，队列为空时返回 null
+     */
+    SimulationProcess peek();
+
+    /**
+     * 获得current线程的后继线程
+     * @param current 基准线程
+     * @return current线程的后继，current 不在队列中时返回队首线程
+     * @throws NoSuchElementException 队列或者current为空
+     */
+    SimulationProcess getNext(SimulationProcess current) throws NoSuchElementException;
+
+    /**
+     * 打印事件发生的时间
+     */
+    void print();
+
+}
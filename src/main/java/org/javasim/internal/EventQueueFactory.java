@@ -0,0 +1,80 @@
+package org.javasim.internal;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * @description: 按名称创建调度器的事件队列
+ * 可选的名称为 "heap"（默认）、"list"、"array"、"skiplist"、"compact"、"calendar"、"ladder"、"wheel" 与 "adaptive"，也可以是 EventQueue 实现类的全限定类名。
+ * 调度器启动时读取系统属性 org.javasim.eventqueue 来决定使用哪一种队列。
+ * @author: zhanyeye
+ * @create: 2026-10-18 11:20
+ **/
+public final class EventQueueFactory {
+
+    /**
+     * 选择事件队列实现的系统属性
+     */
+    public static final String EVENT_QUEUE_PROPERTY = "org.javasim.eventqueue";
+
+    /**
+     * 时间轮一个 tick 对应的仿真时间，默认为 1.0
+     */
+    public static final String RESOLUTION_PROPERTY = "org.javasim.eventqueue.resolution";
+
+    /**
+     * 默认的事件队列
+     */
+    public static final String DEFAULT = "heap";
+
+    private EventQueueFactory() {
+    }
+
+    /**
+     * 根据系统属性创建事件队列，未设置时使用默认实现
+     * @return 新的事件队列
+     */
+    public static EventQueue fromSystemProperty() {
+        return create(System.getProperty(EVENT_QUEUE_PROPERTY, DEFAULT));
+    }
+
+    /**
+     * 根据名称创建事件队列
+     * @param name 队列名称或实现类的全限定类名
+     * @return 新的事件队列
+     * @throws IllegalArgumentException 名称无法识别或实现类无法实例化
+     */
+    public static EventQueue create(String name) throws IllegalArgumentException {
+        String type = name.trim();
+
+        switch (type.toLowerCase()) {
+            case "heap":
+                return new SimulationProcessHeap();
+            case "list":
+                return new SimulationProcessQueue();
+            case "array":
+                return new SortedArrayQueue();
+            case "skiplist":
+                return new SkipListQueue();
+            case "compact":
+                return new CompactHeapQueue();
+            case "calendar":
+                return new CalendarQueue();
+            case "ladder":
+                return new LadderQueue();
+            case "wheel":
+                return new TimingWheelQueue(Double.parseDouble(System.getProperty(RESOLUTION_PROPERTY, "1.0")));
+            case "adaptive":
+                return new AdaptiveEventQueue();
+            default:
+                try {
+                    return (EventQueue) Class.forName(type).getDeclaredConstructor().newInstance();
+                } catch (InvocationTargetException e) {
+                    // 构造函数本身抛出的异常
+                    throw new IllegalArgumentException("Cannot create event queue " + name, e.getCause());
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new IllegalArgumentException("Unknown event queue " + name, e);
+                }
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package org.javasim.internal;
+
+/**
+ * @description: 基于 Handoff 的执行单元，进程体在某个线程上执行，挂起时 park 该线程
+ * ThreadExecutor 与 VirtualThreadExecutor 共用这一实现，子类只决定在哪个线程上运行它。
+ * @author: zhanyeye
+ * @create: 2026-10-18 22:10
+ **/
+abstract class HandoffExecution implements ProcessExecutor.Execution, Runnable {
+
+    /**
+     * 进程体
+     */
+    private final Runnable body;
+    /**
+     * 执行单元的名称
+     */
+    final String name;
+    /**
+     * 挂起与恢复使用的信号量
+     */
+    private final Handoff handoff = new Handoff();
+    /**
+     * 进程体是否已经返回
+     */
+    private volatile boolean finished;
+
+    HandoffExecution(Runnable body, String name) {
+        this.body = body;
+        this.name = name;
+    }
+
+    @Override
+    public void run() {
+        try {
+            body.run();
+        } finally {
+            finished = true;
+        }
+    }
+
+    @Override
+    public void suspend() {
+        handoff.acquire();
+    }
+
+    @Override
+    public void resume() {
+        handoff.release();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+}
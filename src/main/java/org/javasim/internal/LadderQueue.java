@@ -0,0 +1,313 @@
+package org.javasim.internal;
+
+/**
+ * @description: 梯形队列 (W.T. Tang, R.S.M. Goh, I.L.J. Thng, "Ladder Queue: An O(1)
+ * Priority Queue Structure for Large-Scale Discrete Event Simulation", ACM TOMACS 15(3), 2005)
+ * 由三部分组成：
+ * top    - 最晚的事件，无序存放；
+ * ladder - 若干层梯级，每层由等宽的无序桶组成，下一层细分上一层的某一个桶；
+ * bottom - 最早的少量事件，有序存放。
+ * 事件只在进入 bottom 时才排序，桶中事件过多时向下分裂出新的梯级而不是整体重建，
+ * 因此不会出现日历队列那样的整体调整，事件时间增量的分布变化时每个事件的均摊代价依然为 O(1)。
+ * @author: zhanyeye
+ * @create: 2026-10-18 15:30
+ **/
+public class LadderQueue extends AbstractEventQueue {
+
+    /**
+     * 桶中事件超过该值时分裂出新的梯级，而不是直接排序放入 bottom
+     */
+    private static final int THRESHOLD = 50;
+    /**
+     * 梯级的最大层数
+     */
+    private static final int MAX_RUNGS = 8;
+
+    /**
+     * 最晚的事件，事件时间不小于 topStart
+     */
+    private final EventBucket top = new EventBucket();
+    /**
+     * 最早的事件，按排序键有序
+     */
+    private final EventBucket bottom = new EventBucket();
+    /**
+     * 梯级，rungs[0] 最粗，rungs[rungCount - 1] 最细；rungCount 之后的梯级留作重用
+     */
+    private final Rung[] rungs = new Rung[MAX_RUNGS];
+    /**
+     * 当前的梯级层数
+     */
+    private int rungCount = 0;
+    /**
+     * top 中事件的最小时间下界
+     */
+    private double topStart = Double.NEGATIVE_INFINITY;
+    /**
+     * top 中事件的最小时间
+     */
+    private double topMin;
+    /**
+     * top 中事件的最大时间
+     */
+    private double topMax;
+    /**
+     * 元素个数
+     */
+    private int size;
+    /**
+     * 排序桶中事件时重用的数组
+     */
+    private EventNode[] scratch = new EventNode[THRESHOLD + 1];
+    private EventNode[] buffer = new EventNode[THRESHOLD + 1];
+
+    @Override
+    void add(EventNode node) {
+        size++;
+        if (node.time >= topStart) {
+            if (top.size == 0) {
+                topMin = topMax = node.time;
+            } else {
+                topMin = Math.min(topMin, node.time);
+                topMax = Math.max(topMax, node.time);
+            }
+            top.append(node);
+            return;
+        }
+        // 下一层梯级总是由上一层的第 current - 1 个桶分裂而来
+        for (int i = 0; i < rungCount; i++) {
+            Rung rung = rungs[i];
+            int index = rung.bucketOf(node.time, i > 0);
+            if (index >= rung.current) {
+                rung.buckets[index].append(node);
+                return;
+            }
+            if (index != rung.current - 1) {
+                break;
+            }
+        }
+        bottom.insertSorted(node);
+    }
+
+    @Override
+    void unlink(EventNode node) {
+        size--;
+        ((EventBucket) node.owner).remove(node);
+    }
+
+    @Override
+    EventNode first() {
+        if (size == 0) {
+            return null;
+        }
+        while (bottom.size == 0) {
+            if (rungCount == 0) {
+                transferTop();
+            } else {
+                advance();
+            }
+        }
+        return bottom.head;
+    }
+
+    @Override
+    EventNode next(EventNode node) {
+        if (node.owner == bottom && node.next != null) {
+            return node.next;
+        }
+        // 后继可能位于无序的桶中，需要检查所有节点
+        EventNode succ = top.after(node, null);
+        succ = bottom.after(node, succ);
+        for (int i = 0; i < rungCount; i++) {
+            Rung rung = rungs[i];
+            for (int b = rung.current; b < rung.count; b++) {
+                succ = rung.buckets[b].after(node, succ);
+            }
+        }
+        return succ;
+    }
+
+    /**
+     * 同时间的节点一定在同一个容器中
+     */
+    @Override
+    EventNode previousAtSameTime(EventNode node) {
+        EventBucket bucket = (EventBucket) node.owner;
+        if (bucket == bottom) {
+            EventNode prev = node.prev;
+            return prev != null && prev.time == node.time ? prev : null;
+        }
+        EventNode pred = null;
+        for (EventNode n = bucket.head; n != null; n = n.next) {
+            if (n.time == node.time && n.seq < node.seq && (pred == null || n.seq > pred.seq)) {
+                pred = n;
+            }
+        }
+        return pred;
+    }
+
+    /**
+     * 梯级为空时，把 top 中的事件分配到新的第一层梯级
+     */
+    private void transferTop() {
+        if (topMax == topMin) {
+            // 所有事件时间相同，无法分桶，直接排序放入 bottom
+            topStart = topMax + Math.ulp(topMax);
+            moveToBottom(top);
+            return;
+        }
+        double width = (topMax - topMin) / top.size;
+        Rung rung = newRung(topMin, width, top.size + 1);
+        topStart = rung.end();
+        for (EventNode n = top.head; n != null; ) {
+            EventNode next = n.next;
+            rung.buckets[rung.bucketOf(n.time, true)].append(n);
+            n = next;
+        }
+        top.clear();
+    }
+
+    /**
+     * 在最细的梯级中找到下一个非空的桶，把它分裂为新的梯级或排序后放入 bottom
+     */
+    private void advance() {
+        Rung rung = rungs[rungCount - 1];
+        while (rung.current < rung.count && rung.buckets[rung.current].size == 0) {
+            rung.current++;
+        }
+        if (rung.current == rung.count) {
+            rungCount--;
+            if (rungCount == 0) {
+                // bottom 与梯级都已为空，剩余事件都在 top 中，之后的事件也全部放入 top
+                topStart = Double.NEGATIVE_INFINITY;
+            }
+            return;
+        }
+        EventBucket bucket = rung.buckets[rung.current];
+        double bucketStart = rung.start + rung.current * rung.width;
+        rung.current++;
+        if (bucket.size > THRESHOLD && rungCount < MAX_RUNGS && !bucket.sameTime()) {
+            Rung child = newRung(bucketStart, rung.width / bucket.size, bucket.size);
+            for (EventNode n = bucket.head; n != null; ) {
+                EventNode next = n.next;
+                child.buckets[child.bucketOf(n.time, true)].append(n);
+                n = next;
+            }
+            bucket.clear();
+        } else {
+            moveToBottom(bucket);
+        }
+    }
+
+    /**
+     * 在 rungCount 处加入一层新的梯级，尽量重用之前同一深度的梯级
+     */
+    private Rung newRung(double start, double width, int count) {
+        Rung rung = rungs[rungCount];
+        if (rung == null || rung.buckets.length < count) {
+            rung = new Rung(Math.max(count, rung == null ? 0 : 2 * rung.buckets.length));
+            rungs[rungCount] = rung;
+        }
+        rung.reset(start, width, count);
+        rungCount++;
+        return rung;
+    }
+
+    /**
+     * 把一个桶中的事件排序后放入空的 bottom
+     */
+    private void moveToBottom(EventBucket bucket) {
+        int count = bucket.size;
+        if (scratch.length < count) {
+            scratch = new EventNode[Math.max(count, 2 * scratch.length)];
+            buffer = new EventNode[scratch.length];
+        }
+        int i = 0;
+        for (EventNode n = bucket.head; n != null; n = n.next) {
+            scratch[i++] = n;
+        }
+        bucket.clear();
+        EventNode[] sorted = sort(count);
+        for (i = 0; i < count; i++) {
+            bottom.append(sorted[i]);
+            scratch[i] = buffer[i] = null;
+        }
+    }
+
+    /**
+     * 自底向上的归并排序，在 scratch 与 buffer 之间来回归并，不分配内存
+     * 同时间的事件大多已经按序号排好，归并前先检查相邻两段是否已经有序
+     * @return 排序结果所在的数组
+     */
+    private EventNode[] sort(int count) {
+        EventNode[] from = scratch;
+        EventNode[] to = buffer;
+        for (int width = 1; width < count; width *= 2) {
+            for (int lo = 0; lo < count; lo += 2 * width) {
+                int mid = Math.min(lo + width, count);
+                int hi = Math.min(lo + 2 * width, count);
+                if (mid == hi || from[mid - 1].compareTo(from[mid]) < 0) {
+                    System.arraycopy(from, lo, to, lo, hi - lo);
+                    continue;
+                }
+                int i = lo;
+                int j = mid;
+                for (int k = lo; k < hi; k++) {
+                    to[k] = j >= hi || (i < mid && from[i].compareTo(from[j]) < 0) ? from[i++] : from[j++];
+                }
+            }
+            EventNode[] t = from;
+            from = to;
+            to = t;
+        }
+        return from;
+    }
+
+    /**
+     * 一层梯级：从 start 开始的 count 个宽度为 width 的桶，current 之前的桶已经用完
+     */
+    private static final class Rung {
+        double start;
+        double width;
+        int count;
+        final EventBucket[] buckets;
+        int current;
+
+        Rung(int capacity) {
+            this.buckets = new EventBucket[capacity];
+            for (int i = 0; i < capacity; i++) {
+                buckets[i] = new EventBucket();
+            }
+        }
+
+        /**
+         * 重新使用这一层梯级，之前的桶都已经为空
+         */
+        void reset(double start, double width, int count) {
+            this.start = start;
+            this.width = width;
+            this.count = count;
+            this.current = 0;
+        }
+
+        double end() {
+            return start + count * width;
+        }
+
+        /**
+         * 桶的选择只取决于事件时间且随时间单调，保证同时间的事件总是进入同一个容器
+         * 浮点误差可能使下标超出范围，此时放入最近的桶中，顺序不受影响
+         * @param time 事件时间
+         * @param clamp 事件是否已确定属于本层梯级的范围
+         * @return 桶的下标，-1 表示事件早于本层梯级
+         */
+        int bucketOf(double time, boolean clamp) {
+            double index = Math.floor((time - start) / width);
+            if (index < 0) {
+                return clamp ? 0 : -1;
+            }
+            return (int) Math.min(count - 1, index);
+        }
+    }
+
+}
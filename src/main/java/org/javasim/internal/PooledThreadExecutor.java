@@ -0,0 +1,148 @@
+package org.javasim.internal;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description: 复用载体线程的执行方式，适合不断创建短生命周期进程的模型
+ * 每个进程仍然独占一个平台线程，但进程体返回之后线程不会结束，而是回到空闲池中，
+ * 下一个开始执行的进程直接使用空闲的线程，省去了创建与销毁线程的开销。
+ * 空闲超过 keepAlive 的线程自行结束。载体线程都是守护线程，与虚拟线程一样，
+ * 仿真结束之后仍被挂起或空闲的线程不会让 JVM 一直无法退出。
+ * @author: zhanyeye
+ * @create: 2026-10-18 22:40
+ **/
+public class PooledThreadExecutor implements ProcessExecutor {
+
+    /**
+     * 空闲的载体线程，最近空闲的在队首
+     */
+    private final ArrayDeque<Carrier> idle = new ArrayDeque<Carrier>();
+    /**
+     * 空闲线程的存活时间，单位纳秒
+     */
+    private final long keepAlive;
+    /**
+     * 已经创建的载体线程数
+     */
+    private int created = 0;
+    /**
+     * 互斥锁对象
+     */
+    private final Object mutex = new Object();
+
+    public PooledThreadExecutor() {
+        this(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param keepAlive 空闲线程的存活时间
+     * @param unit keepAlive 的单位
+     */
+    public PooledThreadExecutor(long keepAlive, TimeUnit unit) {
+        if (keepAlive < 0) {
+            throw new IllegalArgumentException("Invalid keep alive time " + keepAlive);
+        }
+        this.keepAlive = unit.toNanos(keepAlive);
+    }
+
+    @Override
+    public Execution create(Runnable body, String name) {
+        return new HandoffExecution(body, name) {
+            @Override
+            public void start() {
+                dispatch(this);
+            }
+        };
+    }
+
+    /**
+     * @return 当前空闲的载体线程数
+     */
+    public int getIdleCount() {
+        synchronized (mutex) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * @return 已经创建的载体线程总数
+     */
+    public int getCreatedCount() {
+        synchronized (mutex) {
+            return created;
+        }
+    }
+
+    /**
+     * 把执行单元交给一个空闲的载体线程，没有空闲线程时创建新的线程
+     */
+    private void dispatch(HandoffExecution execution) {
+        Carrier carrier;
+        int number;
+        synchronized (mutex) {
+            carrier = idle.pollFirst();
+            number = carrier == null ? ++created : 0;
+        }
+        if (carrier != null) {
+            carrier.task = execution;
+            carrier.handoff.release();
+        } else {
+            carrier = new Carrier();
+            carrier.task = execution;
+            // 载体线程是守护线程，仿真结束时被挂起或仍在空闲池中的线程都不会阻止 JVM 退出
+            Thread thread = new Thread(carrier, "javasim-carrier-" + number);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * 载体线程，依次执行分配给它的进程体
+     */
+    private final class Carrier implements Runnable {
+
+        /**
+         * 等待下一个进程体使用的信号量
+         */
+        private final Handoff handoff = new Handoff();
+        /**
+         * 下一个要执行的进程体，在释放许可之前写入
+         */
+        private HandoffExecution task;
+
+        @Override
+        public void run() {
+            for (HandoffExecution execution = take(); execution != null; execution = next()) {
+                execution.run();
+            }
+        }
+
+        /**
+         * 回到空闲池中等待下一个进程体
+         * @return 下一个进程体，空闲超时时返回 null
+         */
+        private HandoffExecution next() {
+            synchronized (mutex) {
+                idle.addFirst(this);
+            }
+            if (!handoff.acquire(keepAlive)) {
+                synchronized (mutex) {
+                    if (idle.remove(this)) {
+                        return null;
+                    }
+                }
+                // 超时的同时被分配了新的进程体，它一定会释放许可
+                handoff.acquire();
+            }
+            return take();
+        }
+
+        private HandoffExecution take() {
+            HandoffExecution execution = task;
+            task = null;
+            return execution;
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package org.javasim.internal;
+
+/**
+ * @description: 仿真进程的执行方式
+ * SimulationProcess 不再自己就是一个线程，而是在第一次被恢复时通过 ProcessExecutor 创建执行单元并启动它，
+ * 之后的挂起与恢复都交给这个 Execution 完成。
+ * 执行单元可以是平台线程、虚拟线程、线程池中的载体线程或其他能够挂起与恢复的实现，
+ * 构造之后尚未激活的进程不占用任何执行单元。
+ * 任何时刻只有一个进程在执行，实现可以依赖这一点，但 suspend 与 resume 会在不同的线程上调用。
+ * @author: zhanyeye
+ * @create: 2026-10-18 22:10
+ **/
+public interface ProcessExecutor {
+
+    /**
+     * 为进程体创建执行单元，此时还不执行进程体
+     * @param body 进程体，即 SimulationProcess.run
+     * @param name 执行单元的名称，仅用于调试
+     * @return 控制该执行单元的句柄
+     */
+    Execution create(Runnable body, String name);
+
+    /**
+     * 一个进程的执行单元
+     */
+    interface Execution {
+
+        /**
+         * 开始执行进程体，调用者随后会挂起自己
+         * 进程体中的 suspend 可能在 start 返回之前就被调用
+         */
+        void start();
+
+        /**
+         * 由进程自身的执行单元调用，阻塞直到 resume 被调用；
+         * resume 先于 suspend 发生时立即返回
+         */
+        void suspend();
+
+        /**
+         * 恢复通过 suspend 挂起的进程
+         */
+        void resume();
+
+        /**
+         * @return 进程体是否已经返回
+         */
+        boolean isFinished();
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.javasim.internal;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * @description: 按名称创建仿真进程的执行方式
+ * 可选的名称为 "platform"（默认）、"pooled" 与 "virtual"，也可以是 ProcessExecutor 实现类的全限定类名。
+ * 调度器启动时读取系统属性 org.javasim.threads 来决定使用哪一种执行方式；
+ * 运行时不支持虚拟线程时 "virtual" 退回到平台线程，因此同一个配置可以在所有 Java 版本上使用。
+ * @author: zhanyeye
+ * @create: 2026-10-18 22:10
+ **/
+public final class ProcessExecutorFactory {
+
+    /**
+     * 选择执行方式的系统属性
+     */
+    public static final String EXECUTOR_PROPERTY = "org.javasim.threads";
+
+    /**
+     * 默认的执行方式
+     */
+    public static final String DEFAULT = "platform";
+
+    private ProcessExecutorFactory() {
+    }
+
+    /**
+     * 根据系统属性创建执行方式，未设置时使用默认实现
+     * @return 新的执行方式
+     */
+    public static ProcessExecutor fromSystemProperty() {
+        return create(System.getProperty(EXECUTOR_PROPERTY, DEFAULT));
+    }
+
+    /**
+     * 根据名称创建执行方式
+     * @param name 执行方式名称或实现类的全限定类名
+     * @return 新的执行方式
+     * @throws IllegalArgumentException 名称无法识别或实现类无法实例化
+     */
+    public static ProcessExecutor create(String name) throws IllegalArgumentException {
+        String type = name.trim();
+
+        switch (type.toLowerCase()) {
+            case "platform":
+                return new ThreadExecutor();
+            case "pooled":
+                return new PooledThreadExecutor();
+            case "virtual":
+                return VirtualThreads.isAvailable() ? new VirtualThreadExecutor() : new ThreadExecutor();
+            default:
+                try {
+                    return (ProcessExecutor) Class.forName(type).getDeclaredConstructor().newInstance();
+                } catch (InvocationTargetException e) {
+                    // 构造函数本身抛出的异常
+                    throw new IllegalArgumentException("Cannot create process executor " + name, e.getCause());
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new IllegalArgumentException("Unknown process executor " + name, e);
+                }
+        }
+    }
+
+}
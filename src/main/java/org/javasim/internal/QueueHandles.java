@@ -0,0 +1,71 @@
+package org.javasim.internal;
+
+import org.javasim.SimulationProcess;
+
+/**
+ * @description: 事件队列读写进程句柄的桥
+ * 进程在队列中的节点与编号保存在 SimulationProcess 的私有字段中，SimulationProcess 在类初始化时安装唯一的实现，
+ * 读写方法是 protected 的，只有本包中的事件队列可以通过安装的实例调用，因此不需要成为 SimulationProcess 的公开方法。
+ * 队列操作的进程都已经被创建，安装一定发生在第一次使用之前。
+ * @author: zhanyeye
+ * @create: 2026-10-18 14:05
+ **/
+public abstract class QueueHandles {
+
+    /**
+     * 由 SimulationProcess 安装的实现
+     */
+    private static volatile QueueHandles installed;
+
+    protected QueueHandles() {
+    }
+
+    /**
+     * 安装实现，只能调用一次，由 SimulationProcess 的静态初始化调用
+     * @param handles the implementation.
+     * @throws IllegalStateException if an implementation is already installed.
+     */
+    public static synchronized void install(QueueHandles handles) {
+        if (installed != null) {
+            throw new IllegalStateException("Queue handles already installed.");
+        }
+        installed = handles;
+    }
+
+    static EventNode node(SimulationProcess process) {
+        return installed.getNode(process);
+    }
+
+    static void node(SimulationProcess process, EventNode node) {
+        installed.setNode(process, node);
+    }
+
+    static int slot(SimulationProcess process) {
+        return installed.getSlot(process);
+    }
+
+    static void slot(SimulationProcess process, int slot) {
+        installed.setSlot(process, slot);
+    }
+
+    /**
+     * @return 进程在事件队列中的节点，不在队列中时返回 null
+     */
+    protected abstract EventNode getNode(SimulationProcess process);
+
+    /**
+     * 设置进程在事件队列中的节点
+     */
+    protected abstract void setNode(SimulationProcess process, EventNode node);
+
+    /**
+     * @return 进程在不使用节点的事件队列中的编号，没有分配时返回 -1
+     */
+    protected abstract int getSlot(SimulationProcess process);
+
+    /**
+     * 设置进程在不使用节点的事件队列中的编号
+     */
+    protected abstract void setSlot(SimulationProcess process, int slot);
+
+}
@@ -0,0 +1,125 @@
+package org.javasim.internal;
+
+import java.util.Arrays;
+
+/**
+ * @description: 基于二叉堆的事件队列
+ * 插入与弹出队首的复杂度为 O(log n)，排序规则与 SimulationProcessQueue 完全一致：
+ * 事件时间相同的进程按照先进先出排列，prior 为 true 的进程排在所有同时间进程之前。
+ * @author: zhanyeye
+ * @create: 2026-10-18 10:12
+ **/
+public class SimulationProcessHeap extends AbstractEventQueue {
+
+    /**
+     * 堆数组，heap[0] 为队首
+     */
+    private EventNode[] heap = new EventNode[16];
+    /**
+     * 堆中元素的个数
+     */
+    private int size = 0;
+
+    @Override
+    void add(EventNode node) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        siftUp(size++, node);
+    }
+
+    @Override
+    void unlink(EventNode node) {
+        int index = node.index;
+        EventNode last = heap[--size];
+        heap[size] = null;
+        if (index < size) {
+            siftDown(index, last);
+            if (heap[index] == last) {
+                siftUp(index, last);
+            }
+        }
+    }
+
+    /**
+     * 原地修改排序键，然后向上或向下调整，一步完成
+     */
+    @Override
+    void move(EventNode node, double time, long seq) {
+        node.time = time;
+        node.seq = seq;
+        int index = node.index;
+        siftDown(index, node);
+        if (heap[index] == node) {
+            siftUp(index, node);
+        }
+    }
+
+    @Override
+    EventNode first() {
+        return size == 0 ? null : heap[0];
+    }
+
+    /**
+     * 堆不维护全序，需要扫描整个数组查找后继
+     */
+    @Override
+    EventNode next(EventNode node) {
+        EventNode succ = null;
+        for (int i = 0; i < size; i++) {
+            EventNode n = heap[i];
+            if (n.compareTo(node) > 0 && (succ == null || n.compareTo(succ) < 0)) {
+                succ = n;
+            }
+        }
+        return succ;
+    }
+
+    @Override
+    EventNode previousAtSameTime(EventNode node) {
+        EventNode pred = null;
+        for (int i = 0; i < size; i++) {
+            EventNode n = heap[i];
+            if (n.time == node.time && n.seq < node.seq && (pred == null || n.seq > pred.seq)) {
+                pred = n;
+            }
+        }
+        return pred;
+    }
+
+    private void siftUp(int index, EventNode node) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            EventNode p = heap[parent];
+            if (p.compareTo(node) <= 0) {
+                break;
+            }
+            heap[index] = p;
+            p.index = index;
+            index = parent;
+        }
+        heap[index] = node;
+        node.index = index;
+    }
+
+    private void siftDown(int index, EventNode node) {
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && heap[right].compareTo(heap[child]) < 0) {
+                child = right;
+            }
+            EventNode c = heap[child];
+            if (node.compareTo(c) <= 0) {
+                break;
+            }
+            heap[index] = c;
+            c.index = index;
+            index = child;
+        }
+        heap[index] = node;
+        node.index = index;
+    }
+
+}
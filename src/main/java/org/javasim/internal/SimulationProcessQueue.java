@@ -10,7 +10,7 @@ import java.util.*;
  * @author: zhanyeye
  * @create: 2020-08-18 12:03
  **/
-public class SimulationProcessQueue {
+public class SimulationProcessQueue implements EventQueue {
 
     /**
      * 仿真事件队列
@@ -150,18 +150,16 @@ public class SimulationProcessQueue {
             if (queue.isEmpty() || (current == null)) {
                 throw new NoSuchElementException();
             }
-            // todo 这里可以根据事件发生时间优化
-            int index = queue.indexOf(current);
-            if (index == queue.size() -1) {
-                // current是队列的最后一个元素
-                return null;
-            } else if (index != -1){
-                // 队列中存在current
-                return queue.get(index + 1);
-            } else {
-                // 队列中没有current,意味着current处于活动状态
-                return queue.get(0);
+            // 一次遍历找到 current 及其后继，不再 indexOf 之后再 get
+            Iterator<SimulationProcess> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() == current) {
+                    // current是队列的最后一个元素时返回 null
+                    return iterator.hasNext() ? iterator.next() : null;
+                }
             }
+            // 队列中没有current,意味着current处于活动状态
+            return queue.get(0);
         }
     }
 
@@ -0,0 +1,138 @@
+package org.javasim.internal;
+
+/**
+ * @description: 基于跳表 (W. Pugh, "Skip Lists: A Probabilistic Alternative to Balanced Trees", CACM 33(6), 1990)
+ * 的事件队列，节点按排序键保持全序
+ * 插入与移除任意节点的期望复杂度为 O(log n)，弹出队首为 O(1)；
+ * 最底层是双向链表，因此 getNext、insertBefore 与 insertAfter 查找相邻节点都是 O(1)，
+ * 适合每一步都要查看下一个事件的模型。
+ * @author: zhanyeye
+ * @create: 2026-10-18 19:20
+ **/
+public class SkipListQueue extends AbstractEventQueue {
+
+    /**
+     * 最大层数
+     */
+    private static final int MAX_LEVEL = 32;
+
+    /**
+     * 头结点在各层的后继
+     */
+    private final EventNode[] head = new EventNode[MAX_LEVEL];
+    /**
+     * 查找时记录各层的前驱，null 表示头结点
+     */
+    private final EventNode[] update = new EventNode[MAX_LEVEL];
+    /**
+     * 当前使用的层数
+     */
+    private int level = 1;
+    /**
+     * 生成随机层数的 xorshift 状态，只影响性能，不影响顺序
+     */
+    private long seed = 0x9E3779B97F4A7C15L;
+
+    @Override
+    void add(EventNode node) {
+        // 重用的节点保留创建时随机得到的层数，层数的分布不变
+        if (node.forward == null) {
+            node.forward = new EventNode[randomLevel()];
+        }
+        int height = node.forward.length;
+        findPredecessors(node, Math.max(height, level));
+        if (height > level) {
+            level = height;
+        }
+        for (int i = 0; i < height; i++) {
+            EventNode pred = update[i];
+            if (pred == null) {
+                node.forward[i] = head[i];
+                head[i] = node;
+            } else {
+                node.forward[i] = pred.forward[i];
+                pred.forward[i] = node;
+            }
+        }
+        node.prev = update[0];
+        if (node.forward[0] != null) {
+            node.forward[0].prev = node;
+        }
+    }
+
+    @Override
+    void unlink(EventNode node) {
+        int height = node.forward.length;
+        if (node.prev == null) {
+            // 队首节点在它所有的层中都是第一个
+            for (int i = 0; i < height; i++) {
+                head[i] = node.forward[i];
+            }
+        } else {
+            findPredecessors(node, height);
+            for (int i = 0; i < height; i++) {
+                if (update[i] == null) {
+                    head[i] = node.forward[i];
+                } else {
+                    update[i].forward[i] = node.forward[i];
+                }
+            }
+        }
+        if (node.forward[0] != null) {
+            node.forward[0].prev = node.prev;
+        }
+        for (int i = 0; i < height; i++) {
+            node.forward[i] = null;
+        }
+        node.prev = null;
+        while (level > 1 && head[level - 1] == null) {
+            level--;
+        }
+    }
+
+    @Override
+    EventNode first() {
+        return head[0];
+    }
+
+    @Override
+    EventNode next(EventNode node) {
+        return node.forward[0];
+    }
+
+    @Override
+    EventNode previousAtSameTime(EventNode node) {
+        EventNode prev = node.prev;
+        return prev != null && prev.time == node.time ? prev : null;
+    }
+
+    /**
+     * 从最高层开始查找 node 在前 levels 层中的前驱，结果保存在 update 中
+     */
+    private void findPredecessors(EventNode node, int levels) {
+        EventNode x = null;
+        for (int i = levels - 1; i >= 0; i--) {
+            if (i >= level) {
+                update[i] = null;
+                continue;
+            }
+            EventNode n = x == null ? head[i] : x.forward[i];
+            while (n != null && n.compareTo(node) < 0) {
+                x = n;
+                n = n.forward[i];
+            }
+            update[i] = x;
+        }
+    }
+
+    /**
+     * 每升一层的概率为 1/4
+     */
+    private int randomLevel() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return Math.min(MAX_LEVEL, 1 + Long.numberOfTrailingZeros(seed | Long.MIN_VALUE) / 2);
+    }
+
+}
@@ -0,0 +1,84 @@
+package org.javasim.internal;
+
+import java.util.Arrays;
+
+/**
+ * @description: 基于有序数组的事件队列，适合进程很少的仿真
+ * 数组按排序键降序存放，队首在数组末尾，弹出队首为 O(1)；
+ * 插入与移除用二分查找定位，再整体移动数组元素，元素很少时比堆更快。
+ * 数组本身有序，getNext 与查找同时间的相邻节点都是 O(log n)。
+ * @author: zhanyeye
+ * @create: 2026-10-18 20:40
+ **/
+public class SortedArrayQueue extends AbstractEventQueue {
+
+    /**
+     * 按排序键降序存放的节点，nodes[size - 1] 为队首
+     */
+    private EventNode[] nodes = new EventNode[16];
+    /**
+     * 元素个数
+     */
+    private int size = 0;
+
+    @Override
+    void add(EventNode node) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+        }
+        int index = insertionPoint(node);
+        System.arraycopy(nodes, index, nodes, index + 1, size - index);
+        nodes[index] = node;
+        size++;
+    }
+
+    @Override
+    void unlink(EventNode node) {
+        int index = indexOf(node);
+        System.arraycopy(nodes, index + 1, nodes, index, size - index - 1);
+        nodes[--size] = null;
+    }
+
+    @Override
+    EventNode first() {
+        return size == 0 ? null : nodes[size - 1];
+    }
+
+    @Override
+    EventNode next(EventNode node) {
+        int index = indexOf(node);
+        return index == 0 ? null : nodes[index - 1];
+    }
+
+    @Override
+    EventNode previousAtSameTime(EventNode node) {
+        int index = indexOf(node);
+        EventNode prev = index + 1 < size ? nodes[index + 1] : null;
+        return prev != null && prev.time == node.time ? prev : null;
+    }
+
+    /**
+     * @return 第一个排在 node 之前的元素的下标，即 node 应该插入的位置
+     */
+    private int insertionPoint(EventNode node) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (nodes[mid].compareTo(node) > 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 排序键互不相同，二分查找一定能找到节点自身
+     */
+    private int indexOf(EventNode node) {
+        return insertionPoint(node);
+    }
+
+}
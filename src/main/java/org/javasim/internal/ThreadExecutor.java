@@ -0,0 +1,20 @@
+package org.javasim.internal;
+
+/**
+ * @description: 为每个进程创建一个平台线程，默认的执行方式
+ * @author: zhanyeye
+ * @create: 2026-10-18 22:10
+ **/
+public class ThreadExecutor implements ProcessExecutor {
+
+    @Override
+    public Execution create(Runnable body, String name) {
+        return new HandoffExecution(body, name) {
+            @Override
+            public void start() {
+                new Thread(this, name).start();
+            }
+        };
+    }
+
+}
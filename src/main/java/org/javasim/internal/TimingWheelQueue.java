@@ -0,0 +1,264 @@
+package org.javasim.internal;
+
+/**
+ * @description: 分层时间轮 (G. Varghese, T. Lauck, "Hashed and Hierarchical Timing Wheels",
+ * SOSP 1987)，适用于事件时间为固定精度整数倍的模型
+ * 事件时间按精度 resolution 换算为 tick，共 8 层、每层 256 个槽，第 L 层的一个槽覆盖 256^L 个 tick。
+ * 插入时根据 tick 与当前 tick 的最高不同字节直接定位到槽，复杂度为 O(1)；
+ * 弹出时逐个排空第 0 层的槽，第 0 层转完一圈后把上一层的下一个槽逐级下放。
+ * 更高层的槽无序存放，只有第 0 层的槽按排序键有序，因此同一 tick 内的顺序与 SimulationProcessQueue 一致
+ * （先进先出，prior 优先）；事件时间不是精度的整数倍时也能得到正确的顺序，只是同一个槽中会有不同的事件时间。
+ * @author: zhanyeye
+ * @create: 2026-10-18 16:55
+ **/
+public class TimingWheelQueue extends AbstractEventQueue {
+
+    private static final int LEVELS = 8;
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /**
+     * 一个 tick 对应的仿真时间
+     */
+    private final double resolution;
+    /**
+     * 时间轮的槽，wheel[level][slot]
+     */
+    private final EventBucket[][] wheel = new EventBucket[LEVELS][SLOTS];
+    /**
+     * 每层非空槽的位图
+     */
+    private final long[][] occupied = new long[LEVELS][SLOTS / Long.SIZE];
+    /**
+     * 当前 tick，时间轮中不存在更早的事件
+     */
+    private long current = 0;
+    /**
+     * 元素个数
+     */
+    private int size = 0;
+
+    public TimingWheelQueue() {
+        this(1.0);
+    }
+
+    /**
+     * @param resolution 一个 tick 对应的仿真时间
+     */
+    public TimingWheelQueue(double resolution) {
+        if (!(resolution > 0)) {
+            throw new IllegalArgumentException("Invalid resolution " + resolution);
+        }
+        this.resolution = resolution;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[level][slot] = new EventBucket();
+                wheel[level][slot].id = level * SLOTS + slot;
+            }
+        }
+    }
+
+    /**
+     * @return 一个 tick 对应的仿真时间
+     */
+    public double getResolution() {
+        return resolution;
+    }
+
+    @Override
+    void add(EventNode node) {
+        long tick = tick(node.time);
+        if (size == 0) {
+            current = tick;
+        } else if (tick < current) {
+            rewind(tick);
+        }
+        size++;
+        place(node, tick);
+    }
+
+    @Override
+    void unlink(EventNode node) {
+        EventBucket bucket = (EventBucket) node.owner;
+        bucket.remove(node);
+        size--;
+        if (bucket.size == 0) {
+            clearBit(bucket.id / SLOTS, bucket.id & SLOT_MASK);
+        }
+    }
+
+    @Override
+    EventNode first() {
+        if (size == 0) {
+            return null;
+        }
+        for (;;) {
+            int slot = nextOccupied(0, (int) current & SLOT_MASK);
+            if (slot >= 0) {
+                current = (current & ~(long) SLOT_MASK) | slot;
+                return wheel[0][slot].head;
+            }
+            cascade();
+        }
+    }
+
+    /**
+     * 各个槽覆盖的时间区间互不相交，所以第 0 层槽中的后继就是全局的后继
+     */
+    @Override
+    EventNode next(EventNode node) {
+        if (node.next != null && isSorted((EventBucket) node.owner)) {
+            return node.next;
+        }
+        EventNode succ = null;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = nextOccupied(level, 0); slot >= 0; slot = nextOccupied(level, slot + 1)) {
+                EventBucket bucket = wheel[level][slot];
+                if (level > 0) {
+                    succ = bucket.after(node, succ);
+                } else if (bucket.tail.compareTo(node) > 0) {
+                    EventNode n = bucket.head;
+                    while (n.compareTo(node) <= 0) {
+                        n = n.next;
+                    }
+                    if (succ == null || n.compareTo(succ) < 0) {
+                        succ = n;
+                    }
+                }
+            }
+        }
+        return succ;
+    }
+
+    /**
+     * 同一 tick 的节点一定在同一个槽中，在第 0 层中还是相邻的
+     */
+    @Override
+    EventNode previousAtSameTime(EventNode node) {
+        EventBucket bucket = (EventBucket) node.owner;
+        if (isSorted(bucket)) {
+            EventNode prev = node.prev;
+            return prev != null && prev.time == node.time ? prev : null;
+        }
+        EventNode pred = null;
+        for (EventNode n = bucket.head; n != null; n = n.next) {
+            if (n.time == node.time && n.seq < node.seq && (pred == null || n.seq > pred.seq)) {
+                pred = n;
+            }
+        }
+        return pred;
+    }
+
+    private long tick(double time) {
+        return Math.max(0, (long) Math.floor(time / resolution));
+    }
+
+    /**
+     * 根据 tick 与当前 tick 的最高不同字节确定所在的层与槽
+     * 只有第 0 层的槽需要有序，更高层的槽在下放时才排序
+     */
+    private void place(EventNode node, long tick) {
+        long diff = tick ^ current;
+        if (diff < SLOTS) {
+            int slot = (int) tick & SLOT_MASK;
+            wheel[0][slot].insertSorted(node);
+            setBit(0, slot);
+        } else {
+            int level = (63 - Long.numberOfLeadingZeros(diff)) / SLOT_BITS;
+            int slot = (int) (tick >>> (level * SLOT_BITS)) & SLOT_MASK;
+            wheel[level][slot].append(node);
+            setBit(level, slot);
+        }
+    }
+
+    private static boolean isSorted(EventBucket bucket) {
+        return bucket.id < SLOTS;
+    }
+
+    /**
+     * 插入的事件早于当前 tick 时（例如查看队首时已经推进了时间轮），把当前 tick 退回。
+     * 高于最高不同字节的层中的事件位置依然有效，只需要重新放置更低层中的事件，
+     * 它们正是上一次推进时从该层下放的事件。
+     */
+    private void rewind(long tick) {
+        int top = (63 - Long.numberOfLeadingZeros(tick ^ current)) / SLOT_BITS;
+        EventNode pending = null;
+        for (int level = 0; level < top; level++) {
+            for (int slot = nextOccupied(level, 0); slot >= 0; slot = nextOccupied(level, slot + 1)) {
+                EventBucket bucket = wheel[level][slot];
+                EventNode n = bucket.head;
+                while (n != null) {
+                    EventNode next = n.next;
+                    n.next = pending;
+                    pending = n;
+                    n = next;
+                }
+                bucket.clear();
+                clearBit(level, slot);
+            }
+        }
+        current = tick;
+        while (pending != null) {
+            EventNode next = pending.next;
+            place(pending, tick(pending.time));
+            pending = next;
+        }
+    }
+
+    /**
+     * 第 0 层已经转完一圈，找到更高层中下一个非空的槽，把当前 tick 推进到该槽的起点，
+     * 并把槽中的事件重新放入更低的层
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = level * SLOT_BITS;
+            int slot = nextOccupied(level, ((int) (current >>> shift) & SLOT_MASK) + 1);
+            if (slot >= 0) {
+                long high = shift + SLOT_BITS < Long.SIZE ? (current >>> (shift + SLOT_BITS)) << (shift + SLOT_BITS) : 0;
+                current = high | ((long) slot << shift);
+                EventBucket bucket = wheel[level][slot];
+                EventNode n = bucket.head;
+                bucket.clear();
+                clearBit(level, slot);
+                while (n != null) {
+                    EventNode next = n.next;
+                    place(n, tick(n.time));
+                    n = next;
+                }
+                return;
+            }
+        }
+        throw new IllegalStateException("Timing wheel is inconsistent");
+    }
+
+    /**
+     * @return 第 level 层中下标不小于 from 的第一个非空槽，没有时返回 -1
+     */
+    private int nextOccupied(int level, int from) {
+        long[] bits = occupied[level];
+        for (int word = from / Long.SIZE; word < bits.length; word++) {
+            long w = bits[word];
+            if (word == from / Long.SIZE) {
+                w &= -1L << (from % Long.SIZE);
+            }
+            if (w != 0) {
+                return word * Long.SIZE + Long.numberOfTrailingZeros(w);
+            }
+        }
+        return -1;
+    }
+
+    private boolean isSet(int level, int slot) {
+        return (occupied[level][slot / Long.SIZE] & (1L << slot)) != 0;
+    }
+
+    private void setBit(int level, int slot) {
+        occupied[level][slot / Long.SIZE] |= 1L << slot;
+    }
+
+    private void clearBit(int level, int slot) {
+        occupied[level][slot / Long.SIZE] &= ~(1L << slot);
+    }
+
+}
@@ -0,0 +1,29 @@
+package org.javasim.internal;
+
+/**
+ * @description: 为每个进程创建一个虚拟线程，需要 JDK 21 及以上
+ * @author: zhanyeye
+ * @create: 2026-10-18 22:10
+ **/
+public class VirtualThreadExecutor implements ProcessExecutor {
+
+    /**
+     * @throws UnsupportedOperationException 运行时不支持虚拟线程
+     */
+    public VirtualThreadExecutor() {
+        if (!VirtualThreads.isAvailable()) {
+            throw new UnsupportedOperationException("Virtual threads require JDK 21 or later");
+        }
+    }
+
+    @Override
+    public Execution create(Runnable body, String name) {
+        return new HandoffExecution(body, name) {
+            @Override
+            public void start() {
+                VirtualThreads.start(this, name);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,84 @@
+package org.javasim.internal;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * @description: 在 JDK 21 及以上的虚拟线程上运行仿真进程
+ * 通过反射调用 Thread.ofVirtual()，因此同一个按 Java 8 编译的 jar 可以在所有版本上运行：
+ * 系统属性 org.javasim.threads 为 "virtual" 并且运行时支持虚拟线程时，进程在虚拟线程上执行，
+ * 否则仍然使用平台线程，见 ProcessExecutorFactory。
+ * @author: zhanyeye
+ * @create: 2026-10-18 21:30
+ **/
+public final class VirtualThreads {
+
+    /**
+     * Thread.ofVirtual()，运行时不支持时为 null
+     */
+    private static final Method OF_VIRTUAL;
+    /**
+     * Thread.Builder.name(String)
+     */
+    private static final Method NAME;
+    /**
+     * Thread.Builder.start(Runnable)
+     */
+    private static final Method START;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method start = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class);
+            start = builder.getMethod("start", Runnable.class);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        START = start;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return 运行时是否支持虚拟线程
+     */
+    public static boolean isAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * 在新的虚拟线程上执行任务
+     * @param task 需要执行的任务
+     * @param name 线程名
+     * @return 已经启动的虚拟线程
+     * @throws UnsupportedOperationException 运行时不支持虚拟线程
+     */
+    public static Thread start(Runnable task, String name) {
+        if (OF_VIRTUAL == null) {
+            throw new UnsupportedOperationException("Virtual threads require JDK 21 or later");
+        }
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name);
+            return (Thread) START.invoke(builder, task);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+}
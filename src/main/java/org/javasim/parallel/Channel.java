@@ -0,0 +1,71 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.parallel;
+
+/**
+ * 两个逻辑进程之间声明了前瞻量的单向通道
+ * A one way link from one logical process to another, declared with
+ * connect on a conservative engine. Every message sent over the channel
+ * is delayed by at least its lookahead, which is what allows the receiver
+ * to handle events safely without waiting for the sender to catch up.
+ */
+
+public final class Channel {
+    private final LogicalProcess<?> from;
+    private final LogicalProcess<?> to;
+    private final double lookahead;
+    /**
+     * 接收者不会再从通道收到早于该时间的消息，由发送者单调增加 (null message)
+     */
+    volatile double bound = 0.0;
+
+    Channel(LogicalProcess<?> from, LogicalProcess<?> to, double lookahead) {
+        this.from = from;
+        this.to = to;
+        this.lookahead = lookahead;
+    }
+
+    /**
+     * @return the sending logical process.
+     */
+    public LogicalProcess<?> from() {
+        return from;
+    }
+
+    /**
+     * @return the receiving logical process.
+     */
+    public LogicalProcess<?> to() {
+        return to;
+    }
+
+    /**
+     * @return the minimum delay of a message sent over the channel.
+     */
+    public double lookahead() {
+        return lookahead;
+    }
+
+    @Override
+    public String toString() {
+        return "channel " + from + " -> " + to + " (" + lookahead + ")";
+    }
+}
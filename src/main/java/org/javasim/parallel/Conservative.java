@@ -0,0 +1,369 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.parallel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.javasim.SimulationException;
+
+/**
+ * 保守 (Chandy-Misra-Bryant) 并行仿真引擎
+ * Executes a model partitioned into logical processes conservatively, on a
+ * number of threads, for models where rolling back is impractical, such as
+ * those which perform external I/O or have very large state. Logical
+ * processes only interact through the channels declared with connect, and
+ * every message sent over a channel is delayed by at least its lookahead.
+ *
+ * A logical process only handles an event once no earlier message can
+ * still arrive on any of its input channels, so events are never undone
+ * and saveState is not needed. After handling events each logical process
+ * sends null messages: it promises every receiver that nothing earlier than
+ * its own earliest possible time plus the lookahead of the channel will
+ * follow. Because every lookahead is positive these promises keep
+ * increasing, so the model cannot deadlock, although a model with small
+ * lookaheads in a cycle will spend much of its time exchanging them.
+ *
+ * The results are the same as executing the events one at a time in
+ * timestamp order, whatever the number of threads.
+ */
+
+public class Conservative extends Engine {
+    /**
+     * 工作线程数
+     */
+    private final int threads;
+    /**
+     * 仿真结束时间
+     */
+    private double endTime;
+    /**
+     * 按编号记录执行逻辑进程的工作线程，只在执行期间有效
+     */
+    private volatile Worker[] owners;
+    /**
+     * 所有工作线程
+     */
+    private volatile List<Worker> workers;
+    /**
+     * 已经处理完结束时间之前所有事件的逻辑进程数
+     */
+    private final AtomicInteger finished = new AtomicInteger();
+    /**
+     * 是否已经结束
+     */
+    private volatile boolean done;
+    /**
+     * 第一个处理消息时抛出的异常
+     */
+    private volatile Throwable failure;
+    private long processedEvents = 0;
+    private long nullMessages = 0;
+
+    /**
+     * @param threads the number of threads to execute on.
+     */
+    public Conservative(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads " + threads);
+        }
+
+        this.threads = threads;
+    }
+
+    /**
+     * Add a logical process. The logical processes are divided between the
+     * threads in the order they are added.
+     *
+     * @param process the logical process.
+     */
+    public void add(LogicalProcess<?> process) {
+        super.add(process);
+    }
+
+    /**
+     * Declare a channel from one logical process to another. Both must
+     * already have been added, and there can only be one channel between
+     * them in each direction.
+     *
+     * @param from      the sending logical process.
+     * @param to        the receiving logical process.
+     * @param lookahead the minimum delay of messages over the channel, which must be positive.
+     * @return the channel.
+     */
+    public Channel connect(LogicalProcess<?> from, LogicalProcess<?> to, double lookahead) {
+        return super.connect(from, to, lookahead);
+    }
+
+    /**
+     * Run the simulation until every message up to endTime has been handled.
+     * Messages later than endTime stay pending, so the simulation can be
+     * continued by calling run again.
+     *
+     * @param endTime the time to run until.
+     * @throws SimulationException thrown if a logical process fails.
+     */
+    public void run(double endTime) throws SimulationException {
+        synchronized (this) {
+            if (running) {
+                throw new IllegalStateException("Already running.");
+            }
+            running = true;
+        }
+
+        this.endTime = endTime;
+        done = processes.isEmpty();
+        failure = null;
+        finished.set(0);
+
+        int count = Math.min(threads, Math.max(1, processes.size()));
+        List<Worker> workers = new ArrayList<Worker>(count);
+        Worker[] owner = new Worker[processes.size()];
+
+        for (LogicalProcess<?> process : processes) {
+            process.finished = false;
+        }
+
+        for (int i = 0; i < count; i++) {
+            workers.add(new Worker());
+        }
+        for (int i = 0; i < processes.size(); i++) {
+            owner[i] = workers.get(i % count);
+            owner[i].processes.add(processes.get(i));
+        }
+        owners = owner;
+        this.workers = workers;
+
+        try {
+            for (int i = 0; i < count; i++) {
+                Worker worker = workers.get(i);
+
+                worker.thread = new Thread(worker, "javasim-conservative-" + i);
+            }
+            for (Worker worker : workers) {
+                worker.thread.start();
+            }
+            for (Worker worker : workers) {
+                worker.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop();
+            throw new SimulationException("Interrupted while running.");
+        } finally {
+            owners = null;
+            this.workers = null;
+            running = false;
+        }
+
+        synchronized (this) {
+            for (Worker worker : workers) {
+                processedEvents += worker.processed;
+                nullMessages += worker.nulls;
+            }
+        }
+
+        if (failure != null) {
+            SimulationException e = new SimulationException("Logical process failed: " + failure);
+
+            e.initCause(failure);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of events handled.
+     */
+    public synchronized long getEventsProcessed() {
+        return processedEvents;
+    }
+
+    /**
+     * @return the number of null messages sent, that is how many times the
+     * promise on a channel was increased.
+     */
+    public synchronized long getNullMessages() {
+        return nullMessages;
+    }
+
+    /**
+     * 初始事件不能早于已经向其它逻辑进程做出的承诺
+     */
+    @Override
+    synchronized void schedule(LogicalProcess<?> process, double time, Object payload) {
+        if (time < process.promised) {
+            throw new IllegalArgumentException("Invalid time " + time + ", events up to "
+                    + process.promised + " have been handled.");
+        }
+        super.schedule(process, time, payload);
+    }
+
+    @Override
+    void check(LogicalProcess<?> sender, LogicalProcess<?> receiver, double delay) {
+        checkChannel(sender, receiver, delay);
+    }
+
+    @Override
+    void deliver(Message message) {
+        super.deliver(message);
+        wakeOwner(message.receiver());
+    }
+
+    /**
+     * 唤醒执行该逻辑进程的工作线程
+     */
+    private void wakeOwner(LogicalProcess<?> process) {
+        Worker[] owner = owners;
+
+        if (owner != null) {
+            owner[process.id].wake();
+        }
+    }
+
+    private void stop() {
+        done = true;
+
+        for (Worker worker : workers) {
+            worker.wake();
+        }
+    }
+
+    /**
+     * 执行一组逻辑进程的工作线程
+     */
+    private final class Worker implements Runnable {
+        final List<LogicalProcess<?>> processes = new ArrayList<LogicalProcess<?>>();
+        Thread thread;
+        /**
+         * 上次检查之后是否收到了消息或者输入通道的承诺增加了
+         */
+        volatile boolean signalled = false;
+        long processed = 0;
+        long nulls = 0;
+
+        void wake() {
+            signalled = true;
+            LockSupport.unpark(thread);
+        }
+
+        public void run() {
+            while (!done) {
+                // 先清除标记再检查，之后到达的消息或承诺一定会再次设置它
+                signalled = false;
+                boolean progress = false;
+
+                for (int i = 0; i < processes.size() && !done; i++) {
+                    progress |= advance(processes.get(i));
+                }
+
+                if (failure != null || finished.get() == Conservative.this.processes.size()) {
+                    stop();
+                } else if (!progress) {
+                    while (!signalled && !done) {
+                        LockSupport.park(this);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 处理逻辑进程所有安全的事件，然后更新输出通道的承诺
+         * @return 是否处理了事件
+         */
+        private boolean advance(LogicalProcess<?> process) {
+            // 先读取输入通道的承诺再取出消息：承诺之前发送的消息都已经在 inbox 中，
+            // 之后发送的消息不会早于读取到的承诺
+            double bound = Double.POSITIVE_INFINITY;
+
+            for (int i = 0; i < process.inputs.size(); i++) {
+                bound = Math.min(bound, process.inputs.get(i).bound);
+            }
+
+            boolean handled = false;
+
+            for (;;) {
+                Message message;
+
+                while ((message = process.inbox.poll()) != null) {
+                    process.pending.add(message);
+                }
+
+                if (process.pending.isEmpty()) {
+                    break;
+                }
+
+                Message first = process.pending.first();
+
+                if (first.time() >= bound || first.time() > endTime || failure != null) {
+                    break;
+                }
+
+                handle(process);
+                handled = true;
+            }
+
+            double next = process.pending.isEmpty() ? Double.POSITIVE_INFINITY : process.pending.first().time();
+            // 不承诺晚于结束时间，之后仍然可以加入新的初始事件并继续执行
+            double earliest = Math.min(Math.min(next, bound), endTime);
+
+            process.promised = Math.max(process.promised, earliest);
+
+            for (Channel channel : process.outputs.values()) {
+                double promise = earliest + channel.lookahead();
+
+                if (promise > channel.bound) {
+                    channel.bound = promise;
+                    nulls++;
+                    wakeOwner(channel.to());
+                }
+            }
+
+            if (!process.finished && bound > endTime && next > endTime) {
+                process.finished = true;
+                finished.incrementAndGet();
+            }
+            return handled;
+        }
+
+        /**
+         * 处理的事件不会被撤销，处理之后立即提交
+         */
+        private <S> void handle(LogicalProcess<S> process) {
+            Message message = process.pending.pollFirst();
+
+            process.current = new LogicalProcess.Processed<S>(message, null, process.lvt, process.sent);
+            process.lvt = message.time();
+
+            try {
+                process.handle(message);
+                process.commit(message);
+            } catch (Throwable e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            } finally {
+                process.current = null;
+            }
+            processed++;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @description: 并行执行引擎的公共部分：逻辑进程的登记、初始事件与消息的投递
+ * 每个逻辑进程只由一个工作线程执行，其它线程发来的消息放在它的 inbox 中，由执行它的线程取出。
+ * @author: zhanyeye
+ * @create: 2026-10-18 23:20
+ **/
+abstract class Engine {
+
+    /**
+     * 已加入的逻辑进程，下标即编号
+     */
+    final List<LogicalProcess<?>> processes = new ArrayList<LogicalProcess<?>>();
+    /**
+     * 初始事件的序号
+     */
+    private long initial = 0;
+    /**
+     * 是否正在执行
+     */
+    volatile boolean running = false;
+
+    /**
+     * 加入逻辑进程，只能在执行之前调用
+     */
+    synchronized void add(LogicalProcess<?> process) {
+        if (running) {
+            throw new IllegalStateException("Cannot add logical processes while running.");
+        }
+        if (process.engine != null) {
+            throw new IllegalArgumentException(process + " has already been added.");
+        }
+        process.engine = this;
+        process.id = processes.size();
+        processes.add(process);
+    }
+
+    synchronized void schedule(LogicalProcess<?> process, double time, Object payload) {
+        if (running) {
+            throw new IllegalStateException("Initial events must be scheduled before running.");
+        }
+        if (time < process.lvt) {
+            throw new IllegalArgumentException("Invalid time " + time);
+        }
+        deliver(new Message(time, null, process, payload, -1, initial++));
+    }
+
+    /**
+     * 连接两个逻辑进程，只能在执行之前调用
+     */
+    synchronized Channel connect(LogicalProcess<?> from, LogicalProcess<?> to, double lookahead) {
+        if (running) {
+            throw new IllegalStateException("Cannot connect logical processes while running.");
+        }
+        if (from.engine != this || to.engine != this) {
+            throw new IllegalArgumentException("Logical processes must be added before they are connected.");
+        }
+        if (from == to) {
+            throw new IllegalArgumentException("A logical process does not need a channel to itself.");
+        }
+        if (!(lookahead > 0)) {
+            throw new IllegalArgumentException("Invalid lookahead " + lookahead);
+        }
+        if (from.outputs.containsKey(to)) {
+            throw new IllegalArgumentException(from + " is already connected to " + to);
+        }
+
+        Channel channel = new Channel(from, to, lookahead);
+
+        from.outputs.put(to, channel);
+        to.inputs.add(channel);
+        return channel;
+    }
+
+    /**
+     * 保守执行的引擎要求发往其它逻辑进程的消息经过通道，并且延迟不小于通道的前瞻量
+     */
+    void check(LogicalProcess<?> sender, LogicalProcess<?> receiver, double delay) {
+    }
+
+    /**
+     * 检查消息是否经过声明的通道
+     */
+    static void checkChannel(LogicalProcess<?> sender, LogicalProcess<?> receiver, double delay) {
+        if (receiver == sender) {
+            return;
+        }
+
+        Channel channel = sender.outputs.get(receiver);
+
+        if (channel == null) {
+            throw new IllegalArgumentException("No channel from " + sender + " to " + receiver);
+        }
+        if (delay < channel.lookahead()) {
+            throw new IllegalArgumentException("Delay " + delay + " is less than the lookahead of the " + channel);
+        }
+    }
+
+    /**
+     * 投递消息，由接收者的工作线程取出
+     */
+    void deliver(Message message) {
+        message.receiver().inbox.add(message);
+    }
+}
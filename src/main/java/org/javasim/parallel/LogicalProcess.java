@@ -0,0 +1,254 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.parallel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 并行仿真中的逻辑进程：模型的一个分区，拥有自己的时钟与事件表
+ * A logical process: one partition of a model which is executed in
+ * parallel with the others. It has its own clock and its own list of
+ * pending messages, and it only interacts with other logical processes by
+ * sending them timestamped messages. Each message is an event, which is
+ * handled by handle at the time of the message.
+ *
+ * The state of the partition must be held by the logical process (or by
+ * objects only it refers to). Engines which execute optimistically, such
+ * as TimeWarp, roll a logical process back by restoring a state saved with
+ * saveState, so for them saveState must return a copy of the whole state
+ * which the handler may change, including any random number generators.
+ * Engines which execute conservatively, such as Conservative, never roll
+ * back; instead the logical process may only send to other logical
+ * processes over the channels declared for it.
+ *
+ * @param <S> the type of the saved state.
+ */
+
+public abstract class LogicalProcess<S> {
+    /**
+     * 编号，由执行引擎在加入时分配
+     */
+    int id = -1;
+    /**
+     * 本地虚拟时间
+     */
+    double lvt = 0.0;
+    /**
+     * 已发送的消息个数，回滚时恢复
+     */
+    long sent = 0;
+    /**
+     * 等待处理的消息
+     */
+    final TreeSet<Message> pending = new TreeSet<Message>();
+    /**
+     * 其它线程发来的消息与反消息
+     */
+    final ConcurrentLinkedQueue<Message> inbox = new ConcurrentLinkedQueue<Message>();
+    /**
+     * 已处理但尚未提交的事件，按处理顺序排列
+     */
+    final ArrayDeque<Processed<S>> processed = new ArrayDeque<Processed<S>>();
+    /**
+     * 先于对应消息到达的反消息所撤销的消息
+     */
+    final Set<Message> cancelled = new HashSet<Message>();
+    /**
+     * 正在处理的事件，为 null 时不能发送消息
+     */
+    Processed<S> current = null;
+    /**
+     * 所属的执行引擎
+     */
+    Engine engine = null;
+    /**
+     * 发往其它逻辑进程的通道
+     */
+    final Map<LogicalProcess<?>, Channel> outputs = new HashMap<LogicalProcess<?>, Channel>();
+    /**
+     * 从其它逻辑进程接收消息的通道
+     */
+    final List<Channel> inputs = new ArrayList<Channel>();
+    /**
+     * 保守执行时已经向输出通道承诺的时间下界，之后处理的事件都不早于它
+     */
+    double promised = 0.0;
+    /**
+     * 保守执行时是否已经处理完结束时间之前的所有事件
+     */
+    boolean finished = false;
+
+    /**
+     * The number of the logical process, assigned when it is added to an
+     * engine.
+     *
+     * @return the number, or -1 if it has not been added.
+     */
+    public final int id() {
+        return id;
+    }
+
+    /**
+     * @return the local simulation time: the time of the message being
+     * handled, or of the last message handled.
+     */
+    public final double now() {
+        return lvt;
+    }
+
+    /**
+     * Schedule an initial event for this logical process. This can only be
+     * called before the simulation is run.
+     *
+     * @param time    the time of the event.
+     * @param payload the contents of the event.
+     */
+    public final void scheduleAt(double time, Object payload) {
+        if (engine == null) {
+            throw new IllegalStateException("Logical process has not been added to an engine.");
+        }
+
+        engine.schedule(this, time, payload);
+    }
+
+    /**
+     * Handle a message. This is called at the time of the message, and may
+     * change the state of the logical process and send further messages.
+     *
+     * @param message the message.
+     */
+    protected abstract void handle(Message message);
+
+    /**
+     * Send a message to another logical process, or to this one. The delay
+     * must be positive, so that every event only affects the future. Engines
+     * which execute conservatively only allow messages to other logical
+     * processes over a declared Channel, delayed by at least its lookahead.
+     *
+     * @param receiver the logical process to send to.
+     * @param delay    the delay after the current time.
+     * @param payload  the contents of the message.
+     */
+    protected final void send(LogicalProcess<?> receiver, double delay, Object payload) {
+        if (current == null) {
+            throw new IllegalStateException("Messages can only be sent while handling a message.");
+        }
+        if (!(delay > 0)) {
+            throw new IllegalArgumentException("Invalid delay " + delay);
+        }
+        if (receiver.engine != engine) {
+            throw new IllegalArgumentException("Logical process " + receiver + " belongs to another engine.");
+        }
+
+        engine.check(this, receiver, delay);
+
+        Message message = new Message(lvt + delay, this, receiver, payload, id, sent++);
+
+        current.sent.add(message);
+        engine.deliver(message);
+    }
+
+    /**
+     * Send a message over a channel from this logical process.
+     *
+     * @param channel the channel.
+     * @param delay   the delay after the current time, at least the lookahead of the channel.
+     * @param payload the contents of the message.
+     */
+    protected final void send(Channel channel, double delay, Object payload) {
+        if (channel.from() != this) {
+            throw new IllegalArgumentException(channel + " does not start at " + this);
+        }
+
+        send(channel.to(), delay, payload);
+    }
+
+    /**
+     * Send a message to this logical process.
+     *
+     * @param delay   the delay after the current time.
+     * @param payload the contents of the message.
+     */
+    protected final void schedule(double delay, Object payload) {
+        send(this, delay, payload);
+    }
+
+    /**
+     * Return a copy of the state of the logical process, which can be given
+     * to restoreState to undo the events handled since. Engines which never
+     * roll back do not call it.
+     *
+     * @return the saved state.
+     */
+    protected S saveState() {
+        return null;
+    }
+
+    /**
+     * Restore a state returned by saveState.
+     *
+     * @param state the saved state.
+     */
+    protected void restoreState(S state) {
+        throw new UnsupportedOperationException(getClass().getName() + " cannot be rolled back: override saveState and restoreState.");
+    }
+
+    /**
+     * Called once the event of the message can no longer be undone, in
+     * timestamp order. Output which must not be repeated after a rollback,
+     * such as printing, belongs here rather than in handle.
+     *
+     * @param message the message whose event has been committed.
+     */
+    protected void commit(Message message) {
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + id + "]";
+    }
+
+    /**
+     * 已处理的事件：消息、处理之前的状态以及处理时发送的消息
+     */
+    static final class Processed<S> {
+        final Message message;
+        final S state;
+        final double lvt;
+        final long count;
+        final List<Message> sent = new ArrayList<Message>(2);
+
+        Processed(Message message, S state, double lvt, long count) {
+            this.message = message;
+            this.state = state;
+            this.lvt = lvt;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.parallel;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 逻辑进程之间传递的带时间戳的消息
+ * A timestamped message sent from one logical process to another. Messages
+ * are received in timestamp order; messages with the same timestamp are
+ * received in the order of their sender, and then in the order in which
+ * the sender sent them, so the order does not depend on how the logical
+ * processes are executed.
+ */
+
+public final class Message implements Comparable<Message> {
+    /**
+     * 消息的唯一编号，只用于区分重新发送的相同消息
+     */
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private final double time;
+    private final LogicalProcess<?> sender;
+    private final LogicalProcess<?> receiver;
+    private final Object payload;
+    /**
+     * 发送者的编号，初始事件为 -1
+     */
+    private final int senderId;
+    /**
+     * 发送者发送的第几个消息
+     */
+    private final long sequence;
+    private final long id;
+    /**
+     * 反消息所撤销的消息，普通消息为 null
+     */
+    final Message cancels;
+
+    Message(double time, LogicalProcess<?> sender, LogicalProcess<?> receiver, Object payload, int senderId,
+            long sequence) {
+        this.time = time;
+        this.sender = sender;
+        this.receiver = receiver;
+        this.payload = payload;
+        this.senderId = senderId;
+        this.sequence = sequence;
+        this.id = IDS.incrementAndGet();
+        this.cancels = null;
+    }
+
+    /**
+     * 创建撤销 positive 的反消息
+     */
+    Message(Message positive) {
+        this.time = positive.time;
+        this.sender = positive.sender;
+        this.receiver = positive.receiver;
+        this.payload = null;
+        this.senderId = positive.senderId;
+        this.sequence = positive.sequence;
+        this.id = IDS.incrementAndGet();
+        this.cancels = positive;
+    }
+
+    /**
+     * @return the simulation time at which the message is received.
+     */
+    public double time() {
+        return time;
+    }
+
+    /**
+     * @return the logical process which sent the message, or null for an
+     * initial event.
+     */
+    public LogicalProcess<?> sender() {
+        return sender;
+    }
+
+    /**
+     * @return the logical process which receives the message.
+     */
+    public LogicalProcess<?> receiver() {
+        return receiver;
+    }
+
+    /**
+     * @return the contents of the message.
+     */
+    public Object payload() {
+        return payload;
+    }
+
+    boolean isAnti() {
+        return cancels != null;
+    }
+
+    @Override
+    public int compareTo(Message other) {
+        if (time != other.time) {
+            return time < other.time ? -1 : 1;
+        }
+        if (senderId != other.senderId) {
+            return senderId < other.senderId ? -1 : 1;
+        }
+        if (sequence != other.sequence) {
+            return sequence < other.sequence ? -1 : 1;
+        }
+        return id < other.id ? -1 : (id == other.id ? 0 : 1);
+    }
+
+    @Override
+    public String toString() {
+        return (isAnti() ? "anti-message " : "message ") + time + " to " + receiver;
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+import org.javasim.SimulationException;
+
+/**
+ * 乐观 (Time Warp) 并行仿真引擎
+ * Executes a model partitioned into logical processes optimistically, on a
+ * number of threads. Each thread executes its logical processes in
+ * timestamp order without waiting for the others. When a message arrives
+ * in the past of its receiver (a straggler) the receiver is rolled back:
+ * its state is restored from the copy saved before the first event later
+ * than the straggler, those events are handled again, and anti-messages
+ * cancel the messages they sent.
+ *
+ * Every so many events the threads agree on the global virtual time (GVT),
+ * the earliest time of any unprocessed message. No logical process can be
+ * rolled back before it, so the saved states of earlier events are
+ * discarded (fossil collection) and those events are committed. The
+ * results are the same as executing the events one at a time in timestamp
+ * order, whatever the number of threads.
+ *
+ * The logical processes must implement saveState and restoreState, and
+ * should only produce output in commit.
+ */
+
+public class TimeWarp extends Engine {
+    /**
+     * 工作线程数
+     */
+    private final int threads;
+    /**
+     * 每个工作线程在两次计算 GVT 之间最多处理的事件数
+     */
+    private int gvtInterval = 1000;
+    /**
+     * 仿真结束时间
+     */
+    private double endTime;
+    /**
+     * 全局虚拟时间
+     */
+    private volatile double gvt = 0.0;
+    /**
+     * 是否已经结束
+     */
+    private volatile boolean done;
+    /**
+     * 第一个处理消息时抛出的异常
+     */
+    private volatile Throwable failure;
+    private long processedEvents = 0;
+    private long rolledBackEvents = 0;
+    private long committedEvents = 0;
+
+    /**
+     * @param threads the number of threads to execute on.
+     */
+    public TimeWarp(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads " + threads);
+        }
+
+        this.threads = threads;
+    }
+
+    /**
+     * Add a logical process. The logical processes are divided between the
+     * threads in the order they are added.
+     *
+     * @param process the logical process.
+     */
+    public void add(LogicalProcess<?> process) {
+        super.add(process);
+    }
+
+    /**
+     * Set how many events each thread handles between computations of GVT.
+     * Computing GVT more often commits events sooner and keeps fewer saved
+     * states, at the cost of stopping all of the threads more often.
+     *
+     * @param events the number of events.
+     */
+    public void setGvtInterval(int events) {
+        if (events < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        gvtInterval = events;
+    }
+
+    /**
+     * Run the simulation until every message up to endTime has been handled
+     * and committed. Messages later than endTime stay pending, so the
+     * simulation can be continued by calling run again.
+     *
+     * @param endTime the time to run until.
+     * @return the global virtual time at the end.
+     * @throws SimulationException thrown if a logical process fails.
+     */
+    public double run(double endTime) throws SimulationException {
+        synchronized (this) {
+            if (running) {
+                throw new IllegalStateException("Already running.");
+            }
+            running = true;
+        }
+
+        this.endTime = endTime;
+        done = false;
+        failure = null;
+
+        int count = Math.min(threads, Math.max(1, processes.size()));
+        final List<Worker> workers = new ArrayList<Worker>(count);
+
+        for (int i = 0; i < count; i++) {
+            workers.add(new Worker());
+        }
+        for (int i = 0; i < processes.size(); i++) {
+            workers.get(i % count).processes.add(processes.get(i));
+        }
+
+        CyclicBarrier barrier = new CyclicBarrier(count, new Runnable() {
+            public void run() {
+                computeGvt(workers);
+            }
+        });
+        List<Thread> started = new ArrayList<Thread>(count);
+
+        try {
+            for (int i = 0; i < count; i++) {
+                Worker worker = workers.get(i);
+
+                worker.barrier = barrier;
+                Thread thread = new Thread(worker, "javasim-timewarp-" + i);
+                thread.start();
+                started.add(thread);
+            }
+
+            for (Thread thread : started) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            barrier.reset();
+            throw new SimulationException("Interrupted while running.");
+        } finally {
+            running = false;
+        }
+
+        if (failure != null) {
+            SimulationException e = new SimulationException("Logical process failed: " + failure);
+
+            e.initCause(failure);
+            throw e;
+        }
+
+        return gvt;
+    }
+
+    /**
+     * @return the global virtual time: no message earlier than this is still
+     * to be handled.
+     */
+    public double gvt() {
+        return gvt;
+    }
+
+    /**
+     * @return the number of events handled, including those handled again after a rollback.
+     */
+    public synchronized long getEventsProcessed() {
+        return processedEvents;
+    }
+
+    /**
+     * @return the number of events undone by rollbacks.
+     */
+    public synchronized long getEventsRolledBack() {
+        return rolledBackEvents;
+    }
+
+    /**
+     * @return the number of events committed.
+     */
+    public synchronized long getEventsCommitted() {
+        return committedEvents;
+    }
+
+    /**
+     * 所有工作线程都停在屏障上时执行：此时没有正在处理的事件，在途的消息都在 inbox 中，
+     * GVT 就是所有待处理消息与 inbox 中消息（包括反消息）的最早时间。
+     * 早于 GVT 的事件不会再被回滚，提交它们并丢弃保存的状态。
+     */
+    private void computeGvt(List<Worker> workers) {
+        double min = Double.POSITIVE_INFINITY;
+
+        for (LogicalProcess<?> process : processes) {
+            if (!process.pending.isEmpty()) {
+                min = Math.min(min, process.pending.first().time());
+            }
+            for (Message message : process.inbox) {
+                min = Math.min(min, message.time());
+            }
+        }
+
+        gvt = min;
+        done = failure != null || min > endTime;
+
+        for (LogicalProcess<?> process : processes) {
+            fossilCollect(process, min);
+        }
+
+        synchronized (this) {
+            for (Worker worker : workers) {
+                processedEvents += worker.processed;
+                rolledBackEvents += worker.rolledBack;
+                worker.processed = worker.rolledBack = 0;
+            }
+        }
+    }
+
+    private <S> void fossilCollect(LogicalProcess<S> process, double gvt) {
+        long committed = 0;
+
+        while (!process.processed.isEmpty() && process.processed.peekFirst().message.time() < gvt) {
+            try {
+                process.commit(process.processed.pollFirst().message);
+            } catch (Throwable e) {
+                if (failure == null) {
+                    failure = e;
+                }
+                done = true;
+            }
+            committed++;
+        }
+
+        synchronized (this) {
+            committedEvents += committed;
+        }
+    }
+
+    /**
+     * 执行一组逻辑进程的工作线程
+     */
+    private final class Worker implements Runnable {
+        final List<LogicalProcess<?>> processes = new ArrayList<LogicalProcess<?>>();
+        CyclicBarrier barrier;
+        long processed = 0;
+        long rolledBack = 0;
+
+        public void run() {
+            try {
+                while (!done) {
+                    for (int i = 0; i < gvtInterval && failure == null; i++) {
+                        receive();
+
+                        if (!step()) {
+                            break;
+                        }
+                    }
+
+                    barrier.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (BrokenBarrierException e) {
+            }
+        }
+
+        /**
+         * 取出所有逻辑进程收到的消息
+         */
+        private void receive() {
+            for (int i = 0; i < processes.size(); i++) {
+                LogicalProcess<?> process = processes.get(i);
+                Message message;
+
+                while ((message = process.inbox.poll()) != null) {
+                    receive(process, message);
+                }
+            }
+        }
+
+        private void receive(LogicalProcess<?> process, Message message) {
+            if (message.isAnti()) {
+                Message positive = message.cancels;
+
+                if (process.pending.remove(positive)) {
+                    return;
+                }
+
+                if (!process.processed.isEmpty() && positive.compareTo(process.processed.peekLast().message) <= 0) {
+                    // 被撤销的消息已经处理过，回滚到它之前再删除它
+                    rollback(process, positive);
+                    process.pending.remove(positive);
+                } else {
+                    process.cancelled.add(positive);
+                }
+                return;
+            }
+
+            if (!process.cancelled.isEmpty() && process.cancelled.remove(message)) {
+                return;
+            }
+
+            if (!process.processed.isEmpty() && message.compareTo(process.processed.peekLast().message) < 0) {
+                // 迟到的消息
+                rollback(process, message);
+            }
+
+            process.pending.add(message);
+        }
+
+        /**
+         * 撤销所有不早于 message 的已处理事件，恢复第一个被撤销事件之前的状态
+         */
+        private <S> void rollback(LogicalProcess<S> process, Message message) {
+            LogicalProcess.Processed<S> undone = null;
+
+            while (!process.processed.isEmpty() && process.processed.peekLast().message.compareTo(message) >= 0) {
+                undone = process.processed.pollLast();
+                process.pending.add(undone.message);
+
+                for (int i = 0; i < undone.sent.size(); i++) {
+                    deliver(new Message(undone.sent.get(i)));
+                }
+                rolledBack++;
+            }
+
+            if (undone != null) {
+                process.restoreState(undone.state);
+                process.lvt = undone.lvt;
+                process.sent = undone.count;
+            }
+        }
+
+        /**
+         * 处理最早的一个不晚于结束时间的事件
+         * @return 没有可以处理的事件时返回 false
+         */
+        private boolean step() {
+            LogicalProcess<?> next = null;
+
+            for (int i = 0; i < processes.size(); i++) {
+                LogicalProcess<?> process = processes.get(i);
+
+                if (!process.pending.isEmpty() && (next == null
+                        || process.pending.first().compareTo(next.pending.first()) < 0)) {
+                    next = process;
+                }
+            }
+
+            if (next == null || next.pending.first().time() > endTime) {
+                return false;
+            }
+
+            handle(next);
+            return true;
+        }
+
+        private <S> void handle(LogicalProcess<S> process) {
+            Message message = process.pending.pollFirst();
+            LogicalProcess.Processed<S> event = new LogicalProcess.Processed<S>(message, process.saveState(),
+                    process.lvt, process.sent);
+
+            process.lvt = message.time();
+            process.current = event;
+
+            try {
+                process.handle(message);
+            } catch (Throwable e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            } finally {
+                process.current = null;
+            }
+
+            process.processed.addLast(event);
+            processed++;
+        }
+    }
+}
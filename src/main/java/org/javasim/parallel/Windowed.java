@@ -0,0 +1,310 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.parallel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.javasim.SimulationException;
+
+/**
+ * 按时间窗口同步的 (YAWNS) 并行仿真引擎
+ * Executes a model partitioned into logical processes in time windows, on
+ * a number of threads. As with Conservative, logical processes only
+ * interact through the channels declared with connect, and every message
+ * sent over a channel is delayed by at least its lookahead.
+ *
+ * Each window starts at the earliest time T of any pending message. No
+ * message sent during the window can reach a logical process before T plus
+ * the smallest lookahead of its input channels, so every logical process
+ * handles its events up to that time independently of the others. The
+ * threads then wait for each other at a barrier, the messages sent during
+ * the window are delivered, and the next window starts. There are no null
+ * messages and no rollbacks; the cost is one barrier per window, so this
+ * suits models whose lookahead is large compared with the time between
+ * events.
+ *
+ * The results are the same as executing the events one at a time in
+ * timestamp order, whatever the number of threads.
+ */
+
+public class Windowed extends Engine {
+    /**
+     * 工作线程数
+     */
+    private final int threads;
+    /**
+     * 仿真结束时间
+     */
+    private double endTime;
+    /**
+     * 当前窗口的开始时间
+     */
+    private double windowStart;
+    /**
+     * 当前窗口中下一个待执行的逻辑进程，工作线程从这里领取任务
+     */
+    private final AtomicInteger cursor = new AtomicInteger();
+    /**
+     * 是否已经结束
+     */
+    private volatile boolean done;
+    /**
+     * 第一个处理消息时抛出的异常
+     */
+    private volatile Throwable failure;
+    private long processedEvents = 0;
+    private long windows = 0;
+
+    /**
+     * @param threads the number of threads to execute on.
+     */
+    public Windowed(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads " + threads);
+        }
+
+        this.threads = threads;
+    }
+
+    /**
+     * Add a logical process. Within each window the threads take the
+     * logical processes in the order they were added.
+     *
+     * @param process the logical process.
+     */
+    public void add(LogicalProcess<?> process) {
+        super.add(process);
+    }
+
+    /**
+     * Declare a channel from one logical process to another. Both must
+     * already have been added, and there can only be one channel between
+     * them in each direction.
+     *
+     * @param from      the sending logical process.
+     * @param to        the receiving logical process.
+     * @param lookahead the minimum delay of messages over the channel, which must be positive.
+     * @return the channel.
+     */
+    public Channel connect(LogicalProcess<?> from, LogicalProcess<?> to, double lookahead) {
+        return super.connect(from, to, lookahead);
+    }
+
+    /**
+     * Run the simulation until every message up to endTime has been handled.
+     * Messages later than endTime stay pending, so the simulation can be
+     * continued by calling run again.
+     *
+     * @param endTime the time to run until.
+     * @throws SimulationException thrown if a logical process fails.
+     */
+    public void run(double endTime) throws SimulationException {
+        synchronized (this) {
+            if (running) {
+                throw new IllegalStateException("Already running.");
+            }
+            running = true;
+        }
+
+        this.endTime = endTime;
+        done = false;
+        failure = null;
+
+        int count = Math.min(threads, Math.max(1, processes.size()));
+        final List<Worker> workers = new ArrayList<Worker>(count);
+
+        for (int i = 0; i < count; i++) {
+            workers.add(new Worker());
+        }
+
+        CyclicBarrier barrier = new CyclicBarrier(count, new Runnable() {
+            public void run() {
+                nextWindow(workers);
+            }
+        });
+        List<Thread> started = new ArrayList<Thread>(count);
+
+        try {
+            for (int i = 0; i < count; i++) {
+                Worker worker = workers.get(i);
+
+                worker.barrier = barrier;
+                Thread thread = new Thread(worker, "javasim-windowed-" + i);
+                thread.start();
+                started.add(thread);
+            }
+
+            for (Thread thread : started) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            barrier.reset();
+            throw new SimulationException("Interrupted while running.");
+        } finally {
+            running = false;
+        }
+
+        if (failure != null) {
+            SimulationException e = new SimulationException("Logical process failed: " + failure);
+
+            e.initCause(failure);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of events handled.
+     */
+    public synchronized long getEventsProcessed() {
+        return processedEvents;
+    }
+
+    /**
+     * @return the number of windows executed.
+     */
+    public synchronized long getWindows() {
+        return windows;
+    }
+
+    @Override
+    void check(LogicalProcess<?> sender, LogicalProcess<?> receiver, double delay) {
+        checkChannel(sender, receiver, delay);
+    }
+
+    /**
+     * 所有工作线程都停在屏障上时执行：上一个窗口发出的消息都在 inbox 中，
+     * 下一个窗口从所有待处理消息的最早时间开始。
+     */
+    private void nextWindow(List<Worker> workers) {
+        double min = Double.POSITIVE_INFINITY;
+
+        for (LogicalProcess<?> process : processes) {
+            if (!process.pending.isEmpty()) {
+                min = Math.min(min, process.pending.first().time());
+            }
+            for (Message message : process.inbox) {
+                min = Math.min(min, message.time());
+            }
+        }
+
+        windowStart = min;
+        cursor.set(0);
+        done = failure != null || min > endTime;
+
+        synchronized (this) {
+            for (Worker worker : workers) {
+                processedEvents += worker.processed;
+                worker.processed = 0;
+            }
+            if (!done) {
+                windows++;
+            }
+        }
+    }
+
+    /**
+     * 执行窗口的工作线程，每次领取一个尚未执行的逻辑进程
+     */
+    private final class Worker implements Runnable {
+        CyclicBarrier barrier;
+        long processed = 0;
+
+        public void run() {
+            try {
+                for (;;) {
+                    barrier.await();
+
+                    if (done) {
+                        break;
+                    }
+
+                    int next;
+
+                    while ((next = cursor.getAndIncrement()) < processes.size() && failure == null) {
+                        advance(processes.get(next));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (BrokenBarrierException e) {
+            }
+        }
+
+        /**
+         * 处理逻辑进程在窗口内的所有事件：其它逻辑进程在窗口内发来的消息不会早于
+         * 窗口开始时间加上输入通道的最小前瞻量
+         */
+        private void advance(LogicalProcess<?> process) {
+            double horizon = Double.POSITIVE_INFINITY;
+
+            for (int i = 0; i < process.inputs.size(); i++) {
+                horizon = Math.min(horizon, windowStart + process.inputs.get(i).lookahead());
+            }
+
+            Message message;
+
+            for (;;) {
+                // 发给自己的消息可能仍然在窗口内，其它逻辑进程发来的消息都不早于 horizon
+                while ((message = process.inbox.poll()) != null) {
+                    process.pending.add(message);
+                }
+
+                if (process.pending.isEmpty() || failure != null) {
+                    break;
+                }
+
+                Message first = process.pending.first();
+
+                if (first.time() >= horizon || first.time() > endTime) {
+                    break;
+                }
+
+                handle(process);
+            }
+        }
+
+        /**
+         * 处理的事件不会被撤销，处理之后立即提交
+         */
+        private <S> void handle(LogicalProcess<S> process) {
+            Message message = process.pending.pollFirst();
+
+            process.current = new LogicalProcess.Processed<S>(message, null, process.lvt, process.sent);
+            process.lvt = message.time();
+
+            try {
+                process.handle(message);
+                process.commit(message);
+            } catch (Throwable e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            } finally {
+                process.current = null;
+            }
+            processed++;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.processing;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import org.javasim.Resumable;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+
+/**
+ * 从带 @Resumable 注解的进程类生成不占用线程的 ResumableProcess
+ * The annotation processor which generates the resumable form of each class
+ * annotated with Resumable. It is registered as a service in the JavaSim
+ * jar, so javac runs it whenever JavaSim is on the class path, unless
+ * annotation processing is disabled. It reads the source of run through the
+ * javac tree API, and so needs javac.
+ *
+ * Each call of hold, passivate and waitForTrigger in run, made on the
+ * process itself, becomes a call of holdThen, passivateThen or
+ * waitForTriggerThen which continues from the next statement, and the
+ * statements which contain them (blocks, if, while, do, for, enhanced for,
+ * switch, labeled statements and try) are divided into steps; all other
+ * statements are copied unchanged. Local variables which are used after a
+ * wait become fields of the generated class. A waitForTrigger which ends
+ * without a trigger throws InterruptedException as before.
+ *
+ * The processor reports an error, and generates nothing, if the class cannot
+ * be rewritten:
+ * <ul>
+ * <li>run waits inside a lambda expression, a synchronized statement, or a
+ * try statement with a finally block or resources;</li>
+ * <li>run calls a wait which has no resumable form, such as cancel,
+ * waitFor, timedWait or waitForSemaphore;</li>
+ * <li>another method of the class waits;</li>
+ * <li>a constructor calls a superclass constructor with arguments.</li>
+ * </ul>
+ * Static members are copied too, so the generated class has its own static
+ * fields, and references to the annotated class within it are replaced by
+ * references to the generated class. A reset does not throw RestartException
+ * into a resumable process; it is simply never resumed.
+ */
+
+@SupportedAnnotationTypes("org.javasim.Resumable")
+public class ResumableProcessor extends AbstractProcessor {
+
+    private Trees trees;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment environment) {
+        super.init(environment);
+
+        try {
+            trees = Trees.instance(environment);
+        } catch (IllegalArgumentException e) {
+            // 不是 javac，没有语法树
+            trees = null;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (Element element : round.getElementsAnnotatedWith(Resumable.class)) {
+            if (trees == null) {
+                error(element, "@Resumable processes can only be generated by javac.");
+            } else if (element.getKind() != ElementKind.CLASS
+                    || element.getEnclosingElement().getKind() != ElementKind.PACKAGE) {
+                error(element, "@Resumable can only be applied to a top-level class.");
+            } else if (!extendsProcess((TypeElement) element)) {
+                error(element, "A @Resumable process must extend SimulationProcess or SimulationEntity directly.");
+            } else {
+                generate((TypeElement) element);
+            }
+        }
+
+        return true;
+    }
+
+    private boolean extendsProcess(TypeElement element) {
+        TypeMirror superclass = element.getSuperclass();
+        String name = processingEnv.getTypeUtils().erasure(superclass).toString();
+
+        return name.equals("org.javasim.SimulationProcess") || name.equals("org.javasim.SimulationEntity");
+    }
+
+    private void generate(TypeElement element) {
+        TreePath path = trees.getPath(element);
+
+        if (path == null) {
+            error(element, "The source of a @Resumable process is not available.");
+            return;
+        }
+
+        String source;
+
+        try {
+            source = new ResumableWriter(path.getCompilationUnit(), (ClassTree) path.getLeaf(),
+                    trees.getSourcePositions()).write();
+        } catch (ResumableWriter.UnsupportedException e) {
+            trees.printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.tree, path.getCompilationUnit());
+            return;
+        } catch (IOException e) {
+            error(element, "Cannot read the source of a @Resumable process: " + e);
+            return;
+        }
+
+        PackageElement owner = (PackageElement) element.getEnclosingElement();
+        String name = ResumableWriter.PREFIX + element.getSimpleName();
+
+        if (!owner.isUnnamed()) {
+            name = owner.getQualifiedName() + "." + name;
+        }
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(name, element);
+
+            try (Writer writer = file.openWriter()) {
+                writer.write(source);
+            }
+        } catch (IOException e) {
+            error(element, "Cannot write " + name + ": " + e);
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,1402 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.processing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Modifier;
+
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.BreakTree;
+import com.sun.source.tree.CaseTree;
+import com.sun.source.tree.CatchTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ContinueTree;
+import com.sun.source.tree.DoWhileLoopTree;
+import com.sun.source.tree.EnhancedForLoopTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.ForLoopTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.IfTree;
+import com.sun.source.tree.ImportTree;
+import com.sun.source.tree.LabeledStatementTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewArrayTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.SwitchTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.TryTree;
+import com.sun.source.tree.TypeParameterTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.tree.WhileLoopTree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreeScanner;
+
+/**
+ * 把一个带 @Resumable 注解的进程类改写为 ResumableProcess 子类的源代码
+ * Writes the source of the resumable form of one process class. Every
+ * member except run is copied as it is written, with the name of the class
+ * replaced; run becomes the resume method of a ResumableProcess.
+ *
+ * run 的语句被划分为 switch 的各个 case：不包含等待的语句原样复制，包含等待的语句（块、if、循环、
+ * switch、带标号的语句与 try）被展开为 case 之间的跳转，每个等待结束一个 case，并以下一个 case
+ * 的编号调用 holdThen、passivateThen 或 waitForTriggerThen。跨越等待仍然使用的局部变量改为字段，
+ * 包含等待的 try 语句把它的 case 登记为一个区域，异常由外层的 catch 转到处理它的 case。
+ */
+final class ResumableWriter {
+
+    /**
+     * 生成的类名的前缀
+     */
+    static final String PREFIX = "Resumable";
+
+    /**
+     * 可以改写的等待及其参数个数
+     */
+    private static final Map<String, Integer> WAITS = new HashMap<String, Integer>();
+
+    /**
+     * 会挂起进程但没有可继续形式的方法及其参数个数
+     */
+    private static final Map<String, Integer> UNSUPPORTED = new HashMap<String, Integer>();
+
+    static {
+        WAITS.put("hold", 1);
+        WAITS.put("passivate", 0);
+        WAITS.put("waitForTrigger", 1);
+
+        UNSUPPORTED.put("cancel", 0);
+        UNSUPPORTED.put("suspendProcess", 0);
+        UNSUPPORTED.put("waitFor", -1);
+        UNSUPPORTED.put("timedWait", 1);
+        UNSUPPORTED.put("waitForSemaphore", 1);
+        UNSUPPORTED.put("interrupt", 2);
+    }
+
+    /**
+     * The run method cannot be rewritten; the message is reported at the
+     * given tree.
+     */
+    static final class UnsupportedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final Tree tree;
+
+        UnsupportedException(Tree tree, String message) {
+            super(message);
+
+            this.tree = tree;
+        }
+    }
+
+    /**
+     * break 与 continue 可以跳转到的展开语句
+     */
+    private static final class Target {
+        final String label;
+        final boolean loop;
+        final boolean breakable;
+        final int breakState;
+        final int continueState;
+
+        Target(String label, boolean loop, boolean breakable, int breakState, int continueState) {
+            this.label = label;
+            this.loop = loop;
+            this.breakable = breakable;
+            this.breakState = breakState;
+            this.continueState = continueState;
+        }
+    }
+
+    private final CompilationUnitTree unit;
+    private final ClassTree type;
+    private final SourcePositions positions;
+    private final CharSequence source;
+    private final String original;
+    private final String generated;
+
+    /**
+     * 由局部变量改成的字段
+     */
+    private final StringBuilder fields = new StringBuilder();
+    /**
+     * 已经结束的 case
+     */
+    private final StringBuilder cases = new StringBuilder();
+    /**
+     * 每个 case 所在的 try 区域的异常处理 case，不在区域中时为 -1
+     */
+    private final Map<Integer, Integer> handlers = new LinkedHashMap<Integer, Integer>();
+    /**
+     * run 中的局部变量作用域：变量名到字段名，没有改为字段时为 null
+     */
+    private final Deque<Map<String, String>> scopes = new ArrayDeque<Map<String, String>>();
+    /**
+     * 外层的展开语句，最内层在前
+     */
+    private final Deque<Target> targets = new ArrayDeque<Target>();
+
+    /**
+     * 正在写的 case，它的编号，以及还没有写入的原样复制的语句
+     */
+    private StringBuilder current;
+    private int state;
+    private final StringBuilder pending = new StringBuilder();
+    /**
+     * 最后一条原样复制的语句可能无法正常结束，之后的跳转要放在 if (true) 之外
+     */
+    private boolean wrap;
+
+    private int states = 0;
+    private int handler = -1;
+    private int variables = 0;
+
+    ResumableWriter(CompilationUnitTree unit, ClassTree type, SourcePositions positions) throws java.io.IOException {
+        this.unit = unit;
+        this.type = type;
+        this.positions = positions;
+        this.source = unit.getSourceFile().getCharContent(true);
+        this.original = type.getSimpleName().toString();
+        this.generated = PREFIX + original;
+    }
+
+    /**
+     * Write the source of the generated class.
+     *
+     * @return the source.
+     * @throws UnsupportedException if the class cannot be rewritten.
+     */
+    String write() {
+        MethodTree run = null;
+
+        for (Tree member : type.getMembers()) {
+            if (member instanceof MethodTree) {
+                MethodTree method = (MethodTree) member;
+
+                if (method.getName().contentEquals("run") && method.getParameters().isEmpty()
+                        && !method.getModifiers().getFlags().contains(Modifier.STATIC) && method.getBody() != null) {
+                    run = method;
+                } else {
+                    check(method);
+                }
+            }
+        }
+
+        if (run == null) {
+            throw new UnsupportedException(type, "A @Resumable process must override run().");
+        }
+
+        StringBuilder out = new StringBuilder();
+
+        out.append("// Generated by ").append(ResumableProcessor.class.getName()).append(" from ").append(original)
+                .append(": do not edit.\n\n");
+
+        if (unit.getPackageName() != null) {
+            out.append("package ").append(unit.getPackageName()).append(";\n\n");
+        }
+
+        for (ImportTree tree : unit.getImports()) {
+            out.append(text(tree)).append('\n');
+        }
+
+        out.append('\n');
+
+        for (Modifier modifier : type.getModifiers().getFlags()) {
+            out.append(modifier).append(' ');
+        }
+
+        out.append("class ").append(generated);
+
+        List<? extends TypeParameterTree> parameters = type.getTypeParameters();
+
+        if (!parameters.isEmpty()) {
+            out.append('<');
+
+            for (int i = 0; i < parameters.size(); i++) {
+                out.append(i == 0 ? "" : ", ").append(members(parameters.get(i)));
+            }
+
+            out.append('>');
+        }
+
+        out.append(" extends org.javasim.ResumableProcess");
+
+        for (int i = 0; i < type.getImplementsClause().size(); i++) {
+            out.append(i == 0 ? " implements " : ", ").append(members(type.getImplementsClause().get(i)));
+        }
+
+        // 类体从类头之后的第一个 { 开始，除 run 之外的成员原样复制
+        int header = (int) positions.getStartPosition(unit, type);
+
+        header = Math.max(header, end(type.getModifiers()));
+
+        for (Tree tree : parameters) {
+            header = Math.max(header, end(tree));
+        }
+
+        if (type.getExtendsClause() != null) {
+            header = Math.max(header, end(type.getExtendsClause()));
+        }
+
+        for (Tree tree : type.getImplementsClause()) {
+            header = Math.max(header, end(tree));
+        }
+
+        int open = indexOf('{', header);
+        int last = end(type) - 1;
+        Code code = new Code(1);
+
+        for (Tree member : type.getMembers()) {
+            if (member == run) {
+                code.edits.add(new Edit(start(run), end(run), resume(run)));
+            } else if (end(member) >= 0) {
+                code.scan(member, null);
+
+                if (member instanceof MethodTree && ((MethodTree) member).getName().contentEquals("<init>")) {
+                    constructor((MethodTree) member, code);
+                }
+            }
+        }
+
+        // 保留类头与 { 之间的空白，使括号风格与原类一致
+        String gap = source.subSequence(header, open).toString();
+
+        out.append(gap.trim().isEmpty() ? gap : " ").append(code.apply(open, last + 1)).append('\n');
+
+        return out.toString();
+    }
+
+    /**
+     * 构造函数改名，并且只能调用父类的无参构造函数
+     */
+    private void constructor(MethodTree method, Code code) {
+        int from = Math.max(start(method), end(method.getModifiers()));
+
+        for (Tree tree : method.getTypeParameters()) {
+            from = Math.max(from, end(tree));
+        }
+
+        int at = indexOf(original, from);
+
+        code.edits.add(new Edit(at, at + original.length(), generated));
+
+        List<? extends StatementTree> body = method.getBody().getStatements();
+
+        if (!body.isEmpty() && body.get(0) instanceof ExpressionStatementTree) {
+            ExpressionTree first = ((ExpressionStatementTree) body.get(0)).getExpression();
+
+            if (first instanceof MethodInvocationTree) {
+                MethodInvocationTree call = (MethodInvocationTree) first;
+
+                if (call.getMethodSelect() instanceof IdentifierTree
+                        && ((IdentifierTree) call.getMethodSelect()).getName().contentEquals("super")
+                        && !call.getArguments().isEmpty()) {
+                    throw new UnsupportedException(call,
+                            "A @Resumable process can only call the superclass constructor without arguments.");
+                }
+            }
+        }
+    }
+
+    /**
+     * run 之外的方法不能等待
+     */
+    private void check(MethodTree method) {
+        new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitClass(ClassTree tree, Void unused) {
+                return null;
+            }
+
+            @Override
+            public Void visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+                String name = waitName(tree);
+
+                if (name != null && (WAITS.containsKey(name) || UNSUPPORTED.containsKey(name))
+                        && !"cancel".equals(name) && !"interrupt".equals(name)) {
+                    throw new UnsupportedException(tree, "A @Resumable process can only call " + name + " in run().");
+                }
+
+                return super.visitMethodInvocation(tree, unused);
+            }
+        }.scan(method.getBody(), null);
+    }
+
+    /**
+     * 生成 resume 方法以及由局部变量改成的字段
+     */
+    private String resume(MethodTree run) {
+        new TreeScanner<Void, Boolean>() {
+            @Override
+            public Void visitClass(ClassTree tree, Boolean lambda) {
+                return null;
+            }
+
+            @Override
+            public Void visitLambdaExpression(LambdaExpressionTree tree, Boolean lambda) {
+                return super.visitLambdaExpression(tree, Boolean.TRUE);
+            }
+
+            @Override
+            public Void visitMethodInvocation(MethodInvocationTree tree, Boolean lambda) {
+                String name = waitName(tree);
+
+                if (name != null && UNSUPPORTED.containsKey(name)) {
+                    throw new UnsupportedException(tree, name + " has no resumable form.");
+                }
+
+                if (name != null && WAITS.containsKey(name) && lambda) {
+                    throw new UnsupportedException(tree, "A @Resumable process cannot call " + name
+                            + " in a lambda expression.");
+                }
+
+                return super.visitMethodInvocation(tree, lambda);
+            }
+        }.scan(run.getBody(), Boolean.FALSE);
+
+        scopes.push(new HashMap<String, String>());
+        open(states++);
+        statements(run.getBody().getStatements(), null);
+        flush();
+        current.append("return;\n");
+        close();
+        scopes.pop();
+
+        boolean regions = false;
+
+        for (int region : handlers.values()) {
+            regions |= region >= 0;
+        }
+
+        StringBuilder out = new StringBuilder();
+
+        out.append(fields);
+
+        if (regions) {
+            out.append("private Throwable $exception;\n");
+        }
+
+        out.append("\n@Override\n@SuppressWarnings(\"unchecked\")\n");
+        out.append("protected void resume (int $label) throws org.javasim.SimulationException, "
+                + "org.javasim.RestartException\n{\n");
+        out.append("    int $state = $label;\n\n    $resume:\n    for (;;)\n    {\n");
+
+        String indent = regions ? "            " : "        ";
+
+        if (regions) {
+            out.append("        try\n        {\n");
+        }
+
+        out.append(indent).append("switch ($state)\n").append(indent).append("{\n");
+        out.append(indent(cases.toString(), indent));
+        out.append(indent).append("default:\n").append(indent)
+                .append("    throw new IllegalStateException(\"No label \" + $state);\n");
+        out.append(indent).append("}\n");
+
+        if (regions) {
+            Map<Integer, List<Integer>> regionStates = new LinkedHashMap<Integer, List<Integer>>();
+
+            for (Map.Entry<Integer, Integer> entry : handlers.entrySet()) {
+                if (entry.getValue() >= 0) {
+                    if (!regionStates.containsKey(entry.getValue())) {
+                        regionStates.put(entry.getValue(), new ArrayList<Integer>());
+                    }
+
+                    regionStates.get(entry.getValue()).add(entry.getKey());
+                }
+            }
+
+            out.append("        }\n        catch (Throwable $t)\n        {\n");
+            out.append("            switch ($state)\n            {\n");
+
+            for (Map.Entry<Integer, List<Integer>> entry : regionStates.entrySet()) {
+                out.append("            ");
+
+                for (int region : entry.getValue()) {
+                    out.append("case ").append(region).append(": ");
+                }
+
+                out.append("\n                $state = ").append(entry.getKey()).append(";\n                break;\n");
+            }
+
+            out.append("            default:\n");
+
+            for (String thrown : new String[] { "org.javasim.SimulationException", "org.javasim.RestartException",
+                    "RuntimeException", "Error" }) {
+                out.append("                if ($t instanceof ").append(thrown).append(")\n");
+                out.append("                    throw (").append(thrown).append(") $t;\n");
+            }
+
+            out.append("                throw new java.lang.reflect.UndeclaredThrowableException($t);\n");
+            out.append("            }\n\n            $exception = $t;\n        }\n");
+        }
+
+        out.append("    }\n}");
+
+        return indent(out.toString(), "    ").trim();
+    }
+
+    /**
+     * 按顺序写一个展开的块中的语句，hoisted 为 null 时由这些语句决定哪些变量改为字段
+     */
+    private void statements(List<? extends StatementTree> list, Set<VariableTree> hoisted) {
+        if (hoisted == null) {
+            hoisted = hoist(list, Collections.<Integer>emptySet());
+        }
+
+        for (int i = 0; i < list.size(); i++) {
+            StatementTree tree = list.get(i);
+
+            if (tree instanceof VariableTree) {
+                // 一条声明语句中的多个变量共享开始位置，分别写出
+                declare((VariableTree) tree, hoisted.contains(tree), grouped(list, i - 1, i) || grouped(list, i, i + 1));
+            } else if (tree instanceof ClassTree) {
+                throw new UnsupportedException(tree, "A @Resumable process cannot declare a local class in a run() "
+                        + "body which waits.");
+            } else {
+                statement(tree);
+            }
+        }
+    }
+
+    private boolean grouped(List<? extends StatementTree> list, int first, int second) {
+        return first >= 0 && second < list.size() && list.get(first) instanceof VariableTree
+                && list.get(second) instanceof VariableTree && start(list.get(first)) == start(list.get(second));
+    }
+
+    /**
+     * 语句之后有等待或 case 的边界，且边界之后还使用的变量改为字段
+     */
+    private Set<VariableTree> hoist(List<? extends StatementTree> list, Set<Integer> starts) {
+        Set<VariableTree> hoisted = new HashSet<VariableTree>();
+
+        for (int i = 0; i < list.size(); i++) {
+            if (!(list.get(i) instanceof VariableTree)) {
+                continue;
+            }
+
+            String name = ((VariableTree) list.get(i)).getName().toString();
+
+            for (int boundary = i + 1; boundary < list.size(); boundary++) {
+                if (waits(list.get(boundary)) || starts.contains(boundary)) {
+                    for (int k = boundary; k < list.size(); k++) {
+                        if (refers(list.get(k), name)) {
+                            hoisted.add((VariableTree) list.get(i));
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+
+        return hoisted;
+    }
+
+    private void declare(VariableTree tree, boolean hoisted, boolean grouped) {
+        String name = tree.getName().toString();
+        ExpressionTree initializer = tree.getInitializer();
+
+        if (hoisted) {
+            String field = field(tree);
+
+            if (initializer != null) {
+                verbatim(field + " = " + value(tree) + ";", false);
+            }
+
+            scopes.peek().put(name, field);
+        } else {
+            if (grouped) {
+                verbatim((tree.getModifiers().getFlags().contains(Modifier.FINAL) ? "final " : "")
+                        + code(tree.getType()) + " " + name + (initializer == null ? "" : " = " + value(tree)) + ";",
+                        false);
+            } else {
+                verbatim(code(tree), false);
+            }
+
+            scopes.peek().put(name, null);
+        }
+    }
+
+    /**
+     * 为改成字段的局部变量声明字段
+     */
+    private String field(VariableTree tree) {
+        String field = tree.getName() + "$" + variables++;
+
+        fields.append("private ").append(code(tree.getType())).append(' ').append(field).append(";\n");
+
+        return field;
+    }
+
+    /**
+     * 变量的初始值，数组初始化器需要加上类型
+     */
+    private String value(VariableTree tree) {
+        ExpressionTree initializer = tree.getInitializer();
+
+        if (initializer instanceof NewArrayTree && ((NewArrayTree) initializer).getType() == null) {
+            return "new " + code(tree.getType()) + " " + code(initializer);
+        }
+
+        return code(initializer);
+    }
+
+    /**
+     * 写一条语句，不包含等待的语句原样复制
+     */
+    private void statement(StatementTree tree) {
+        if (!waits(tree)) {
+            verbatim(code(tree), !(tree instanceof ExpressionStatementTree) && tree.getKind() != Tree.Kind.EMPTY_STATEMENT);
+            return;
+        }
+
+        switch (tree.getKind()) {
+            case BLOCK:
+                scopes.push(new HashMap<String, String>());
+                statements(((BlockTree) tree).getStatements(), null);
+                scopes.pop();
+                break;
+            case EXPRESSION_STATEMENT:
+                waitFor(tree, ((ExpressionStatementTree) tree).getExpression());
+                break;
+            case IF:
+                branch((IfTree) tree);
+                break;
+            case WHILE_LOOP:
+            case DO_WHILE_LOOP:
+            case FOR_LOOP:
+            case ENHANCED_FOR_LOOP:
+                loop(tree, null);
+                break;
+            case LABELED_STATEMENT:
+                labeled((LabeledStatementTree) tree);
+                break;
+            case SWITCH:
+                select((SwitchTree) tree);
+                break;
+            case TRY:
+                attempt((TryTree) tree);
+                break;
+            default:
+                throw new UnsupportedException(tree, "A @Resumable process cannot wait inside a "
+                        + tree.getKind().toString().toLowerCase().replace('_', ' ') + ".");
+        }
+    }
+
+    private void waitFor(StatementTree statement, ExpressionTree expression) {
+        String name = expression instanceof MethodInvocationTree ? waitName((MethodInvocationTree) expression) : null;
+
+        if (name == null || !WAITS.containsKey(name)) {
+            throw new UnsupportedException(statement, "A @Resumable process can only wait in a statement which "
+                    + "calls hold, passivate or waitForTrigger.");
+        }
+
+        List<? extends ExpressionTree> arguments = ((MethodInvocationTree) expression).getArguments();
+        int next = states++;
+
+        flush();
+
+        if (name.equals("hold")) {
+            current.append("holdThen(").append(code(arguments.get(0))).append(", ").append(next).append(");\n");
+        } else if (name.equals("passivate")) {
+            current.append("passivateThen(").append(next).append(");\n");
+        } else {
+            current.append("waitForTriggerThen(").append(code(arguments.get(0))).append(", ").append(next)
+                    .append(");\n");
+        }
+
+        current.append("return;\n");
+        close();
+        open(next);
+
+        // 与 SimulationEntity.waitForTrigger 一样，没有被触发时抛出 InterruptedException
+        if (name.equals("waitForTrigger")) {
+            current.append("if (!triggered())\n    throw new InterruptedException();\n");
+        }
+    }
+
+    private void branch(IfTree tree) {
+        int then = states++;
+        int otherwise = tree.getElseStatement() == null ? -1 : states++;
+        int after = states++;
+
+        choose(code(tree.getCondition()), then, otherwise < 0 ? after : otherwise);
+
+        open(then);
+        statement(tree.getThenStatement());
+        jump(after);
+
+        if (otherwise >= 0) {
+            open(otherwise);
+            statement(tree.getElseStatement());
+            jump(after);
+        }
+
+        open(after);
+    }
+
+    private void loop(StatementTree tree, String label) {
+        int head = states++;
+        int body = states++;
+        int after = states++;
+
+        switch (tree.getKind()) {
+            case WHILE_LOOP: {
+                WhileLoopTree loop = (WhileLoopTree) tree;
+
+                jump(head);
+                open(head);
+                choose(code(loop.getCondition()), body, after);
+                open(body);
+                targets.push(new Target(label, true, true, after, head));
+                statement(loop.getStatement());
+                targets.pop();
+                jump(head);
+                break;
+            }
+            case DO_WHILE_LOOP: {
+                DoWhileLoopTree loop = (DoWhileLoopTree) tree;
+
+                jump(body);
+                open(body);
+                targets.push(new Target(label, true, true, after, head));
+                statement(loop.getStatement());
+                targets.pop();
+                jump(head);
+                open(head);
+                choose(code(loop.getCondition()), body, after);
+                break;
+            }
+            case FOR_LOOP: {
+                ForLoopTree loop = (ForLoopTree) tree;
+                int update = states++;
+
+                scopes.push(new HashMap<String, String>());
+
+                // 循环变量在每次等待之后都要使用，总是改为字段
+                for (StatementTree initializer : loop.getInitializer()) {
+                    if (initializer instanceof VariableTree) {
+                        declare((VariableTree) initializer, true, false);
+                    } else {
+                        verbatim(code(((ExpressionStatementTree) initializer).getExpression()) + ";", false);
+                    }
+                }
+
+                jump(head);
+                open(head);
+
+                if (loop.getCondition() == null) {
+                    jump(body);
+                } else {
+                    choose(code(loop.getCondition()), body, after);
+                }
+
+                open(body);
+                targets.push(new Target(label, true, true, after, update));
+                statement(loop.getStatement());
+                targets.pop();
+                jump(update);
+                open(update);
+
+                for (ExpressionStatementTree step : loop.getUpdate()) {
+                    verbatim(code(step.getExpression()) + ";", false);
+                }
+
+                jump(head);
+                scopes.pop();
+                break;
+            }
+            default: {
+                EnhancedForLoopTree loop = (EnhancedForLoopTree) tree;
+                String iterator = "$iterator" + variables++;
+
+                fields.append("private java.util.Iterator<?> ").append(iterator).append(";\n");
+                verbatim(iterator + " = iterate(" + code(loop.getExpression()) + ");", false);
+                jump(head);
+                open(head);
+                choose(iterator + ".hasNext()", body, after);
+                open(body);
+                scopes.push(new HashMap<String, String>());
+
+                String variable = field(loop.getVariable());
+
+                verbatim(variable + " = (" + code(loop.getVariable().getType()) + ") " + iterator + ".next();", false);
+                scopes.peek().put(loop.getVariable().getName().toString(), variable);
+                targets.push(new Target(label, true, true, after, head));
+                statement(loop.getStatement());
+                targets.pop();
+                scopes.pop();
+                jump(head);
+                break;
+            }
+        }
+
+        open(after);
+    }
+
+    private void labeled(LabeledStatementTree tree) {
+        StatementTree statement = tree.getStatement();
+        String label = tree.getLabel().toString();
+
+        switch (statement.getKind()) {
+            case WHILE_LOOP:
+            case DO_WHILE_LOOP:
+            case FOR_LOOP:
+            case ENHANCED_FOR_LOOP:
+                loop(statement, label);
+                break;
+            default:
+                int after = states++;
+
+                targets.push(new Target(label, false, false, after, -1));
+                statement(statement);
+                targets.pop();
+                jump(after);
+                open(after);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void select(SwitchTree tree) {
+        List<? extends CaseTree> groups = tree.getCases();
+        List<StatementTree> list = new ArrayList<StatementTree>();
+        Set<Integer> starts = new HashSet<Integer>();
+        int[] group = new int[groups.size()];
+        int after = states++;
+        boolean defaulted = false;
+
+        // switch 块是一个作用域，每组语句从一个新的 case 开始
+        for (CaseTree c : groups) {
+            starts.add(list.size());
+            list.addAll(c.getStatements());
+        }
+
+        Set<VariableTree> hoisted = hoist(list, starts);
+
+        flush();
+        current.append("switch ").append(code(tree.getExpression())).append("\n{\n");
+
+        for (int i = 0; i < groups.size(); i++) {
+            group[i] = states++;
+
+            if (groups.get(i).getExpression() == null) {
+                defaulted = true;
+                current.append("default:\n");
+            } else {
+                current.append("case ").append(code(groups.get(i).getExpression())).append(":\n");
+            }
+
+            current.append("    $state = ").append(group[i]).append(";\n    continue $resume;\n");
+        }
+
+        current.append("}\n");
+
+        if (defaulted) {
+            close();
+        } else {
+            jump(after);
+        }
+
+        scopes.push(new HashMap<String, String>());
+        targets.push(new Target(null, false, true, after, -1));
+
+        for (int i = 0; i < groups.size(); i++) {
+            open(group[i]);
+            statements(groups.get(i).getStatements(), hoisted);
+            jump(i + 1 < groups.size() ? group[i + 1] : after);
+        }
+
+        targets.pop();
+        scopes.pop();
+        open(after);
+    }
+
+    private void attempt(TryTree tree) {
+        if (tree.getFinallyBlock() != null || !tree.getResources().isEmpty()) {
+            throw new UnsupportedException(tree, "A @Resumable process cannot wait inside a try statement with a "
+                    + "finally block or resources.");
+        }
+
+        int body = states++;
+        int region = states++;
+        int after = states++;
+        int outer = handler;
+
+        jump(body);
+        handler = region;
+        open(body);
+        statement(tree.getBlock());
+        jump(after);
+        handler = outer;
+
+        // 区域中抛出的异常重新抛出，由原来的 catch 子句选择处理它的 case
+        open(region);
+        current.append("Throwable $caught = $exception;\n\n$exception = null;\n\ntry\n{\n    throw $caught;\n}\n");
+
+        List<Object[]> deferred = new ArrayList<Object[]>();
+
+        for (CatchTree c : tree.getCatches()) {
+            VariableTree parameter = c.getParameter();
+            String name = parameter.getName().toString();
+            Map<String, String> scope = new HashMap<String, String>();
+
+            current.append("catch (").append(code(parameter)).append(")\n{\n");
+
+            if (!waits(c.getBlock())) {
+                scope.put(name, null);
+                scopes.push(scope);
+                current.append(indent("if (true)\n" + code(c.getBlock()) + "\n", "    "));
+                scopes.pop();
+                current.append("    $state = ").append(after).append(";\n    continue $resume;\n}\n");
+            } else {
+                int start = states++;
+
+                if (refers(c.getBlock(), name)) {
+                    if (parameter.getType().getKind() == Tree.Kind.UNION_TYPE) {
+                        throw new UnsupportedException(parameter, "A @Resumable process cannot use a multi-catch "
+                                + "parameter in a catch block which waits.");
+                    }
+
+                    String field = field(parameter);
+
+                    current.append("    ").append(field).append(" = ").append(name).append(";\n");
+                    scope.put(name, field);
+                } else {
+                    scope.put(name, null);
+                }
+
+                current.append("    $state = ").append(start).append(";\n    continue $resume;\n}\n");
+                deferred.add(new Object[] { start, c.getBlock(), scope });
+            }
+        }
+
+        close();
+
+        for (Object[] c : deferred) {
+            open((Integer) c[0]);
+
+            @SuppressWarnings("unchecked")
+            Map<String, String> scope = (Map<String, String>) c[2];
+
+            scopes.push(scope);
+            statement((BlockTree) c[1]);
+            scopes.pop();
+            jump(after);
+        }
+
+        open(after);
+    }
+
+    private void open(int next) {
+        current = new StringBuilder();
+        state = next;
+        handlers.put(next, handler);
+    }
+
+    private void close() {
+        cases.append("case ").append(state).append(":\n{\n").append(indent(current.toString(), "    ")).append("}\n");
+        current = null;
+    }
+
+    /**
+     * 写入原样复制的语句，必要时放在 if (true) 中，使之后的跳转总是可达的
+     */
+    private void flush() {
+        if (pending.length() > 0) {
+            if (wrap) {
+                current.append("if (true)\n{\n").append(indent(pending.toString(), "    ")).append("}\n");
+            } else {
+                current.append(pending);
+            }
+
+            pending.setLength(0);
+            wrap = false;
+        }
+    }
+
+    private void verbatim(String statement, boolean compound) {
+        pending.append(statement).append('\n');
+        wrap = compound;
+    }
+
+    private void jump(int target) {
+        flush();
+        current.append(jumpTo(target));
+        close();
+    }
+
+    private void choose(String condition, int yes, int no) {
+        flush();
+        current.append("$state = (").append(condition).append(") ? ").append(yes).append(" : ").append(no)
+                .append(";\ncontinue $resume;\n");
+        close();
+    }
+
+    private static String jumpTo(int target) {
+        return "$state = " + target + ";\ncontinue $resume;\n";
+    }
+
+    /**
+     * 调用的是否是本进程的方法，是时返回方法名
+     */
+    private static String waitName(MethodInvocationTree tree) {
+        ExpressionTree select = tree.getMethodSelect();
+        String name;
+
+        if (select instanceof IdentifierTree) {
+            name = ((IdentifierTree) select).getName().toString();
+        } else if (select instanceof MemberSelectTree && ((MemberSelectTree) select).getExpression() instanceof IdentifierTree
+                && (((IdentifierTree) ((MemberSelectTree) select).getExpression()).getName().contentEquals("this")
+                        || ((IdentifierTree) ((MemberSelectTree) select).getExpression()).getName()
+                                .contentEquals("super"))) {
+            name = ((MemberSelectTree) select).getIdentifier().toString();
+        } else {
+            return null;
+        }
+
+        Integer arity = WAITS.containsKey(name) ? WAITS.get(name) : UNSUPPORTED.get(name);
+
+        if (arity == null || arity >= 0 && arity != tree.getArguments().size()) {
+            return null;
+        }
+
+        return name;
+    }
+
+    /**
+     * 语句是否等待，不包括 lambda 与类中的代码
+     */
+    private static boolean waits(Tree tree) {
+        final boolean[] found = new boolean[1];
+
+        new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitClass(ClassTree node, Void unused) {
+                return null;
+            }
+
+            @Override
+            public Void visitLambdaExpression(LambdaExpressionTree node, Void unused) {
+                return null;
+            }
+
+            @Override
+            public Void visitMethodInvocation(MethodInvocationTree node, Void unused) {
+                String name = waitName(node);
+
+                found[0] |= name != null && WAITS.containsKey(name);
+
+                return super.visitMethodInvocation(node, unused);
+            }
+        }.scan(tree, null);
+
+        return found[0];
+    }
+
+    /**
+     * 语句是否使用了给定名字的变量
+     */
+    private static boolean refers(Tree tree, final String name) {
+        final boolean[] found = new boolean[1];
+
+        new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitIdentifier(IdentifierTree node, Void unused) {
+                found[0] |= node.getName().contentEquals(name);
+
+                return null;
+            }
+        }.scan(tree, null);
+
+        return found[0];
+    }
+
+    private int start(Tree tree) {
+        return (int) positions.getStartPosition(unit, tree);
+    }
+
+    private int end(Tree tree) {
+        return (int) positions.getEndPosition(unit, tree);
+    }
+
+    private int indexOf(char c, int from) {
+        for (int i = from; i < source.length(); i++) {
+            if (source.charAt(i) == c) {
+                return i;
+            }
+        }
+
+        throw new UnsupportedException(type, "Cannot find '" + c + "' in the source.");
+    }
+
+    private int indexOf(String s, int from) {
+        int at = source.toString().indexOf(s, from);
+
+        if (at < 0) {
+            throw new UnsupportedException(type, "Cannot find " + s + " in the source.");
+        }
+
+        return at;
+    }
+
+    private String text(Tree tree) {
+        return source.subSequence(start(tree), end(tree)).toString();
+    }
+
+    private String text(Tree tree, int from, int to) {
+        Code code = new Code(0);
+
+        code.scan(tree, null);
+
+        return code.apply(from, to);
+    }
+
+    /**
+     * run 中的代码，局部变量改为字段，跳出展开语句的 break 与 continue 改为跳转
+     */
+    private String code(Tree tree) {
+        return text(tree, start(tree), end(tree));
+    }
+
+    /**
+     * run 之外的代码，只替换类名
+     */
+    private String members(Tree tree) {
+        Code code = new Code(1);
+
+        code.scan(tree, null);
+
+        return code.apply(start(tree), end(tree));
+    }
+
+    private static String indent(String text, String indent) {
+        StringBuilder out = new StringBuilder();
+
+        for (String line : text.split("\n", -1)) {
+            if (!line.isEmpty()) {
+                out.append(indent).append(line);
+            }
+            out.append('\n');
+        }
+
+        out.setLength(out.length() - 1);
+
+        return out.toString();
+    }
+
+    /**
+     * 对源代码的一处替换
+     */
+    private static final class Edit {
+        final int start;
+        final int end;
+        final String text;
+
+        Edit(int start, int end, String text) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+    }
+
+    /**
+     * 收集一段代码中需要替换的名字与跳转
+     */
+    private final class Code extends TreeScanner<Void, Void> {
+        final List<Edit> edits = new ArrayList<Edit>();
+        /**
+         * 这段代码中声明的变量
+         */
+        final Deque<Set<String>> declared = new ArrayDeque<Set<String>>();
+        /**
+         * 这段代码中的循环、switch 与带标号的语句
+         */
+        final Deque<Target> inner = new ArrayDeque<Target>();
+        /**
+         * 在 lambda 或类中的深度，其中的 break 与 continue 不会跳出这段代码
+         */
+        int nested;
+
+        Code(int nested) {
+            this.nested = nested;
+            declared.push(new HashSet<String>());
+        }
+
+        String apply(int from, int to) {
+            Collections.sort(edits, (a, b) -> Integer.compare(a.start, b.start));
+
+            StringBuilder out = new StringBuilder();
+            int at = from;
+
+            for (Edit edit : edits) {
+                if (edit.start >= at && edit.end <= to) {
+                    out.append(source, at, edit.start).append(edit.text);
+                    at = edit.end;
+                }
+            }
+
+            return out.append(source, at, to).toString();
+        }
+
+        private String resolve(String name) {
+            for (Set<String> names : declared) {
+                if (names.contains(name)) {
+                    return null;
+                }
+            }
+
+            for (Map<String, String> scope : scopes) {
+                if (scope.containsKey(name)) {
+                    return scope.get(name);
+                }
+            }
+
+            return null;
+        }
+
+        private void declare(String name) {
+            declared.peek().add(name);
+        }
+
+        @Override
+        public Void visitIdentifier(IdentifierTree tree, Void unused) {
+            String name = tree.getName().toString();
+            String replacement = name.equals(original) ? generated : resolve(name);
+
+            if (replacement != null) {
+                edits.add(new Edit(start(tree), end(tree), replacement));
+            }
+
+            return null;
+        }
+
+        @Override
+        public Void visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+            if (!(tree.getMethodSelect() instanceof IdentifierTree)) {
+                scan(tree.getMethodSelect(), null);
+            }
+
+            scan(tree.getTypeArguments(), null);
+            scan(tree.getArguments(), null);
+
+            return null;
+        }
+
+        @Override
+        public Void visitMemberSelect(MemberSelectTree tree, Void unused) {
+            return scan(tree.getExpression(), null);
+        }
+
+        @Override
+        public Void visitMemberReference(MemberReferenceTree tree, Void unused) {
+            scan(tree.getQualifierExpression(), null);
+            scan(tree.getTypeArguments(), null);
+
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(VariableTree tree, Void unused) {
+            declare(tree.getName().toString());
+            scan(tree.getType(), null);
+
+            return scan(tree.getInitializer(), null);
+        }
+
+        @Override
+        public Void visitBlock(BlockTree tree, Void unused) {
+            declared.push(new HashSet<String>());
+            super.visitBlock(tree, unused);
+            declared.pop();
+
+            return null;
+        }
+
+        @Override
+        public Void visitCatch(CatchTree tree, Void unused) {
+            declared.push(new HashSet<String>());
+            super.visitCatch(tree, unused);
+            declared.pop();
+
+            return null;
+        }
+
+        @Override
+        public Void visitTry(TryTree tree, Void unused) {
+            declared.push(new HashSet<String>());
+            super.visitTry(tree, unused);
+            declared.pop();
+
+            return null;
+        }
+
+        @Override
+        public Void visitLambdaExpression(LambdaExpressionTree tree, Void unused) {
+            declared.push(new HashSet<String>());
+            nested++;
+            super.visitLambdaExpression(tree, unused);
+            nested--;
+            declared.pop();
+
+            return null;
+        }
+
+        @Override
+        public Void visitClass(ClassTree tree, Void unused) {
+            Set<String> members = new HashSet<String>();
+
+            for (Tree member : tree.getMembers()) {
+                if (member instanceof VariableTree) {
+                    members.add(((VariableTree) member).getName().toString());
+                }
+            }
+
+            declared.push(members);
+            nested++;
+            super.visitClass(tree, unused);
+            nested--;
+            declared.pop();
+
+            return null;
+        }
+
+        @Override
+        public Void visitMethod(MethodTree tree, Void unused) {
+            declared.push(new HashSet<String>());
+            super.visitMethod(tree, unused);
+            declared.pop();
+
+            return null;
+        }
+
+        @Override
+        public Void visitForLoop(ForLoopTree tree, Void unused) {
+            declared.push(new HashSet<String>());
+            inner.push(new Target(null, true, true, -1, -1));
+            super.visitForLoop(tree, unused);
+            inner.pop();
+            declared.pop();
+
+            return null;
+        }
+
+        @Override
+        public Void visitEnhancedForLoop(EnhancedForLoopTree tree, Void unused) {
+            declared.push(new HashSet<String>());
+            inner.push(new Target(null, true, true, -1, -1));
+            super.visitEnhancedForLoop(tree, unused);
+            inner.pop();
+            declared.pop();
+
+            return null;
+        }
+
+        @Override
+        public Void visitWhileLoop(WhileLoopTree tree, Void unused) {
+            inner.push(new Target(null, true, true, -1, -1));
+            super.visitWhileLoop(tree, unused);
+            inner.pop();
+
+            return null;
+        }
+
+        @Override
+        public Void visitDoWhileLoop(DoWhileLoopTree tree, Void unused) {
+            inner.push(new Target(null, true, true, -1, -1));
+            super.visitDoWhileLoop(tree, unused);
+            inner.pop();
+
+            return null;
+        }
+
+        @Override
+        public Void visitSwitch(SwitchTree tree, Void unused) {
+            declared.push(new HashSet<String>());
+            inner.push(new Target(null, false, true, -1, -1));
+            super.visitSwitch(tree, unused);
+            inner.pop();
+            declared.pop();
+
+            return null;
+        }
+
+        @Override
+        public Void visitLabeledStatement(LabeledStatementTree tree, Void unused) {
+            inner.push(new Target(tree.getLabel().toString(), false, false, -1, -1));
+            super.visitLabeledStatement(tree, unused);
+            inner.pop();
+
+            return null;
+        }
+
+        @Override
+        public Void visitBreak(BreakTree tree, Void unused) {
+            jump(tree, tree.getLabel() == null ? null : tree.getLabel().toString(), false);
+
+            return null;
+        }
+
+        @Override
+        public Void visitContinue(ContinueTree tree, Void unused) {
+            jump(tree, tree.getLabel() == null ? null : tree.getLabel().toString(), true);
+
+            return null;
+        }
+
+        /**
+         * 跳出这段代码、到达展开语句的 break 与 continue 改为跳转到对应的 case
+         */
+        private void jump(Tree tree, String label, boolean next) {
+            if (nested > 0) {
+                return;
+            }
+
+            for (Target target : inner) {
+                if (label == null ? (next ? target.loop : target.breakable) : label.equals(target.label)) {
+                    return;
+                }
+            }
+
+            for (Target target : targets) {
+                if (label == null ? (next ? target.loop : target.breakable) : label.equals(target.label)) {
+                    edits.add(new Edit(start(tree), end(tree),
+                            "{ " + jumpTo(next ? target.continueState : target.breakState).replace('\n', ' ') + "}"));
+                    return;
+                }
+            }
+        }
+    }
+}
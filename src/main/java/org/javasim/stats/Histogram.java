@@ -105,6 +105,46 @@ public class Histogram extends PrecisionHistogram
         super.setValue(value);
     }
 
+    /**
+     * @param other the histogram to add, which must be a Histogram with the
+     * same maximum number of buckets and merge choice. The buckets are then
+     * merged until there are no more than the maximum number.
+     */
+
+    public void merge (Mean other) throws IllegalArgumentException
+    {
+        if (!(other instanceof Histogram))
+            throw new IllegalArgumentException("Cannot merge a "
+                    + other.getClass().getName() + " into a Histogram.");
+
+        Histogram hist = (Histogram) other;
+
+        if ((hist.maxSize != maxSize) || (hist.merge != merge))
+            throw new IllegalArgumentException("Cannot merge a histogram of "
+                    + hist.maxSize + " buckets with merge choice " + hist.merge
+                    + " into one of " + maxSize + " buckets with merge choice "
+                    + merge);
+
+        super.merge(other);
+
+        while (numberOfBuckets() > maxSize)
+        {
+            long before = numberOfBuckets();
+
+            try
+            {
+                mergeBuckets();
+            }
+            catch (StatisticsException e)
+            {
+                break;
+            }
+
+            if (numberOfBuckets() == before)
+                break;
+        }
+    }
+
     /**
      * Save the state of the histogram to the file named 'fileName'.
      * 
@@ -47,6 +47,28 @@ public class Mean
         _Mean = (double) (_Sum / _Number);
     }
 
+    /**
+     * Add the samples summarised by another instance to this one, as if
+     * they had been given to setValue, e.g., to pool the results of
+     * independent replications.
+     *
+     * @param other the statistics to add.
+     */
+
+    public void merge (Mean other) throws IllegalArgumentException
+    {
+        if (other._Number == 0)
+            return;
+
+        if (other._Max > _Max)
+            _Max = other._Max;
+        if (other._Min < _Min)
+            _Min = other._Min;
+        _Sum += other._Sum;
+        _Number += other._Number;
+        _Mean = _Sum / _Number;
+    }
+
     /**
      * Reset the object.
      */
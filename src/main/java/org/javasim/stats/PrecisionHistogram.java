@@ -82,6 +82,34 @@ public class PrecisionHistogram extends Variance
         add(trail, value, false);
     }
 
+    /**
+     * @param other the histogram to add, which must also be a PrecisionHistogram.
+     * The entries of its buckets are added to the buckets with the same name.
+     */
+
+    public void merge (Mean other) throws IllegalArgumentException
+    {
+        if (!(other instanceof PrecisionHistogram))
+            throw new IllegalArgumentException("Cannot merge a "
+                    + other.getClass().getName() + " into a histogram.");
+
+        super.merge(other);
+
+        for (Bucket ptr = ((PrecisionHistogram) other).Head; ptr != null; ptr = ptr.cdr())
+        {
+            create(ptr.name());
+
+            for (Bucket b = Head; b != null; b = b.cdr())
+            {
+                if (b.name() == ptr.name())
+                {
+                    b.incrementSize(ptr.size());
+                    break;
+                }
+            }
+        }
+    }
+
     /**
      * Empty the histogram.
      */
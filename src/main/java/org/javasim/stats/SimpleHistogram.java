@@ -118,6 +118,30 @@ public class SimpleHistogram extends PrecisionHistogram
                 + value);
     }
 
+    /**
+     * @param other the histogram to add, which must be a SimpleHistogram with
+     * the same range and bucket width. The entries of its buckets are added
+     * to the corresponding buckets.
+     */
+
+    public void merge (Mean other) throws IllegalArgumentException
+    {
+        if (!(other instanceof SimpleHistogram))
+            throw new IllegalArgumentException("Cannot merge a "
+                    + other.getClass().getName() + " into a SimpleHistogram.");
+
+        SimpleHistogram hist = (SimpleHistogram) other;
+
+        if ((hist.minIndex != minIndex) || (hist.maxIndex != maxIndex)
+                || (hist.width != width))
+            throw new IllegalArgumentException("Cannot merge a histogram over [ "
+                    + hist.minIndex + ", " + hist.maxIndex + " ] with width "
+                    + hist.width + " into one over [ " + minIndex + ", "
+                    + maxIndex + " ] with width " + width);
+
+        super.merge(other);
+    }
+
     /**
      * Empty the histogram. Always keep the number of buckets that
      * were originally specified though.
@@ -0,0 +1,102 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.stats;
+
+/**
+ * Quantiles of the Student t distribution, used for confidence intervals.
+ * The normal quantile uses the rational approximation of P. J. Acklam
+ * (relative error below 1.2e-9), and the t quantile its expansion in
+ * powers of 1/df (Abramowitz and Stegun 26.7.5), which is exact enough for
+ * confidence intervals from about five degrees of freedom. One and two
+ * degrees of freedom have closed forms.
+ */
+
+final class StudentT
+{
+    private StudentT()
+    {
+    }
+
+    /**
+     * @param p the probability, between 0 and 1.
+     * @param df the degrees of freedom.
+     * @return the value t such that P(T &lt;= t) = p.
+     */
+
+    static double quantile (double p, long df)
+    {
+        if ((p <= 0) || (p >= 1) || (df < 1))
+            throw new IllegalArgumentException();
+
+        if (df == 1)
+            return Math.tan(Math.PI * (p - 0.5));
+
+        if (df == 2)
+            return (2 * p - 1) / Math.sqrt(2 * p * (1 - p));
+
+        double z = normalQuantile(p);
+        double z2 = z * z;
+        double n = df;
+
+        double g1 = (z2 + 1) * z / 4;
+        double g2 = ((5 * z2 + 16) * z2 + 3) * z / 96;
+        double g3 = (((3 * z2 + 19) * z2 + 17) * z2 - 15) * z / 384;
+        double g4 = ((((79 * z2 + 776) * z2 + 1482) * z2 - 1920) * z2 - 945) * z / 92160;
+
+        return z + (g1 + (g2 + (g3 + g4 / n) / n) / n) / n;
+    }
+
+    static double normalQuantile (double p)
+    {
+        final double low = 0.02425;
+
+        if (p < low)
+        {
+            double q = Math.sqrt(-2 * Math.log(p));
+
+            return (((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5])
+                    / ((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1);
+        }
+
+        if (p > 1 - low)
+            return -normalQuantile(1 - p);
+
+        double q = p - 0.5;
+        double r = q * q;
+
+        return (((((A[0] * r + A[1]) * r + A[2]) * r + A[3]) * r + A[4]) * r + A[5]) * q
+                / (((((B[0] * r + B[1]) * r + B[2]) * r + B[3]) * r + B[4]) * r + 1);
+    }
+
+    private static final double[] A = { -3.969683028665376e+01, 2.209460984245205e+02,
+            -2.759285104469687e+02, 1.383577518672690e+02, -3.066479806614716e+01,
+            2.506628277459239e+00 };
+
+    private static final double[] B = { -5.447609879822406e+01, 1.615858368580409e+02,
+            -1.556989798598866e+02, 6.680131188771972e+01, -1.328068155288572e+01 };
+
+    private static final double[] C = { -7.784894002430293e-03, -3.223964580411365e-01,
+            -2.400758277161838e+00, -2.549732539343734e+00, 4.374664141464968e+00,
+            2.938163982698783e+00 };
+
+    private static final double[] D = { 7.784695709041462e-03, 3.224671290700398e-01,
+            2.445134137142996e+00, 3.754408661907416e+00 };
+}
@@ -70,6 +70,20 @@ public class TimeVariance extends Variance
         store(value);
     }
 
+    /**
+     * Time-weighted statistics are measured against the clock of one
+     * simulation, so they cannot be pooled; merge the timeAverage() of each
+     * simulation into a Mean or Variance instead.
+     * 
+     * @param other the statistics to add.
+     * @throws IllegalArgumentException always.
+     */
+
+    public void merge (Mean other) throws IllegalArgumentException
+    {
+        throw new IllegalArgumentException("Cannot merge into a TimeVariance.");
+    }
+
     /**
      * @return the average value given up to the current simulation time.
      */
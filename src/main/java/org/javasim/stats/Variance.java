@@ -48,6 +48,20 @@ public class Variance extends Mean
         super.setValue(value);
     }
 
+    /**
+     * @param other the statistics to add, which must also be a Variance.
+     */
+
+    public void merge (Mean other) throws IllegalArgumentException
+    {
+        if (!(other instanceof Variance))
+            throw new IllegalArgumentException("Cannot merge a "
+                    + other.getClass().getName() + " into a Variance.");
+
+        _sqr += ((Variance) other)._sqr;
+        super.merge(other);
+    }
+
     /**
      * Zero the statistics.
      */
@@ -96,6 +110,27 @@ public class Variance extends Mean
         return mean() + (1+value)*stdDev();
     }
 
+    /**
+     * The half width of the confidence interval for the mean, using the
+     * Student t distribution. If the samples are the results of independent
+     * replications then the interval is mean() plus or minus this value.
+     *
+     * @param level the confidence level, e.g., 0.95.
+     * @return the half width, or NaN if there are fewer than two samples.
+     */
+
+    public double confidenceInterval (double level) throws IllegalArgumentException
+    {
+        if ((level >= 1) || (level <= 0))
+            throw new IllegalArgumentException();
+
+        if (_Number < 2)
+            return Double.NaN;
+
+        return StudentT.quantile((1 + level) / 2, _Number - 1) * stdDev()
+                / Math.sqrt(_Number);
+    }
+
     /**
      * Prints out the statistics information.
      */
@@ -21,6 +21,10 @@
 package org.javasim.streams;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.javasim.SimulationContext;
 
 /**
  * The class RandomStream is the base class from which the other distribution
@@ -31,6 +35,10 @@ import java.io.IOException;
  * Seminumerical Algorithms). The multiplicative generator is courtesy I.
  * Mitrani 1992, private correspondence: Y[i+1] = Y[i] * 5^5 mod 2^26, period is
  * 2^24, initial seed must be odd
+ *
+ * All of the streams created in the same SimulationContext share the state
+ * of the generator, so independent simulations running in the same JVM do
+ * not disturb each other's random numbers.
  */
 
 public abstract class RandomStream
@@ -67,40 +75,29 @@ public abstract class RandomStream
 
     protected RandomStream()
     {
-      if (series == null)
-      {
-        series = new double[128];
-
-        mSeed = 772531;
-        lSeed = 1878892440;
-
-        for (int i = 0; i < RandomStream.sizeOfSeries
-                / RandomStream.sizeOfDouble; i++)
-            series[i] = mgen();
-      }
+        state = RandomStream.stateOf(SimulationContext.current());
     }
 
     protected RandomStream(long MGSeed, long LCGSeed)
     {
-        series = new double[128];
-
-        // Clean up input parameters
+        state = RandomStream.stateOf(SimulationContext.current());
 
-        if ((MGSeed & 1) == 0)
-            MGSeed--;
-        if (MGSeed < 0)
-            MGSeed = -MGSeed;
-        if (LCGSeed < 0)
-            LCGSeed = -LCGSeed;
-
-        // Initialise state
+        state.seed(MGSeed, LCGSeed);
+    }
 
-        mSeed = MGSeed;
-        lSeed = LCGSeed;
+    /**
+     * Reseed the generator shared by the streams of the current
+     * SimulationContext, as creating a stream with these seeds would. Giving
+     * each of a number of independent replications different seeds gives
+     * them independent random numbers.
+     *
+     * @param MGSeed the seed of the multiplicative generator.
+     * @param LCGSeed the seed of the linear congruential generator.
+     */
 
-        for (int i = 0; i < RandomStream.sizeOfSeries
-                / RandomStream.sizeOfDouble; i++)
-            series[i] = mgen();
+    public static void seed (long MGSeed, long LCGSeed)
+    {
+        RandomStream.stateOf(SimulationContext.current()).seed(MGSeed, LCGSeed);
     }
 
     protected final double uniform ()
@@ -115,44 +112,95 @@ public abstract class RandomStream
 
         // Do the multiplication in pieces to avoid overflow
 
-        long p0 = lSeed % m1, p1 = lSeed / m1, q0 = b % m1, q1 = b / m1;
+        long p0 = state.lSeed % m1, p1 = state.lSeed / m1, q0 = b % m1, q1 = b / m1;
 
-        lSeed = (((((p0 * q1 + p1 * q0) % m1) * m1 + p0 * q0) % m) + 1) % m;
+        state.lSeed = (((((p0 * q1 + p1 * q0) % m1) * m1 + p0 * q0) % m) + 1) % m;
 
         // The results of the LC generator are shuffled with
         // the multiplicative generator as suggested by
         // Maclaren and Marsaglia (See Knuth Vol2, Seminumerical Algorithms)
 
-        long choose = lSeed
+        long choose = state.lSeed
                 % (RandomStream.sizeOfSeries / RandomStream.sizeOfDouble);
 
-        double result = series[(int) choose];
-        series[(int) choose] = mgen();
+        double result = state.series[(int) choose];
+        state.series[(int) choose] = state.mgen();
 
         return result;
     }
 
-    private double mgen ()
-    {
-        // A multiplicative generator, courtesy I. Mitrani 1992,
-        // private correspondence
-        // Y[i+1] = Y[i] * 5^5 mod 2^26
-        // period is 2^24, initial seed must be odd
+    /*
+     * The generator state of a context, created with the default seeds
+     * when the first stream of the context is created.
+     */
 
-        long two2the26th = 67108864; // 2**26
+    private static synchronized State stateOf (SimulationContext context)
+    {
+        State s = RandomStream.states.get(context);
 
-        mSeed = (mSeed * 25) % two2the26th;
-        mSeed = (mSeed * 25) % two2the26th;
-        mSeed = (mSeed * 5) % two2the26th;
+        if (s == null)
+        {
+            s = new State();
+            RandomStream.states.put(context, s);
+        }
 
-        return (double) mSeed / (double) two2the26th;
+        return s;
     }
 
-    private static long mSeed = 0;
+    private static final class State
+    {
+        State ()
+        {
+            seed(772531, 1878892440);
+        }
+
+        void seed (long MGSeed, long LCGSeed)
+        {
+            // Clean up input parameters
+
+            if ((MGSeed & 1) == 0)
+                MGSeed--;
+            if (MGSeed < 0)
+                MGSeed = -MGSeed;
+            if (LCGSeed < 0)
+                LCGSeed = -LCGSeed;
+
+            // Initialise state
+
+            mSeed = MGSeed;
+            lSeed = LCGSeed;
+
+            for (int i = 0; i < RandomStream.sizeOfSeries
+                    / RandomStream.sizeOfDouble; i++)
+                series[i] = mgen();
+        }
+
+        double mgen ()
+        {
+            // A multiplicative generator, courtesy I. Mitrani 1992,
+            // private correspondence
+            // Y[i+1] = Y[i] * 5^5 mod 2^26
+            // period is 2^24, initial seed must be odd
+
+            long two2the26th = 67108864; // 2**26
+
+            mSeed = (mSeed * 25) % two2the26th;
+            mSeed = (mSeed * 25) % two2the26th;
+            mSeed = (mSeed * 5) % two2the26th;
+
+            return (double) mSeed / (double) two2the26th;
+        }
+
+        long mSeed;
+
+        long lSeed;
+
+        double[] series = new double[128];
+    }
 
-    private static long lSeed = 0;
+    private static final Map<SimulationContext, State> states = new WeakHashMap<SimulationContext, State>();
 
-    private static double[] series = null;
+    private final State state;
 
     /*
      * We do this so that we can have the same results when running on most Unix
@@ -0,0 +1,376 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.javasim.ParallelEvent;
+import org.javasim.RestartException;
+import org.javasim.Simulation;
+import org.javasim.SimulationException;
+import org.javasim.SimulationProcess;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/*
+ * Occurs every time unit. Cells sharing a partition also update a
+ * shared total, so computing them in the wrong order would show.
+ */
+
+class Cell extends ParallelEvent
+{
+    public Cell (int id, long[] shared, List<String> trace, Set<String> threads)
+    {
+        this.id = id;
+        this.shared = shared;
+        this.trace = trace;
+        this.threads = threads;
+    }
+
+    protected void compute ()
+    {
+        threads.add(Thread.currentThread().getName());
+
+        for (int i = 0; i < 1000; i++)
+            value = value * 6364136223846793005L + id + (long) currentTime();
+
+        if (shared != null)
+            shared[0] = shared[0] * 31 + id;
+    }
+
+    public void run ()
+    {
+        trace.add(id + ":" + value + ":" + (shared == null ? "" : shared[0]) + "@" + currentTime());
+
+        try
+        {
+            activateDelay(1);
+        }
+        catch (final Exception ex)
+        {
+            fail(ex.toString());
+        }
+    }
+
+    private final int id;
+    private final long[] shared;
+    private final List<String> trace;
+    private final Set<String> threads;
+    private long value = 0;
+}
+
+/*
+ * Its run() cancels or moves another event, which may already have been
+ * computed in the same batch.
+ */
+
+class Canceller extends ParallelEvent
+{
+    public Canceller (List<String> trace)
+    {
+        this.trace = trace;
+    }
+
+    protected void compute ()
+    {
+        if (broken)
+            throw new IllegalArgumentException("broken compute");
+    }
+
+    public void run ()
+    {
+        trace.add("run@" + currentTime());
+
+        try
+        {
+            if (victim != null && move)
+                victim.reactivateDelay(1);
+            else if (victim != null)
+                victim.cancel();
+        }
+        catch (final Exception ex)
+        {
+            trace.add(ex.toString());
+        }
+    }
+
+    public Canceller victim = null;
+    public boolean broken = false;
+    public boolean move = false;
+
+    private final List<String> trace;
+}
+
+class FailingBatchRunner extends SimulationProcess
+{
+    public FailingBatchRunner (ParallelEvent[] events, List<String> trace, CountDownLatch done)
+    {
+        this.events = events;
+        this.trace = trace;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            Simulation.start();
+
+            for (ParallelEvent event : events)
+                event.activateDelay(1);
+
+            hold(5);
+
+            trace.add("runner@" + currentTime());
+        }
+        catch (final RestartException ex)
+        {
+            trace.add("restarted");
+        }
+        catch (final Throwable ex)
+        {
+            trace.add(ex.toString());
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    private final ParallelEvent[] events;
+    private final List<String> trace;
+    private final CountDownLatch done;
+}
+
+class ParallelEventRunner extends SimulationProcess
+{
+    public ParallelEventRunner (ForkJoinPool pool, List<String> trace, Set<String> threads, CountDownLatch done)
+    {
+        this.pool = pool;
+        this.trace = trace;
+        this.threads = threads;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            List<Cell> cells = new ArrayList<Cell>();
+            long[] shared = new long[1];
+
+            Simulation.start();
+            Simulation.setEventPool(pool);
+
+            for (int i = 0; i < 8; i++)
+            {
+                Cell cell = new Cell(i, i % 4 == 0 ? shared : null, trace, threads);
+
+                if (i % 4 == 0)
+                    cell.touches("shared", Integer.valueOf(i));
+                else if (i != 7)
+                    cell.touches(Integer.valueOf(i));
+
+                cells.add(cell);
+                cell.activateDelay(1);
+            }
+
+            hold(10.5);
+
+            for (Cell cell : cells)
+                cell.cancel();
+
+            Simulation.setEventPool(null);
+            Simulation.stop();
+        }
+        catch (final Throwable ex)
+        {
+            trace.add(ex.toString());
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    private final ForkJoinPool pool;
+    private final List<String> trace;
+    private final Set<String> threads;
+    private final CountDownLatch done;
+}
+
+public class ParallelEventUnitTest
+{
+    @Test
+    public void test () throws Exception
+    {
+        Set<String> serialThreads = Collections.synchronizedSet(new HashSet<String>());
+        Set<String> parallelThreads = Collections.synchronizedSet(new HashSet<String>());
+        List<String> serial = run(null, serialThreads);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<String> parallel;
+
+        try
+        {
+            parallel = run(pool, parallelThreads);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        assertEquals(80, serial.size());
+        assertEquals(serial, parallel);
+        assertEquals(1, serialThreads.size());
+        assertTrue(parallelThreads.size() > 1);
+    }
+
+    @Test
+    public void testCancelWithinBatch () throws Exception
+    {
+        List<String> trace = new ArrayList<String>();
+        Canceller first = new Canceller(trace);
+        Canceller second = new Canceller(trace);
+
+        first.victim = second;
+
+        Throwable cause = runUntilFailure(new ParallelEvent[] { first, second }, trace);
+
+        assertTrue(cause instanceof SimulationException);
+        assertEquals(Arrays.asList("run@1.0", "restarted"), trace);
+    }
+
+    @Test
+    public void testRescheduleWithinBatch () throws Exception
+    {
+        List<String> trace = new ArrayList<String>();
+        Canceller first = new Canceller(trace);
+        Canceller second = new Canceller(trace);
+
+        first.victim = second;
+        first.move = true;
+
+        Throwable cause = runUntilFailure(new ParallelEvent[] { first, second }, trace);
+
+        assertTrue(cause instanceof SimulationException);
+        assertEquals(Arrays.asList("run@1.0", "restarted"), trace);
+    }
+
+    @Test
+    public void testComputeFailure () throws Exception
+    {
+        List<String> trace = new ArrayList<String>();
+        Canceller first = new Canceller(trace);
+        Canceller second = new Canceller(trace);
+
+        second.broken = true;
+
+        Throwable cause = runUntilFailure(new ParallelEvent[] { first, second }, trace);
+
+        assertEquals("broken compute", cause.getMessage());
+        assertEquals(Arrays.asList("restarted"), trace);
+    }
+
+    /*
+     * Run the events at time 1 until the simulation fails, then reset it.
+     */
+
+    private static Throwable runUntilFailure (ParallelEvent[] events, List<String> trace) throws Exception
+    {
+        reset();
+
+        CountDownLatch done = new CountDownLatch(1);
+        Throwable cause = null;
+
+        new FailingBatchRunner(events, trace, done).begin();
+
+        try
+        {
+            SimulationProcess.mainSuspend();
+        }
+        catch (final IllegalStateException ex)
+        {
+            cause = ex.getCause();
+        }
+
+        Simulation.reset();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+
+        Simulation.start();
+        Simulation.stop();
+
+        return cause;
+    }
+
+    private static List<String> run (ForkJoinPool pool, Set<String> threads) throws Exception
+    {
+        reset();
+
+        List<String> trace = new ArrayList<String>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        new ParallelEventRunner(pool, trace, threads, done).begin();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+
+        reset();
+
+        return trace;
+    }
+
+    /*
+     * Tests share the scheduler, so leave it without a current process.
+     */
+
+    private static void reset () throws Exception
+    {
+        try
+        {
+            SimulationProcess.current();
+        }
+        catch (final SimulationException ex)
+        {
+            return;
+        }
+
+        Simulation.reset();
+    }
+}
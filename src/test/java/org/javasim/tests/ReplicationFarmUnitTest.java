@@ -0,0 +1,118 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.javasim.Replication;
+import org.javasim.ReplicationFarm;
+import org.javasim.ReplicationRunner;
+import org.javasim.SimulationException;
+import org.javasim.stats.Variance;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReplicationFarmUnitTest
+{
+    /*
+     * Created by name in each worker JVM, so it must be public.
+     */
+
+    public static class Model implements Replication<Variance>
+    {
+        public Variance run (int replication) throws Exception
+        {
+            Variance waits = new Variance();
+
+            new Sampler(waits).await();
+
+            return waits;
+        }
+    }
+
+    public static class Broken implements Replication<Variance>
+    {
+        public Variance run (int replication) throws Exception
+        {
+            throw new IllegalStateException("broken");
+        }
+    }
+
+    @Test
+    public void test () throws Exception
+    {
+        ReplicationFarm farm = farm();
+        List<Variance> results = farm.run(5, Model.class, Variance::new);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        List<Variance> expected;
+
+        try
+        {
+            expected = new ReplicationRunner(pool, 42).run(5, new Model());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        assertEquals(5, results.size());
+
+        // the same seeds as in one JVM, so the same results
+
+        for (int i = 0; i < results.size(); i++)
+        {
+            assertEquals(100, results.get(i).numberOfSamples());
+            assertEquals(expected.get(i).mean(), results.get(i).mean(), 0);
+            assertEquals(expected.get(i).variance(), results.get(i).variance(), 0);
+        }
+    }
+
+    @Test
+    public void testFailure () throws Exception
+    {
+        try
+        {
+            farm().run(2, Broken.class, Variance::new);
+
+            fail();
+        }
+        catch (final SimulationException ex)
+        {
+        }
+    }
+
+    private static ReplicationFarm farm () throws Exception
+    {
+        ReplicationFarm farm = new ReplicationFarm(2, 42);
+
+        farm.setClassPath(location(ReplicationFarm.class) + File.pathSeparator + location(Model.class));
+
+        return farm;
+    }
+
+    private static String location (Class<?> type) throws Exception
+    {
+        return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    }
+}
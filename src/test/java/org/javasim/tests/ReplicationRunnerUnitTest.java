@@ -0,0 +1,168 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.javasim.Replication;
+import org.javasim.ReplicationRunner;
+import org.javasim.Simulation;
+import org.javasim.SimulationException;
+import org.javasim.SimulationProcess;
+import org.javasim.stats.Variance;
+import org.javasim.streams.ExponentialStream;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+class Sampler extends SimulationProcess
+{
+    public Sampler (Variance waits)
+    {
+        this.waits = waits;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            ExponentialStream stream = new ExponentialStream(1);
+
+            Simulation.start();
+
+            for (int i = 0; i < 100; i++)
+            {
+                double wait = stream.getNumber();
+
+                hold(wait);
+                waits.setValue(wait);
+            }
+
+            Simulation.stop();
+        }
+        catch (final Exception ex)
+        {
+            waits.reset();
+        }
+
+        try
+        {
+            SimulationProcess.mainResume();
+        }
+        catch (final SimulationException ex)
+        {
+        }
+
+        terminate();
+    }
+
+    public void await ()
+    {
+        resumeProcess();
+        SimulationProcess.mainSuspend();
+    }
+
+    private Variance waits;
+}
+
+public class ReplicationRunnerUnitTest
+{
+    @Test
+    public void test () throws Exception
+    {
+        Replication<Variance> model = (replication) -> {
+            Variance waits = new Variance();
+
+            new Sampler(waits).await();
+
+            return waits;
+        };
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<Variance> results;
+        List<Variance> again;
+
+        try
+        {
+            ReplicationRunner runner = new ReplicationRunner(pool, 42);
+
+            results = runner.run(8, model);
+            again = runner.run(8, model);
+
+            // the pool belongs to the caller
+
+            runner.close();
+
+            assertFalse(pool.isShutdown());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        assertEquals(8, results.size());
+
+        // each replication has its own random numbers, which do not depend on the others
+
+        for (int i = 0; i < results.size(); i++)
+        {
+            assertEquals(100, results.get(i).numberOfSamples());
+            assertEquals(results.get(i).mean(), again.get(i).mean(), 0);
+
+            if (i > 0)
+                assertNotEquals(results.get(0).mean(), results.get(i).mean(), 0);
+        }
+
+        Variance summary = ReplicationRunner.summarize(results);
+
+        assertEquals(8, summary.numberOfSamples());
+        assertTrue(summary.confidenceInterval(0.95) > 0);
+        assertTrue(Math.abs(summary.mean() - 1) < 0.5);
+
+        Variance pooled = new Variance();
+
+        for (Variance result : results)
+            pooled.merge(result);
+
+        assertEquals(800, pooled.numberOfSamples());
+        assertEquals(summary.mean(), pooled.mean(), 1e-9);
+    }
+
+    @Test
+    public void testFailure () throws Exception
+    {
+        try (ReplicationRunner runner = new ReplicationRunner())
+        {
+            runner.run(3, (replication) -> {
+                if (replication == 1)
+                    throw new IllegalStateException("broken");
+
+                return replication;
+            });
+
+            fail();
+        }
+        catch (final SimulationException ex)
+        {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.javasim.RestartException;
+import org.javasim.ResumableProcess;
+import org.javasim.Simulation;
+import org.javasim.SimulationException;
+import org.javasim.SimulationProcess;
+import org.javasim.TriggerQueue;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+class Ticker extends ResumableProcess
+{
+    public Ticker (List<String> trace)
+    {
+        this.trace = trace;
+    }
+
+    protected void resume (int label) throws SimulationException, RestartException
+    {
+        switch (label)
+        {
+        case 0:
+            count = 0;
+        case 1:
+            if (count < 3)
+            {
+                count++;
+                trace.add("tick@" + currentTime());
+                holdThen(2, 1);
+                return;
+            }
+
+            trace.add("sleep@" + currentTime());
+            passivateThen(2);
+            return;
+        case 2:
+            trace.add("woken@" + currentTime());
+        }
+    }
+
+    private List<String> trace;
+    private int count;
+}
+
+class TriggerWaiter extends ResumableProcess
+{
+    public TriggerWaiter (TriggerQueue queue, List<String> trace)
+    {
+        this.queue = queue;
+        this.trace = trace;
+    }
+
+    protected void resume (int label) throws SimulationException, RestartException
+    {
+        switch (label)
+        {
+        case 0:
+        case 1:
+            trace.add("wait@" + currentTime());
+            waitForTriggerThen(queue, 2);
+            return;
+        case 2:
+            trace.add((triggered() ? "triggered@" : "interrupted@") + currentTime());
+
+            if (currentTime() < 5)
+                holdThen(1, 1);
+        }
+    }
+
+    private TriggerQueue queue;
+    private List<String> trace;
+}
+
+class TriggerRunner extends SimulationProcess
+{
+    public TriggerRunner (List<String> trace, CountDownLatch done)
+    {
+        this.trace = trace;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            TriggerQueue queue = new TriggerQueue();
+            TriggerWaiter waiter = new TriggerWaiter(queue, trace);
+
+            Simulation.start();
+
+            waiter.activate();
+
+            hold(2);
+
+            assertTrue(waiter.isWaiting());
+
+            queue.triggerFirst();
+
+            hold(4);
+
+            queue.triggerFirst(false);
+
+            hold(1);
+
+            assertTrue(waiter.terminated());
+
+            Simulation.stop();
+        }
+        catch (final Throwable ex)
+        {
+            trace.add(ex.toString());
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    private List<String> trace;
+    private CountDownLatch done;
+}
+
+class BadStep extends ResumableProcess
+{
+    protected void resume (int label) throws SimulationException, RestartException
+    {
+        switch (label)
+        {
+        case 0:
+            holdThen(1, 1);
+            return;
+        case 1:
+            holdThen(-1, 2);
+        }
+    }
+}
+
+class BadStepRunner extends SimulationProcess
+{
+    public BadStepRunner (BadStep step, List<String> trace, CountDownLatch done)
+    {
+        this.step = step;
+        this.trace = trace;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            Simulation.start();
+
+            step.activate();
+
+            hold(5);
+
+            trace.add("runner@" + currentTime());
+        }
+        catch (final RestartException ex)
+        {
+            trace.add("restarted");
+        }
+        catch (final Throwable ex)
+        {
+            trace.add(ex.toString());
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    private BadStep step;
+    private List<String> trace;
+    private CountDownLatch done;
+}
+
+class ResumableRunner extends SimulationProcess
+{
+    public ResumableRunner (List<String> trace, CountDownLatch done)
+    {
+        this.trace = trace;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            Ticker ticker = new Ticker(trace);
+
+            Simulation.start();
+
+            ticker.activate();
+
+            hold(3);
+
+            trace.add("runner@" + currentTime());
+
+            hold(7);
+
+            assertTrue(ticker.passivated());
+
+            ticker.activate();
+
+            hold(1);
+
+            trace.add("runner@" + currentTime());
+
+            assertTrue(ticker.terminated());
+
+            Simulation.stop();
+        }
+        catch (final Throwable ex)
+        {
+            trace.add(ex.toString());
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    private List<String> trace;
+    private CountDownLatch done;
+}
+
+public class ResumableProcessUnitTest
+{
+    @Test
+    public void test () throws Exception
+    {
+        reset();
+
+        List<String> trace = new ArrayList<String>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        new ResumableRunner(trace, done).begin();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+
+        reset();
+
+        String[] expected = { "tick@0.0", "tick@2.0", "runner@3.0", "tick@4.0", "sleep@6.0", "woken@10.0", "runner@11.0" };
+
+        assertEquals(Arrays.asList(expected), trace);
+    }
+
+    @Test
+    public void testTrigger () throws Exception
+    {
+        reset();
+
+        List<String> trace = new ArrayList<String>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        new TriggerRunner(trace, done).begin();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+
+        reset();
+
+        String[] expected = { "wait@0.0", "triggered@2.0", "wait@3.0", "interrupted@6.0" };
+
+        assertEquals(Arrays.asList(expected), trace);
+    }
+
+    @Test
+    public void testFailure () throws Exception
+    {
+        reset();
+
+        BadStep step = new BadStep();
+        List<String> trace = new ArrayList<String>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        new BadStepRunner(step, trace, done).begin();
+
+        try
+        {
+            SimulationProcess.mainSuspend();
+
+            fail();
+        }
+        catch (final IllegalStateException ex)
+        {
+            assertTrue(ex.getCause() instanceof SimulationException);
+        }
+
+        assertTrue(step.terminated());
+
+        Simulation.reset();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("restarted"), trace);
+
+        Simulation.start();
+        Simulation.stop();
+    }
+
+    /*
+     * Tests share the scheduler, so leave it without a current process.
+     */
+
+    private static void reset () throws Exception
+    {
+        try
+        {
+            SimulationProcess.current();
+        }
+        catch (final SimulationException ex)
+        {
+            return;
+        }
+
+        Simulation.reset();
+    }
+}
@@ -22,6 +22,7 @@ package org.javasim.tests;
 
 import org.javasim.RestartException;
 import org.javasim.Semaphore;
+import org.javasim.SimulationContext;
 import org.javasim.SimulationEntity;
 import org.javasim.streams.ExponentialStream;
 import org.junit.Test;
@@ -54,6 +55,22 @@ public class SemaphoreUnitTest
 {
     @Test
     public void test () throws Exception
+    {
+        /*
+         * e3 is still blocked on the semaphore when the test ends, and the
+         * finalizer of its TriggerQueue triggers it again. Create the
+         * entities in a context of their own so that this cannot disturb a
+         * later simulation in the default context.
+         */
+
+        new SimulationContext().call(() -> {
+            semaphore();
+
+            return null;
+        });
+    }
+
+    private static void semaphore () throws Exception
     {
 	Semaphore sem = new Semaphore(2);
 	DummyEntity e1 = new DummyEntity(10);
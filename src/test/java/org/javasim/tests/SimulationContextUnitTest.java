@@ -0,0 +1,131 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.javasim.Simulation;
+import org.javasim.SimulationContext;
+import org.javasim.SimulationProcess;
+import org.javasim.streams.UniformStream;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+class ContextRunner extends SimulationProcess
+{
+    public ContextRunner (List<String> trace, CountDownLatch done)
+    {
+        this.trace = trace;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            UniformStream stream = new UniformStream(0, 1);
+
+            Simulation.start();
+
+            for (int i = 1; i <= 5; i++)
+            {
+                hold(i);
+
+                trace.add(currentTime() + ":" + stream.getNumber());
+            }
+
+            Simulation.stop();
+        }
+        catch (final Throwable ex)
+        {
+            trace.add(ex.toString());
+        }
+        finally
+        {
+            done.countDown();
+        }
+
+        terminate();
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    private List<String> trace;
+    private CountDownLatch done;
+}
+
+public class SimulationContextUnitTest
+{
+    @Test
+    public void test () throws Exception
+    {
+        double before = SimulationContext.getDefault().currentTime();
+        final int models = 4;
+        final List<List<String>> traces = new ArrayList<List<String>>();
+        final CountDownLatch done = new CountDownLatch(models);
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for (int i = 0; i < models; i++)
+        {
+            final List<String> trace = new ArrayList<String>();
+            final SimulationContext context = new SimulationContext();
+
+            traces.add(trace);
+
+            threads.add(new Thread(() -> context.execute(() -> new ContextRunner(trace, done).begin())));
+        }
+
+        for (Thread thread : threads)
+            thread.start();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+
+        // every model has its own clock and its own random numbers
+
+        assertEquals(5, traces.get(0).size());
+        assertTrue(traces.get(0).get(4).startsWith("15.0:"));
+
+        for (int i = 1; i < models; i++)
+            assertEquals(traces.get(0), traces.get(i));
+
+        assertEquals(before, SimulationContext.getDefault().currentTime(), 0);
+    }
+
+    @Test
+    public void testCurrent () throws Exception
+    {
+        final SimulationContext context = new SimulationContext();
+
+        assertSame(SimulationContext.getDefault(), SimulationContext.current());
+
+        context.execute(() -> assertSame(context, SimulationContext.current()));
+
+        assertSame(context, context.call(() -> SimulationContext.current()));
+        assertSame(SimulationContext.getDefault(), SimulationContext.current());
+    }
+}
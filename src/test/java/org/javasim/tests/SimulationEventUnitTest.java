@@ -0,0 +1,262 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.javasim.RestartException;
+import org.javasim.Simulation;
+import org.javasim.SimulationEvent;
+import org.javasim.SimulationException;
+import org.javasim.SimulationProcess;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+class Recorder extends SimulationProcess
+{
+    public Recorder (List<String> trace)
+    {
+        this.trace = trace;
+    }
+
+    public void run ()
+    {
+        trace.add("process@" + currentTime());
+
+        terminate();
+    }
+
+    private List<String> trace;
+}
+
+class EventRunner extends SimulationProcess
+{
+    public EventRunner (List<String> trace, CountDownLatch done)
+    {
+        this.trace = trace;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            final Thread self = Thread.currentThread();
+            final SimulationEvent[] timer = new SimulationEvent[1];
+
+            Simulation.start();
+
+            timer[0] = new SimulationEvent(() -> {
+                assertSame(self, Thread.currentThread());
+
+                trace.add("timer@" + currentTime());
+
+                try
+                {
+                    if (currentTime() < 3)
+                        timer[0].activateDelay(1);
+                }
+                catch (final Exception ex)
+                {
+                    fail(ex.toString());
+                }
+            });
+
+            SimulationEvent first = new SimulationEvent(() -> trace.add("first@" + currentTime()));
+            SimulationEvent last = new SimulationEvent(() -> trace.add("last@" + currentTime()));
+
+            timer[0].activateDelay(1);
+            first.activateAt(5);
+            new Recorder(trace).activateAt(5);
+            last.activateAt(5);
+            new SimulationEvent(() -> trace.add("prior@" + currentTime())).activateAt(5, true);
+
+            hold(10);
+
+            trace.add("runner@" + currentTime());
+
+            assertTrue(first.idle());
+            assertTrue(timer[0].idle());
+
+            Simulation.stop();
+        }
+        catch (final Throwable ex)
+        {
+            trace.add(ex.toString());
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    private List<String> trace;
+    private CountDownLatch done;
+}
+
+class FailingRunner extends SimulationProcess
+{
+    public FailingRunner (List<String> trace, CountDownLatch done)
+    {
+        this.trace = trace;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            Simulation.start();
+
+            new SimulationEvent(() -> {
+                throw new IllegalArgumentException("broken handler");
+            }).activateDelay(1);
+
+            new SimulationEvent(() -> trace.add("after@" + currentTime())).activateDelay(2);
+
+            hold(5);
+
+            trace.add("runner@" + currentTime());
+        }
+        catch (final RestartException ex)
+        {
+            trace.add("restarted");
+        }
+        catch (final Throwable ex)
+        {
+            trace.add(ex.toString());
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    private List<String> trace;
+    private CountDownLatch done;
+}
+
+public class SimulationEventUnitTest
+{
+    @Test
+    public void test () throws Exception
+    {
+        reset();
+
+        List<String> trace = new ArrayList<String>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        new EventRunner(trace, done).begin();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+
+        reset();
+
+        String[] expected = { "timer@1.0", "timer@2.0", "timer@3.0", "prior@5.0", "first@5.0", "process@5.0", "last@5.0", "runner@10.0" };
+
+        assertEquals(Arrays.asList(expected), trace);
+    }
+
+    @Test
+    public void testFailure () throws Exception
+    {
+        reset();
+
+        List<String> trace = new ArrayList<String>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        new FailingRunner(trace, done).begin();
+
+        try
+        {
+            SimulationProcess.mainSuspend();
+
+            fail();
+        }
+        catch (final IllegalStateException ex)
+        {
+            assertTrue(ex.getCause() instanceof IllegalArgumentException);
+            assertSame(ex.getCause(), Simulation.getFailure());
+        }
+
+        Simulation.reset();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("restarted"), trace);
+
+        Simulation.start();
+
+        assertNull(Simulation.getFailure());
+
+        Simulation.stop();
+    }
+
+    @Test
+    public void testConstructor () throws Exception
+    {
+        final SimulationEvent event = new SimulationEvent(() -> { });
+
+        try
+        {
+            new SimulationEvent(null);
+
+            fail();
+        }
+        catch (final IllegalArgumentException ex)
+        {
+        }
+
+        assertTrue(event.idle());
+    }
+
+    /*
+     * Tests share the scheduler, so leave it without a current process.
+     */
+
+    private static void reset () throws Exception
+    {
+        try
+        {
+            SimulationProcess.current();
+        }
+        catch (final SimulationException ex)
+        {
+            return;
+        }
+
+        Simulation.reset();
+    }
+}
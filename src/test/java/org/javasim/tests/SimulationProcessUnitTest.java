@@ -20,6 +20,9 @@
 
 package org.javasim.tests;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.javasim.RestartException;
 import org.javasim.Simulation;
 import org.javasim.SimulationException;
@@ -86,6 +89,60 @@ class Runner extends SimulationProcess
     }
 }
 
+class Probe extends SimulationProcess
+{
+    public Probe (CountDownLatch started)
+    {
+        this.started = started;
+    }
+
+    public void run ()
+    {
+        started.countDown();
+    }
+
+    private CountDownLatch started;
+}
+
+class Resetter extends SimulationProcess
+{
+    public Resetter (CountDownLatch probeStarted, CountDownLatch done)
+    {
+        this.probeStarted = probeStarted;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            new Probe(probeStarted);
+
+            Simulation.start();
+            Simulation.reset();
+            Simulation.stop();
+
+            reset = true;
+        }
+        catch (final Exception e)
+        {
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    public boolean reset = false;
+
+    private CountDownLatch probeStarted;
+    private CountDownLatch done;
+}
 
 public class SimulationProcessUnitTest
 {
@@ -106,4 +163,51 @@ public class SimulationProcessUnitTest
 
         assertTrue(SimulationProcess.current() != null);
     }
+
+    /*
+     * A process may call mainResume before the main thread has reached
+     * mainSuspend; the resume must not be lost.
+     */
+
+    @Test
+    public void testResumeBeforeSuspend () throws Exception
+    {
+        SimulationProcess.mainResume();
+        SimulationProcess.mainSuspend();
+    }
+
+    /*
+     * Resetting must not start a process which was never activated, and
+     * must not fail at the end of the process list.
+     */
+
+    @Test
+    public void testResetIgnoresUnstarted () throws Exception
+    {
+        reset();
+
+        CountDownLatch probeStarted = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Resetter resetter = new Resetter(probeStarted, done);
+
+        resetter.begin();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        assertTrue(resetter.reset);
+        assertFalse(probeStarted.await(100, TimeUnit.MILLISECONDS));
+    }
+
+    private static void reset () throws Exception
+    {
+        try
+        {
+            SimulationProcess.current();
+        }
+        catch (final SimulationException ex)
+        {
+            return;
+        }
+
+        Simulation.reset();
+    }
 }
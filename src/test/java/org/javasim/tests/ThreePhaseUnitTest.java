@@ -0,0 +1,504 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.javasim.Activity;
+import org.javasim.RestartException;
+import org.javasim.Simulation;
+import org.javasim.SimulationEvent;
+import org.javasim.SimulationException;
+import org.javasim.SimulationProcess;
+import org.javasim.StateVariable;
+import org.javasim.ThreePhase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/*
+ * A single server queue: customers arrive every time unit and
+ * service takes 1.5, so the queue builds up.
+ */
+
+class Server
+{
+    public Server (final List<String> trace)
+    {
+        arrival = new SimulationEvent(() -> {
+            waiting++;
+            state.changed();
+
+            try
+            {
+                if (++arrivals < 5)
+                    Server.this.arrival.activateDelay(1);
+            }
+            catch (final Exception ex)
+            {
+                fail(ex.toString());
+            }
+        });
+
+        endService = new SimulationEvent(() -> {
+            trace.add("end@" + SimulationProcess.currentTime());
+
+            busy = false;
+            state.changed();
+        });
+
+        startService = new Activity() {
+            protected boolean canStart ()
+            {
+                tested++;
+
+                return waiting > 0 && !busy;
+            }
+
+            protected void start () throws SimulationException, RestartException
+            {
+                trace.add("start@" + SimulationProcess.currentTime());
+
+                waiting--;
+                busy = true;
+                state.changed();
+
+                endService.activateDelay(1.5);
+            }
+        };
+    }
+
+    public final StateVariable state = new StateVariable();
+
+    public final SimulationEvent arrival;
+
+    public final SimulationEvent endService;
+
+    public final Activity startService;
+
+    public int waiting = 0;
+
+    public boolean busy = false;
+
+    public int arrivals = 0;
+
+    public int tested = 0;
+}
+
+class ThreePhaseRunner extends SimulationProcess
+{
+    public ThreePhaseRunner (Server server, List<String> trace, CountDownLatch done)
+    {
+        this.server = server;
+        this.trace = trace;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            final SimulationEvent[] tick = new SimulationEvent[1];
+
+            Simulation.start();
+
+            server.startService.dependsOn(server.state);
+            ThreePhase.add(server.startService);
+
+            // ticks change nothing, so they must not cause the activity to be tested
+
+            tick[0] = new SimulationEvent(() -> {
+                try
+                {
+                    tick[0].activateDelay(0.25);
+                }
+                catch (final Exception ex)
+                {
+                    fail(ex.toString());
+                }
+            });
+
+            tick[0].activateDelay(0.25);
+            server.arrival.activateDelay(1);
+
+            hold(20);
+
+            trace.add("runner@" + currentTime());
+
+            tick[0].cancel();
+
+            Simulation.stop();
+        }
+        catch (final Throwable ex)
+        {
+            trace.add(ex.toString());
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    private Server server;
+    private List<String> trace;
+    private CountDownLatch done;
+}
+
+/*
+ * An activity with no declared dependencies: it has to be tested after
+ * every event, but never again until another event has happened.
+ */
+
+class IndependentRunner extends SimulationProcess
+{
+    public IndependentRunner (List<String> trace, int[] tested, CountDownLatch done)
+    {
+        this.trace = trace;
+        this.tested = tested;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            final int[] waiting = new int[1];
+            final SimulationEvent[] arrival = new SimulationEvent[1];
+            Activity serve = new Activity() {
+                protected boolean canStart ()
+                {
+                    tested[0]++;
+
+                    return waiting[0] > 0;
+                }
+
+                protected void start ()
+                {
+                    waiting[0]--;
+                    trace.add("serve@" + SimulationProcess.currentTime());
+                }
+            };
+
+            arrival[0] = new SimulationEvent(() -> {
+                waiting[0]++;
+
+                try
+                {
+                    if (SimulationProcess.currentTime() < 5)
+                        arrival[0].activateDelay(1);
+                }
+                catch (final Exception ex)
+                {
+                    fail(ex.toString());
+                }
+            });
+
+            Simulation.start();
+
+            ThreePhase.add(serve);
+            arrival[0].activateDelay(1);
+
+            hold(10);
+
+            trace.add("runner@" + currentTime());
+
+            ThreePhase.remove(serve);
+            Simulation.stop();
+        }
+        catch (final Throwable ex)
+        {
+            trace.add(ex.toString());
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    private List<String> trace;
+    private int[] tested;
+    private CountDownLatch done;
+}
+
+/*
+ * Several idle servers and as many customers arriving at the same time:
+ * an activity with no declared dependencies has to start once for each
+ * of them before simulation time advances.
+ */
+
+class MultiServerRunner extends SimulationProcess
+{
+    public MultiServerRunner (int servers, List<String> trace, CountDownLatch done)
+    {
+        this.servers = servers;
+        this.trace = trace;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            final int[] idle = { servers };
+            final int[] waiting = new int[1];
+            final SimulationEvent[] endService = new SimulationEvent[servers];
+            Activity serve = new Activity() {
+                protected boolean canStart ()
+                {
+                    return waiting[0] > 0 && idle[0] > 0;
+                }
+
+                protected void start () throws SimulationException, RestartException
+                {
+                    waiting[0]--;
+                    idle[0]--;
+                    trace.add("serve@" + SimulationProcess.currentTime());
+
+                    endService[idle[0]].activateDelay(10);
+                }
+            };
+
+            for (int i = 0; i < servers; i++)
+            {
+                endService[i] = new SimulationEvent(() -> idle[0]++);
+                new SimulationEvent(() -> waiting[0]++).activateDelay(1);
+            }
+
+            Simulation.start();
+
+            ThreePhase.add(serve);
+
+            hold(20);
+
+            trace.add("runner@" + currentTime());
+
+            ThreePhase.remove(serve);
+            Simulation.stop();
+        }
+        catch (final Throwable ex)
+        {
+            trace.add(ex.toString());
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    private int servers;
+    private List<String> trace;
+    private CountDownLatch done;
+}
+
+class FailingActivityRunner extends SimulationProcess
+{
+    public FailingActivityRunner (List<String> trace, CountDownLatch done)
+    {
+        this.trace = trace;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        Activity broken = new Activity() {
+            protected boolean canStart ()
+            {
+                return SimulationProcess.currentTime() >= 1;
+            }
+
+            protected void start () throws SimulationException
+            {
+                throw new SimulationException("broken activity");
+            }
+        };
+
+        try
+        {
+            Simulation.start();
+
+            ThreePhase.add(broken);
+            new SimulationEvent(() -> { }).activateDelay(1);
+
+            hold(5);
+
+            trace.add("runner@" + currentTime());
+        }
+        catch (final RestartException ex)
+        {
+            trace.add("restarted");
+        }
+        catch (final Throwable ex)
+        {
+            trace.add(ex.toString());
+        }
+        finally
+        {
+            ThreePhase.remove(broken);
+            done.countDown();
+        }
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    private List<String> trace;
+    private CountDownLatch done;
+}
+
+public class ThreePhaseUnitTest
+{
+    @Test
+    public void test () throws Exception
+    {
+        reset();
+
+        List<String> trace = new ArrayList<String>();
+        CountDownLatch done = new CountDownLatch(1);
+        Server server = new Server(trace);
+
+        new ThreePhaseRunner(server, trace, done).begin();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+
+        reset();
+
+        String[] expected = { "start@1.0", "end@2.5", "start@2.5", "end@4.0", "start@4.0", "end@5.5", "start@5.5",
+                "end@7.0", "start@7.0", "end@8.5", "runner@20.0" };
+
+        assertEquals(Arrays.asList(expected), trace);
+
+        // tested once at the start, then once after each change and once more after each start
+
+        assertTrue("tested " + server.tested + " times", server.tested <= 1 + 10 + 5);
+    }
+
+    @Test
+    public void testIndependent () throws Exception
+    {
+        reset();
+
+        List<String> trace = new ArrayList<String>();
+        int[] tested = new int[1];
+        CountDownLatch done = new CountDownLatch(1);
+
+        new IndependentRunner(trace, tested, done).begin();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+
+        reset();
+
+        String[] expected = { "serve@1.0", "serve@2.0", "serve@3.0", "serve@4.0", "serve@5.0", "runner@10.0" };
+
+        assertEquals(Arrays.asList(expected), trace);
+
+        // once when added, once after each of the 5 arrivals and the runner's 2 activations and once after each start
+
+        assertTrue("tested " + tested[0] + " times", tested[0] <= 1 + 5 + 2 + 5);
+    }
+
+    @Test
+    public void testIndependentServers () throws Exception
+    {
+        reset();
+
+        List<String> trace = new ArrayList<String>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        new MultiServerRunner(3, trace, done).begin();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+
+        reset();
+
+        String[] expected = { "serve@1.0", "serve@1.0", "serve@1.0", "runner@20.0" };
+
+        assertEquals(Arrays.asList(expected), trace);
+    }
+
+    @Test
+    public void testFailure () throws Exception
+    {
+        reset();
+
+        List<String> trace = new ArrayList<String>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        new FailingActivityRunner(trace, done).begin();
+
+        try
+        {
+            SimulationProcess.mainSuspend();
+
+            fail();
+        }
+        catch (final IllegalStateException ex)
+        {
+            assertEquals("broken activity", ex.getCause().getMessage());
+        }
+
+        Simulation.reset();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("restarted"), trace);
+
+        Simulation.start();
+        Simulation.stop();
+    }
+
+    /*
+     * Tests share the scheduler, so leave it without a current process.
+     */
+
+    private static void reset () throws Exception
+    {
+        try
+        {
+            SimulationProcess.current();
+        }
+        catch (final SimulationException ex)
+        {
+            return;
+        }
+
+        Simulation.reset();
+    }
+}
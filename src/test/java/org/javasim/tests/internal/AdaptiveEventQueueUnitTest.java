@@ -0,0 +1,141 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import java.util.Random;
+
+import org.javasim.SimulationProcess;
+import org.javasim.internal.AdaptiveEventQueue;
+import org.javasim.internal.LadderQueue;
+import org.javasim.internal.SimulationProcessHeap;
+import org.javasim.internal.SortedArrayQueue;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveEventQueueUnitTest
+{
+    @Test
+    public void testMatchesList () throws Exception
+    {
+        EventQueueOracle.check(new SortedArrayQueue(), 31, 3000, 20);
+        EventQueueOracle.check(new AdaptiveEventQueue(), 32, 3000, 100);
+        EventQueueOracle.check(new AdaptiveEventQueue(4, 16), 33, 5000, 1000);
+    }
+
+    @Test
+    public void testSwitching () throws Exception
+    {
+        Random random = new Random(5);
+        AdaptiveEventQueue adaptive = new AdaptiveEventQueue(8, 64);
+        SimulationProcessHeap heap = new SimulationProcessHeap();
+
+        assertTrue(adaptive.getDelegate() instanceof SortedArrayQueue);
+
+        for (int i = 0; i < 200; i++)
+        {
+            Idle p = Idle.at(random.nextDouble() * 10);
+
+            adaptive.insert(p, i % 7 == 0);
+            heap.insert(p, i % 7 == 0);
+        }
+
+        hold(adaptive, heap, random, 2000);
+
+        assertTrue(adaptive.getDelegate() instanceof LadderQueue);
+
+        while (heap.peek() != null && adaptive.getDelegate() instanceof LadderQueue)
+        {
+            for (int i = 0; i < 10 && heap.peek() != null; i++)
+                assertEquals(heap.remove(), adaptive.remove());
+
+            hold(adaptive, heap, random, 300);
+        }
+
+        assertTrue(adaptive.getDelegate() instanceof SimulationProcessHeap);
+
+        while (heap.peek() != null && adaptive.getDelegate() instanceof SimulationProcessHeap)
+        {
+            assertEquals(heap.remove(), adaptive.remove());
+
+            hold(adaptive, heap, random, 300);
+        }
+
+        assertTrue(adaptive.getDelegate() instanceof SortedArrayQueue);
+
+        while (heap.peek() != null)
+            assertEquals(heap.remove(), adaptive.remove());
+
+        assertEquals(adaptive.peek(), null);
+    }
+
+    @Test
+    public void testSimultaneousEvents () throws Exception
+    {
+        /*
+         * When most events happen at the same time there is nothing to
+         * gain from bucketing by time, so the heap is kept.
+         */
+
+        AdaptiveEventQueue adaptive = new AdaptiveEventQueue(8, 64);
+        SimulationProcessHeap heap = new SimulationProcessHeap();
+
+        for (int i = 0; i < 200; i++)
+        {
+            Idle p = Idle.at(i % 2);
+
+            adaptive.insert(p);
+            heap.insert(p);
+        }
+
+        for (int i = 0; i < 5000; i++)
+        {
+            SimulationProcess head = heap.remove();
+
+            assertEquals(head, adaptive.remove());
+
+            Idle p = Idle.at(head.evtime() + (i % 10 == 0 ? 1 : 0));
+
+            adaptive.insert(p, i % 3 == 0);
+            heap.insert(p, i % 3 == 0);
+        }
+
+        assertTrue(adaptive.getDelegate() instanceof SimulationProcessHeap);
+
+        while (heap.peek() != null)
+            assertEquals(heap.remove(), adaptive.remove());
+    }
+
+    private static void hold (AdaptiveEventQueue adaptive, SimulationProcessHeap heap, Random random, int events) throws Exception
+    {
+        for (int i = 0; i < events && heap.peek() != null; i++)
+        {
+            SimulationProcess head = heap.remove();
+
+            assertEquals(head, adaptive.remove());
+
+            Idle p = Idle.at(head.evtime() + (i % 4 == 0 ? 0 : -Math.log(random.nextDouble())));
+
+            adaptive.insert(p, i % 5 == 0);
+            heap.insert(p, i % 5 == 0);
+        }
+    }
+}
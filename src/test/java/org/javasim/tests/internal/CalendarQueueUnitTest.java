@@ -0,0 +1,79 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import java.util.Random;
+
+import org.javasim.SimulationProcess;
+import org.javasim.internal.CalendarQueue;
+import org.javasim.internal.SimulationProcessHeap;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CalendarQueueUnitTest
+{
+    @Test
+    public void testMatchesList () throws Exception
+    {
+        EventQueueOracle.check(new CalendarQueue(), 99, 3000, 20);
+        EventQueueOracle.check(new CalendarQueue(), 100, 3000, 100000);
+        EventQueueOracle.check(new CalendarQueue(4, 0.25), 101, 3000, 1000);
+    }
+
+    @Test
+    public void testHoldModel () throws Exception
+    {
+        /*
+         * The classic "hold" workload: remove the head and reschedule it
+         * a random increment later, with the queue size held constant.
+         */
+
+        Random random = new Random(7);
+        CalendarQueue calendar = new CalendarQueue();
+        SimulationProcessHeap heap = new SimulationProcessHeap();
+
+        for (int i = 0; i < 1000; i++)
+        {
+            Idle p = Idle.at(random.nextDouble() * 100);
+
+            calendar.insert(p);
+            heap.insert(p);
+        }
+
+        for (int i = 0; i < 20000; i++)
+        {
+            SimulationProcess head = heap.remove();
+
+            assertEquals(head, calendar.remove());
+
+            Idle p = Idle.at(head.evtime() + (i % 3 == 0 ? 0 : -Math.log(random.nextDouble()) * 10));
+
+            calendar.insert(p, i % 5 == 0);
+            heap.insert(p, i % 5 == 0);
+        }
+
+        while (heap.peek() != null)
+            assertEquals(heap.remove(), calendar.remove());
+
+        assertEquals(calendar.peek(), null);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import org.javasim.internal.CompactHeapQueue;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CompactHeapQueueUnitTest
+{
+    @Test
+    public void testMatchesList () throws Exception
+    {
+        EventQueueOracle.check(new CompactHeapQueue(), 21, 3000, 20);
+        EventQueueOracle.check(new CompactHeapQueue(1), 22, 3000, 100000);
+    }
+
+    @Test
+    public void testRepeatedInsertAfter () throws Exception
+    {
+        CompactHeapQueue queue = new CompactHeapQueue();
+        Idle target = Idle.at(3.0);
+        Idle last = Idle.at(3.0);
+        Idle[] inserted = new Idle[64];
+
+        queue.insert(target);
+        queue.insert(last);
+
+        for (int i = 0; i < inserted.length; i++)
+        {
+            inserted[i] = Idle.at(3.0);
+
+            assertTrue(queue.insertAfter(inserted[i], target));
+        }
+
+        assertEquals(queue.remove(), target);
+
+        for (int i = inserted.length - 1; i >= 0; i--)
+            assertEquals(queue.remove(), inserted[i]);
+
+        assertEquals(queue.remove(), last);
+        assertEquals(queue.peek(), null);
+    }
+}
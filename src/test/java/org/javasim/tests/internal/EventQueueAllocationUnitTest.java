@@ -0,0 +1,212 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.javasim.Simulation;
+import org.javasim.SimulationEvent;
+import org.javasim.SimulationException;
+import org.javasim.SimulationProcess;
+import org.javasim.internal.EventQueue;
+import org.javasim.internal.EventQueueFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/*
+ * Holds in a loop alongside a self-rescheduling event, so every hold()
+ * goes through the scheduler, fires the event inline and resumes this
+ * process on the same thread. Records the bytes this thread allocates
+ * per hold() once warmed up.
+ */
+
+class Holder extends SimulationProcess
+{
+    public Holder (com.sun.management.ThreadMXBean threads, CountDownLatch done)
+    {
+        this.threads = threads;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            final SimulationEvent[] timer = new SimulationEvent[1];
+
+            timer[0] = new SimulationEvent(() -> {
+                try
+                {
+                    timer[0].activateDelay(0.75);
+                }
+                catch (final Exception ex)
+                {
+                }
+            });
+
+            Simulation.start();
+
+            timer[0].activateDelay(0.75);
+
+            for (int i = 0; i < 200000; i++)
+                hold(1);
+
+            long tid = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(tid);
+
+            for (int i = 0; i < HOLDS; i++)
+                hold(1);
+
+            bytes = threads.getThreadAllocatedBytes(tid) - before;
+
+            timer[0].cancel();
+            Simulation.stop();
+        }
+        catch (final Exception ex)
+        {
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    public static final int HOLDS = 100000;
+
+    public long bytes = -1;
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final CountDownLatch done;
+}
+
+public class EventQueueAllocationUnitTest
+{
+    @Test
+    public void testHoldAllocatesNothing () throws Exception
+    {
+        /*
+         * Every hold() removes the head of the scheduler queue and inserts
+         * it again later. Once the queue has warmed up this cycle must not
+         * allocate, so measure the bytes allocated by this thread per event.
+         */
+
+        com.sun.management.ThreadMXBean threads = allocationCounter();
+
+        for (String type : new String[] { "heap", "skiplist", "compact", "calendar", "ladder", "wheel", "adaptive" })
+        {
+            EventQueue queue = EventQueueFactory.create(type);
+            Random random = new Random(17);
+            double[] delays = new double[1024];
+
+            for (int i = 0; i < delays.length; i++)
+                delays[i] = (i % 2 == 0) ? random.nextInt(20) : random.nextDouble() * 20;
+
+            for (int i = 0; i < 1000; i++)
+                queue.insert(Idle.at(random.nextInt(100)));
+
+            hold(queue, delays, 200000);
+
+            long tid = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(tid);
+
+            hold(queue, delays, 100000);
+
+            long bytes = threads.getThreadAllocatedBytes(tid) - before;
+
+            assertTrue(type + " allocated " + bytes + " bytes", bytes / 100000.0 < 1.0);
+        }
+    }
+
+    @Test
+    public void testSchedulerHoldAllocatesNothing () throws Exception
+    {
+        com.sun.management.ThreadMXBean threads = allocationCounter();
+
+        reset();
+
+        CountDownLatch done = new CountDownLatch(1);
+        Holder holder = new Holder(threads, done);
+
+        holder.begin();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+
+        reset();
+
+        assertTrue("hold() allocated " + holder.bytes + " bytes", holder.bytes >= 0 && holder.bytes / (double) Holder.HOLDS < 1.0);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter ()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        return threads;
+    }
+
+    /*
+     * Tests share the scheduler, so leave it without a current process.
+     */
+
+    private static void reset () throws Exception
+    {
+        try
+        {
+            SimulationProcess.current();
+        }
+        catch (final SimulationException ex)
+        {
+            return;
+        }
+
+        Simulation.reset();
+    }
+
+    private static void hold (EventQueue queue, double[] delays, int events) throws Exception
+    {
+        for (int i = 0; i < events; i++)
+        {
+            Idle p = (Idle) queue.remove();
+
+            p.setWakeupTime(p.evtime() + delays[i & (delays.length - 1)]);
+
+            queue.insert(p, (i & 7) == 0);
+        }
+    }
+}
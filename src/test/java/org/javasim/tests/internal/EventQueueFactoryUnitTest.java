@@ -0,0 +1,80 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import org.javasim.internal.EventQueueFactory;
+import org.javasim.internal.SimulationProcessHeap;
+import org.javasim.internal.SimulationProcessQueue;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EventQueueFactoryUnitTest
+{
+    public static class BrokenQueue extends SimulationProcessHeap
+    {
+        public BrokenQueue ()
+        {
+            throw new IllegalStateException("broken");
+        }
+    }
+
+    @Test
+    public void test () throws Exception
+    {
+        assertTrue(EventQueueFactory.create("heap") instanceof SimulationProcessHeap);
+        assertTrue(EventQueueFactory.create("LIST") instanceof SimulationProcessQueue);
+        assertTrue(EventQueueFactory.create(SimulationProcessQueue.class.getName()) instanceof SimulationProcessQueue);
+
+        try
+        {
+            EventQueueFactory.create("no.such.Queue");
+
+            fail();
+        }
+        catch (final IllegalArgumentException ex)
+        {
+        }
+
+        try
+        {
+            EventQueueFactory.create(String.class.getName());
+
+            fail();
+        }
+        catch (final IllegalArgumentException ex)
+        {
+        }
+
+        // the exception thrown by the constructor is the cause, not its reflective wrapper
+
+        try
+        {
+            EventQueueFactory.create(BrokenQueue.class.getName());
+
+            fail();
+        }
+        catch (final IllegalArgumentException ex)
+        {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+}
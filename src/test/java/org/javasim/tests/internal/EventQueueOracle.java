@@ -0,0 +1,115 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.javasim.SimulationProcess;
+import org.javasim.internal.EventQueue;
+import org.javasim.internal.SimulationProcessQueue;
+
+import static org.junit.Assert.*;
+
+/**
+ * Applies the same random sequence of operations to an event queue and to
+ * the original linked list implementation, checking that both always agree
+ * on the order of the processes.
+ */
+
+class EventQueueOracle
+{
+    public static void check (EventQueue queue, long seed, int operations, int times) throws Exception
+    {
+        Random random = new Random(seed);
+        SimulationProcessQueue list = new SimulationProcessQueue();
+        List<Idle> queued = new ArrayList<Idle>();
+
+        for (int i = 0; i < operations; i++)
+        {
+            int op = random.nextInt(11);
+
+            if (op < 5 || queued.isEmpty())
+            {
+                Idle p = Idle.at(random.nextInt(times));
+                boolean prior = random.nextBoolean();
+
+                queue.insert(p, prior);
+                list.insert(p, prior);
+                queued.add(p);
+            }
+            else if (op < 7)
+            {
+                Idle target = queued.get(random.nextInt(queued.size()));
+                Idle p = Idle.at(target.evtime());
+
+                if (op == 5)
+                {
+                    assertTrue(queue.insertBefore(p, target));
+                    assertTrue(list.insertBefore(p, target));
+                }
+                else
+                {
+                    assertTrue(queue.insertAfter(p, target));
+                    assertTrue(list.insertAfter(p, target));
+                }
+
+                queued.add(p);
+            }
+            else if (op == 7)
+            {
+                Idle target = queued.remove(random.nextInt(queued.size()));
+
+                assertEquals(queue.remove(target), target);
+                list.remove(target);
+            }
+            else if (op == 8)
+            {
+                Idle target = queued.get(random.nextInt(queued.size()));
+
+                assertEquals(list.getNext(target), queue.getNext(target));
+            }
+            else if (op == 9)
+            {
+                Idle target = queued.get(random.nextInt(queued.size()));
+                boolean prior = random.nextBoolean();
+
+                target.setWakeupTime(random.nextInt(times));
+
+                assertTrue(queue.reschedule(target, prior));
+                assertTrue(list.reschedule(target, prior));
+            }
+            else
+            {
+                SimulationProcess head = list.remove();
+
+                assertEquals(head, queue.remove());
+                queued.remove(head);
+            }
+        }
+
+        while (list.peek() != null)
+            assertEquals(list.remove(), queue.remove());
+
+        assertEquals(queue.peek(), null);
+    }
+}
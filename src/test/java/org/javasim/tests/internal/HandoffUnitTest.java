@@ -0,0 +1,77 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.javasim.internal.Handoff;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HandoffUnitTest
+{
+    @Test
+    public void testReleaseBeforeAcquire () throws Exception
+    {
+        Handoff handoff = new Handoff();
+
+        handoff.release();
+        handoff.release();
+
+        handoff.acquire();
+        handoff.acquire();
+    }
+
+    @Test(timeout = 60000)
+    public void testPingPong () throws Exception
+    {
+        final int rounds = 10000;
+        final Handoff ping = new Handoff();
+        final Handoff pong = new Handoff();
+        final AtomicInteger turn = new AtomicInteger();
+
+        Thread other = new Thread(() -> {
+            for (int i = 0; i < rounds; i++)
+            {
+                ping.acquire();
+
+                assertEquals(2 * i + 2, turn.incrementAndGet());
+
+                pong.release();
+            }
+        });
+
+        other.start();
+
+        for (int i = 0; i < rounds; i++)
+        {
+            assertEquals(2 * i, turn.getAndIncrement());
+
+            ping.release();
+            pong.acquire();
+        }
+
+        other.join();
+
+        assertEquals(2 * rounds, turn.get());
+    }
+}
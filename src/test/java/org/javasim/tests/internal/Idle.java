@@ -0,0 +1,63 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import java.lang.reflect.Field;
+
+import org.javasim.SimulationProcess;
+
+/**
+ * A process which is never run, used to exercise the event queues directly
+ * without going through the global scheduler. The wakeup time is normally
+ * only assigned by the activate methods, so it is set reflectively here.
+ */
+
+class Idle extends SimulationProcess
+{
+    public static Idle at (double time) throws Exception
+    {
+        Idle p = new Idle();
+
+        p.setWakeupTime(time);
+
+        return p;
+    }
+
+    public void setWakeupTime (double time) throws Exception
+    {
+        if (wakeupTime == null)
+        {
+            Field f = SimulationProcess.class.getDeclaredField("wakeuptime");
+
+            f.setAccessible(true);
+
+            wakeupTime = f;
+        }
+
+        wakeupTime.setDouble(this, time);
+    }
+
+    public void run ()
+    {
+    }
+
+    private static Field wakeupTime = null;
+}
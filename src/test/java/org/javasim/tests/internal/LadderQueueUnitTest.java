@@ -0,0 +1,129 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import java.util.Random;
+
+import org.javasim.SimulationProcess;
+import org.javasim.internal.LadderQueue;
+import org.javasim.internal.SimulationProcessHeap;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LadderQueueUnitTest
+{
+    @Test
+    public void testMatchesList () throws Exception
+    {
+        EventQueueOracle.check(new LadderQueue(), 99, 3000, 20);
+        EventQueueOracle.check(new LadderQueue(), 100, 3000, 100000);
+        EventQueueOracle.check(new LadderQueue(), 101, 3000, 1000);
+    }
+
+    @Test
+    public void testHoldModel () throws Exception
+    {
+        /*
+         * The classic "hold" workload: remove the head and reschedule it
+         * a random increment later, with the queue size held constant.
+         */
+
+        Random random = new Random(7);
+        LadderQueue ladder = new LadderQueue();
+        SimulationProcessHeap heap = new SimulationProcessHeap();
+
+        for (int i = 0; i < 1000; i++)
+        {
+            Idle p = Idle.at(random.nextDouble() * 100);
+
+            ladder.insert(p);
+            heap.insert(p);
+        }
+
+        for (int i = 0; i < 20000; i++)
+        {
+            SimulationProcess head = heap.remove();
+
+            assertEquals(head, ladder.remove());
+
+            Idle p = Idle.at(head.evtime() + (i % 3 == 0 ? 0 : -Math.log(random.nextDouble()) * 10));
+
+            ladder.insert(p, i % 5 == 0);
+            heap.insert(p, i % 5 == 0);
+        }
+
+        while (heap.peek() != null)
+            assertEquals(heap.remove(), ladder.remove());
+
+        assertEquals(ladder.peek(), null);
+    }
+
+    @Test
+    public void testSkewedHolds () throws Exception
+    {
+        /*
+         * Mostly sub-unit increments with occasional long holds, and
+         * far outliers, so buckets overflow and new rungs are spawned.
+         */
+
+        Random random = new Random(11);
+        LadderQueue ladder = new LadderQueue();
+        SimulationProcessHeap heap = new SimulationProcessHeap();
+
+        for (int i = 0; i < 2000; i++)
+        {
+            Idle p = Idle.at(i % 100 == 0 ? 100000 + i : random.nextDouble());
+
+            ladder.insert(p);
+            heap.insert(p);
+        }
+
+        for (int i = 0; i < 50000; i++)
+        {
+            SimulationProcess head = heap.remove();
+
+            assertEquals(head, ladder.remove());
+
+            double r = random.nextDouble();
+            double delay;
+
+            if (r < 0.7)
+                delay = random.nextDouble();
+            else if (r < 0.9)
+                delay = 10 + random.nextDouble() * 90;
+            else if (r < 0.99)
+                delay = 200 + random.nextDouble() * 300;
+            else
+                delay = 0;
+
+            Idle p = Idle.at(head.evtime() + delay);
+
+            ladder.insert(p, r > 0.95);
+            heap.insert(p, r > 0.95);
+        }
+
+        while (heap.peek() != null)
+            assertEquals(heap.remove(), ladder.remove());
+
+        assertEquals(ladder.peek(), null);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.javasim.internal.Handoff;
+import org.javasim.internal.PooledThreadExecutor;
+import org.javasim.internal.ProcessExecutor;
+import org.javasim.internal.ProcessExecutorFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PooledThreadExecutorUnitTest
+{
+    @Test
+    public void testReuse () throws Exception
+    {
+        PooledThreadExecutor executor = new PooledThreadExecutor();
+        final Set<Thread> carriers = new HashSet<Thread>();
+
+        for (int i = 0; i < 100; i++)
+        {
+            ProcessExecutor.Execution execution = executor.create(() -> {
+                synchronized (carriers)
+                {
+                    carriers.add(Thread.currentThread());
+                }
+            }, "test");
+
+            execution.start();
+
+            awaitFinished(execution);
+            awaitIdle(executor, 1);
+        }
+
+        assertEquals(1, carriers.size());
+        assertEquals(1, executor.getCreatedCount());
+
+        // a carrier never keeps the JVM from exiting
+
+        assertTrue(carriers.iterator().next().isDaemon());
+    }
+
+    @Test
+    public void testSuspendResume () throws Exception
+    {
+        PooledThreadExecutor executor = new PooledThreadExecutor();
+        final Handoff done = new Handoff();
+        final ProcessExecutor.Execution[] first = new ProcessExecutor.Execution[1];
+
+        first[0] = executor.create(() -> {
+            first[0].suspend();
+            done.release();
+        }, "first");
+
+        first[0].start();
+
+        // the first carrier is suspended, so a second process needs its own carrier
+
+        ProcessExecutor.Execution second = executor.create(() -> { }, "second");
+
+        second.start();
+
+        awaitFinished(second);
+
+        assertEquals(2, executor.getCreatedCount());
+        assertFalse(first[0].isFinished());
+
+        first[0].resume();
+        done.acquire();
+
+        awaitFinished(first[0]);
+    }
+
+    @Test
+    public void testKeepAlive () throws Exception
+    {
+        PooledThreadExecutor executor = new PooledThreadExecutor(10, TimeUnit.MILLISECONDS);
+        ProcessExecutor.Execution execution = executor.create(() -> { }, "test");
+
+        execution.start();
+
+        awaitFinished(execution);
+
+        for (int i = 0; i < 1000 && (executor.getCreatedCount() == 0 || executor.getIdleCount() > 0); i++)
+            Thread.sleep(10);
+
+        assertEquals(1, executor.getCreatedCount());
+        assertEquals(0, executor.getIdleCount());
+    }
+
+    @Test
+    public void testFactory () throws Exception
+    {
+        assertTrue(ProcessExecutorFactory.create("pooled") instanceof PooledThreadExecutor);
+    }
+
+    private static void awaitFinished (ProcessExecutor.Execution execution) throws InterruptedException
+    {
+        for (int i = 0; i < 1000 && !execution.isFinished(); i++)
+            Thread.sleep(1);
+
+        assertTrue(execution.isFinished());
+    }
+
+    private static void awaitIdle (PooledThreadExecutor executor, int count) throws InterruptedException
+    {
+        for (int i = 0; i < 1000 && executor.getIdleCount() < count; i++)
+            Thread.sleep(1);
+
+        assertEquals(count, executor.getIdleCount());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import org.javasim.internal.ProcessExecutor;
+import org.javasim.internal.ProcessExecutorFactory;
+import org.javasim.internal.ThreadExecutor;
+import org.javasim.internal.VirtualThreadExecutor;
+import org.javasim.internal.VirtualThreads;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ProcessExecutorFactoryUnitTest
+{
+    public static class BrokenExecutor extends ThreadExecutor
+    {
+        public BrokenExecutor ()
+        {
+            throw new IllegalStateException("broken");
+        }
+    }
+
+    @Test
+    public void test () throws Exception
+    {
+        assertTrue(ProcessExecutorFactory.create("platform") instanceof ThreadExecutor);
+        assertTrue(ProcessExecutorFactory.create(ThreadExecutor.class.getName()) instanceof ThreadExecutor);
+
+        ProcessExecutor virtual = ProcessExecutorFactory.create("Virtual");
+
+        if (VirtualThreads.isAvailable())
+            assertTrue(virtual instanceof VirtualThreadExecutor);
+        else
+            assertTrue(virtual instanceof ThreadExecutor);
+
+        try
+        {
+            ProcessExecutorFactory.create("no.such.Executor");
+
+            fail();
+        }
+        catch (final IllegalArgumentException ex)
+        {
+        }
+
+        try
+        {
+            ProcessExecutorFactory.create(String.class.getName());
+
+            fail();
+        }
+        catch (final IllegalArgumentException ex)
+        {
+        }
+
+        // the exception thrown by the constructor is the cause, not its reflective wrapper
+
+        try
+        {
+            ProcessExecutorFactory.create(BrokenExecutor.class.getName());
+
+            fail();
+        }
+        catch (final IllegalArgumentException ex)
+        {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testExecution () throws Exception
+    {
+        final int[] steps = new int[1];
+        ProcessExecutor.Execution execution = new ThreadExecutor().create(() -> steps[0]++, "test");
+
+        assertFalse(execution.isFinished());
+
+        execution.start();
+
+        for (int i = 0; i < 1000 && !execution.isFinished(); i++)
+            Thread.sleep(10);
+
+        assertTrue(execution.isFinished());
+        assertEquals(1, steps[0]);
+
+        execution.resume();
+        execution.suspend();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import java.util.NoSuchElementException;
+
+import org.javasim.internal.SimulationProcessHeap;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SimulationProcessHeapUnitTest
+{
+    @Test
+    public void testOrdering () throws Exception
+    {
+        SimulationProcessHeap heap = new SimulationProcessHeap();
+        Idle p1 = Idle.at(5.0);
+        Idle p2 = Idle.at(5.0);
+        Idle p3 = Idle.at(5.0);
+        Idle p4 = Idle.at(1.0);
+
+        try
+        {
+            heap.remove();
+
+            fail();
+        }
+        catch (final NoSuchElementException ex)
+        {
+        }
+
+        heap.insert(p1);
+        heap.insert(p2);
+        heap.insert(p3, true);
+        heap.insert(p4);
+
+        assertEquals(heap.peek(), p4);
+        assertEquals(heap.getNext(p4), p3);
+        assertEquals(heap.getNext(p3), p1);
+        assertEquals(heap.getNext(p2), null);
+
+        assertEquals(heap.remove(p1), p1);
+        assertEquals(heap.remove(), p4);
+        assertEquals(heap.remove(), p3);
+        assertEquals(heap.remove(), p2);
+        assertEquals(heap.peek(), null);
+    }
+
+    @Test
+    public void testRepeatedInsertBefore () throws Exception
+    {
+        SimulationProcessHeap heap = new SimulationProcessHeap();
+        Idle first = Idle.at(2.0);
+        Idle target = Idle.at(2.0);
+        Idle[] inserted = new Idle[64];
+
+        heap.insert(first);
+        heap.insert(target);
+
+        for (int i = 0; i < inserted.length; i++)
+        {
+            inserted[i] = Idle.at(2.0);
+
+            assertTrue(heap.insertBefore(inserted[i], target));
+        }
+
+        assertEquals(heap.remove(), first);
+
+        for (int i = 0; i < inserted.length; i++)
+            assertEquals(heap.remove(), inserted[i]);
+
+        assertEquals(heap.remove(), target);
+    }
+
+    @Test
+    public void testSeveralQueues () throws Exception
+    {
+        SimulationProcessHeap first = new SimulationProcessHeap();
+        SimulationProcessHeap second = new SimulationProcessHeap();
+        Idle p1 = Idle.at(1.0);
+        Idle p2 = Idle.at(2.0);
+
+        first.insert(p1);
+        first.insert(p2);
+        second.insert(p2);
+
+        assertEquals(second.remove(p2), p2);
+        assertEquals(first.getNext(p1), p2);
+
+        try
+        {
+            second.remove(p1);
+
+            fail();
+        }
+        catch (final NoSuchElementException ex)
+        {
+        }
+
+        assertEquals(first.remove(p1), p1);
+        assertEquals(first.remove(), p2);
+
+        // neither process is left attached to either queue
+
+        for (Idle p : new Idle[] { p1, p2 })
+        {
+            for (SimulationProcessHeap heap : new SimulationProcessHeap[] { first, second })
+            {
+                try
+                {
+                    heap.remove(p);
+
+                    fail();
+                }
+                catch (final NoSuchElementException ex)
+                {
+                }
+            }
+        }
+
+        second.insert(p1);
+
+        assertEquals(second.remove(), p1);
+        assertNull(second.peek());
+    }
+
+    @Test
+    public void testMatchesList () throws Exception
+    {
+        EventQueueOracle.check(new SimulationProcessHeap(), 1234, 2000, 20);
+    }
+}
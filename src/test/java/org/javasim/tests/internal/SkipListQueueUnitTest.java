@@ -0,0 +1,86 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import java.util.Random;
+
+import org.javasim.SimulationProcess;
+import org.javasim.internal.SimulationProcessHeap;
+import org.javasim.internal.SkipListQueue;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SkipListQueueUnitTest
+{
+    @Test
+    public void testMatchesList () throws Exception
+    {
+        EventQueueOracle.check(new SkipListQueue(), 11, 3000, 20);
+        EventQueueOracle.check(new SkipListQueue(), 12, 3000, 100000);
+    }
+
+    @Test
+    public void testLookahead () throws Exception
+    {
+        /*
+         * Walk the whole queue with getNext before every removal, as a
+         * lookahead model would, and compare with the heap.
+         */
+
+        Random random = new Random(13);
+        SkipListQueue skipList = new SkipListQueue();
+        SimulationProcessHeap heap = new SimulationProcessHeap();
+
+        for (int i = 0; i < 200; i++)
+        {
+            Idle p = Idle.at(random.nextInt(50));
+
+            skipList.insert(p, i % 3 == 0);
+            heap.insert(p, i % 3 == 0);
+        }
+
+        for (int i = 0; i < 2000; i++)
+        {
+            SimulationProcess expected = heap.peek();
+            SimulationProcess actual = skipList.peek();
+
+            while (expected != null)
+            {
+                assertEquals(expected, actual);
+
+                expected = heap.getNext(expected);
+                actual = skipList.getNext(actual);
+            }
+
+            assertEquals(actual, null);
+
+            SimulationProcess head = heap.remove();
+
+            assertEquals(head, skipList.remove());
+
+            Idle p = Idle.at(head.evtime() + random.nextInt(10));
+
+            skipList.insert(p);
+            heap.insert(p);
+        }
+    }
+}
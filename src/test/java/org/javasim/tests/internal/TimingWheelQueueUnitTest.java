@@ -0,0 +1,81 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import java.util.Random;
+
+import org.javasim.SimulationProcess;
+import org.javasim.internal.SimulationProcessHeap;
+import org.javasim.internal.TimingWheelQueue;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelQueueUnitTest
+{
+    @Test
+    public void testMatchesList () throws Exception
+    {
+        EventQueueOracle.check(new TimingWheelQueue(), 5, 3000, 20);
+        EventQueueOracle.check(new TimingWheelQueue(), 6, 3000, 1000000);
+        EventQueueOracle.check(new TimingWheelQueue(0.3), 7, 3000, 1000);
+        EventQueueOracle.check(new TimingWheelQueue(1000), 8, 3000, 100000);
+    }
+
+    @Test
+    public void testHoldModel () throws Exception
+    {
+        /*
+         * Integer increments spanning several levels of the wheel, so
+         * slots are cascaded down as the current tick advances.
+         */
+
+        Random random = new Random(3);
+        TimingWheelQueue wheel = new TimingWheelQueue();
+        SimulationProcessHeap heap = new SimulationProcessHeap();
+
+        for (int i = 0; i < 1000; i++)
+        {
+            Idle p = Idle.at(random.nextInt(100));
+
+            wheel.insert(p);
+            heap.insert(p);
+        }
+
+        for (int i = 0; i < 50000; i++)
+        {
+            SimulationProcess head = heap.remove();
+
+            assertEquals(head, wheel.remove());
+
+            int delay = (i % 7 == 0) ? random.nextInt(100000) : random.nextInt(10);
+            Idle p = Idle.at(head.evtime() + delay);
+
+            wheel.insert(p, i % 4 == 0);
+            heap.insert(p, i % 4 == 0);
+        }
+
+        while (heap.peek() != null)
+            assertEquals(heap.remove(), wheel.remove());
+
+        assertEquals(wheel.peek(), null);
+    }
+}
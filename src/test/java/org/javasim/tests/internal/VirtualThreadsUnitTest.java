@@ -0,0 +1,68 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated
+ * by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.internal;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.javasim.internal.VirtualThreads;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualThreadsUnitTest
+{
+    @Test
+    public void testAvailability () throws Exception
+    {
+        String version = System.getProperty("java.specification.version");
+        boolean modern = !version.startsWith("1.") && Integer.parseInt(version) >= 21;
+
+        assertEquals(modern, VirtualThreads.isAvailable());
+
+        if (!VirtualThreads.isAvailable())
+        {
+            try
+            {
+                VirtualThreads.start(() -> {}, "unused");
+
+                fail();
+            }
+            catch (final UnsupportedOperationException ex)
+            {
+            }
+        }
+    }
+
+    @Test
+    public void testStart () throws Exception
+    {
+        assumeTrue(VirtualThreads.isAvailable());
+
+        final AtomicReference<String> name = new AtomicReference<String>();
+        Thread thread = VirtualThreads.start(() -> name.set(Thread.currentThread().getName()), "process");
+
+        thread.join();
+
+        assertEquals("process", name.get());
+        assertEquals("process", thread.getName());
+    }
+}
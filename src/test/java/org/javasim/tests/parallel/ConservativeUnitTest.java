@@ -0,0 +1,193 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.javasim.SimulationException;
+import org.javasim.parallel.Channel;
+import org.javasim.parallel.Conservative;
+import org.javasim.parallel.LogicalProcess;
+import org.javasim.parallel.Message;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/*
+ * Passes tokens to one of the next three logical processes in a
+ * ring, with a delay of at least the given minimum.
+ */
+
+class Relay extends LogicalProcess<Object>
+{
+    public Relay ()
+    {
+        this(0.1);
+    }
+
+    public Relay (double minimum)
+    {
+        this.minimum = minimum;
+    }
+
+    protected void handle (Message message)
+    {
+        if (message.time() < lastHandled)
+            fail("handled out of order");
+
+        lastHandled = message.time();
+        count++;
+        sum += (long) (now() * 1000);
+        seed = seed * 6364136223846793005L + 1442695040888963407L;
+
+        send(outputs.get((int) ((seed >>> 33) % outputs.size())), minimum + ((seed >>> 40) % 1000) / 1000.0, null);
+    }
+
+    protected void commit (Message message)
+    {
+        committed++;
+    }
+
+    public final List<Channel> outputs = new ArrayList<Channel>();
+    public long count = 0;
+    public long sum = 0;
+    public long seed = 17;
+    public long committed = 0;
+
+    private final double minimum;
+    private double lastHandled = 0;
+}
+
+public class ConservativeUnitTest
+{
+    @Test
+    public void test () throws Exception
+    {
+        List<Relay> sequential = ring(1, 100);
+        List<Relay> parallel = ring(4, 100);
+
+        for (int i = 0; i < sequential.size(); i++)
+        {
+            assertTrue(sequential.get(i).count > 0);
+            assertEquals(sequential.get(i).count, parallel.get(i).count);
+            assertEquals(sequential.get(i).sum, parallel.get(i).sum);
+            assertEquals(sequential.get(i).seed, parallel.get(i).seed);
+            assertEquals(parallel.get(i).count, parallel.get(i).committed);
+        }
+    }
+
+    @Test
+    public void testContinue () throws Exception
+    {
+        List<Relay> once = ring(2, 100);
+        List<Relay> twice = ring(2, 50, 100);
+
+        for (int i = 0; i < once.size(); i++)
+        {
+            assertEquals(once.get(i).count, twice.get(i).count);
+            assertEquals(once.get(i).sum, twice.get(i).sum);
+        }
+    }
+
+    @Test
+    public void testChannels () throws Exception
+    {
+        Conservative engine = new Conservative(2);
+        final Relay target = new Relay();
+        LogicalProcess<Object> source = new LogicalProcess<Object>()
+        {
+            protected void handle (Message message)
+            {
+                send(target, 1, null);
+            }
+        };
+
+        engine.add(source);
+        engine.add(target);
+        source.scheduleAt(1, null);
+
+        try
+        {
+            engine.run(10);
+
+            fail();
+        }
+        catch (final SimulationException ex)
+        {
+            assertTrue(ex.getCause() instanceof IllegalArgumentException);
+        }
+
+        try
+        {
+            engine.connect(source, target, 0);
+
+            fail();
+        }
+        catch (final IllegalArgumentException ex)
+        {
+        }
+
+        engine.connect(source, target, 2);
+        source.scheduleAt(10, null);
+
+        try
+        {
+            engine.run(20);
+
+            fail();
+        }
+        catch (final SimulationException ex)
+        {
+            assertTrue(ex.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    private static List<Relay> ring (int threads, double... endTimes) throws Exception
+    {
+        Conservative engine = new Conservative(threads);
+        List<Relay> ring = new ArrayList<Relay>();
+
+        for (int i = 0; i < 8; i++)
+        {
+            Relay lp = new Relay();
+
+            ring.add(lp);
+            engine.add(lp);
+        }
+
+        for (int i = 0; i < ring.size(); i++)
+        {
+            for (int j = 1; j <= 3; j++)
+                ring.get(i).outputs.add(engine.connect(ring.get(i), ring.get((i + j) % ring.size()), 0.1));
+
+            for (int j = 0; j < 3; j++)
+                ring.get(i).scheduleAt(j * 0.25, null);
+        }
+
+        for (double endTime : endTimes)
+            engine.run(endTime);
+
+        assertTrue(engine.getNullMessages() > 0);
+
+        return ring;
+    }
+}
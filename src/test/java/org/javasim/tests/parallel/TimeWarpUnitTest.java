@@ -0,0 +1,248 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.javasim.SimulationException;
+import org.javasim.parallel.LogicalProcess;
+import org.javasim.parallel.Message;
+import org.javasim.parallel.TimeWarp;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/*
+ * Passes tokens around a ring, choosing the next hop and the delay
+ * from a generator which is part of the rolled back state.
+ */
+
+class Ring extends LogicalProcess<long[]>
+{
+    public Ring (List<Ring> ring)
+    {
+        this.ring = ring;
+    }
+
+    protected void handle (Message message)
+    {
+        count++;
+        sum += (long) (now() * 1000);
+        seed = seed * 6364136223846793005L + 1442695040888963407L;
+
+        Ring next = ring.get((int) ((id() + 1 + ((seed >>> 33) % 3)) % ring.size()));
+
+        send(next, 0.1 + ((seed >>> 40) % 1000) / 1000.0, null);
+    }
+
+    protected long[] saveState ()
+    {
+        return new long[] { count, sum, seed };
+    }
+
+    protected void restoreState (long[] state)
+    {
+        count = state[0];
+        sum = state[1];
+        seed = state[2];
+    }
+
+    protected void commit (Message message)
+    {
+        if (message.time() < lastCommitted)
+            fail("commit out of order");
+
+        lastCommitted = message.time();
+        committed++;
+    }
+
+    public long count = 0;
+    public long sum = 0;
+    public long seed = 17;
+    public long committed = 0;
+
+    private double lastCommitted = 0;
+    private final List<Ring> ring;
+}
+
+/*
+ * Handles its own events far ahead of a slow sender, so the
+ * sender's message arrives as a straggler.
+ */
+
+class Runner extends LogicalProcess<Double>
+{
+    protected void handle (Message message)
+    {
+        if (message.payload() == null)
+            schedule(1, null);
+
+        total = total * 2 + now();
+    }
+
+    protected Double saveState ()
+    {
+        return total;
+    }
+
+    protected void restoreState (Double state)
+    {
+        total = state;
+    }
+
+    public double total = 0;
+}
+
+class Slow extends LogicalProcess<Object>
+{
+    public Slow (Runner runner)
+    {
+        this.runner = runner;
+    }
+
+    protected void handle (Message message)
+    {
+        try
+        {
+            Thread.sleep(200);
+        }
+        catch (final InterruptedException ex)
+        {
+        }
+
+        send(runner, 1.5, "straggler");
+    }
+
+    protected Object saveState ()
+    {
+        return null;
+    }
+
+    protected void restoreState (Object state)
+    {
+    }
+
+    private final Runner runner;
+}
+
+public class TimeWarpUnitTest
+{
+    @Test
+    public void test () throws Exception
+    {
+        List<Ring> sequential = ring(1);
+        List<Ring> parallel = ring(4);
+
+        for (int i = 0; i < sequential.size(); i++)
+        {
+            assertTrue(sequential.get(i).count > 0);
+            assertEquals(sequential.get(i).count, parallel.get(i).count);
+            assertEquals(sequential.get(i).sum, parallel.get(i).sum);
+            assertEquals(sequential.get(i).seed, parallel.get(i).seed);
+            assertEquals(parallel.get(i).count, parallel.get(i).committed);
+        }
+    }
+
+    @Test
+    public void testRollback () throws Exception
+    {
+        TimeWarp engine = new TimeWarp(2);
+        Runner runner = new Runner();
+        Slow slow = new Slow(runner);
+
+        engine.add(runner);
+        engine.add(slow);
+
+        runner.scheduleAt(0, null);
+        slow.scheduleAt(0, null);
+
+        engine.run(20);
+
+        assertTrue(engine.getEventsRolledBack() > 0);
+        assertEquals(engine.getEventsProcessed() - engine.getEventsRolledBack(), engine.getEventsCommitted());
+
+        double expected = 0;
+
+        for (int t = 0; t <= 20; t++)
+        {
+            expected = expected * 2 + t;
+
+            if (t == 1)
+                expected = expected * 2 + 1.5;
+        }
+
+        assertEquals(expected, runner.total, 0);
+    }
+
+    @Test
+    public void testFailure () throws Exception
+    {
+        TimeWarp engine = new TimeWarp(2);
+        LogicalProcess<Object> broken = new LogicalProcess<Object>()
+        {
+            protected void handle (Message message)
+            {
+                throw new IllegalStateException("broken");
+            }
+        };
+
+        engine.add(broken);
+        broken.scheduleAt(1, null);
+
+        try
+        {
+            engine.run(10);
+
+            fail();
+        }
+        catch (final SimulationException ex)
+        {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private static List<Ring> ring (int threads) throws Exception
+    {
+        TimeWarp engine = new TimeWarp(threads);
+        List<Ring> ring = new ArrayList<Ring>();
+
+        engine.setGvtInterval(16);
+
+        for (int i = 0; i < 8; i++)
+        {
+            Ring lp = new Ring(ring);
+
+            ring.add(lp);
+            engine.add(lp);
+        }
+
+        for (Ring lp : ring)
+        {
+            for (int i = 0; i < 3; i++)
+                lp.scheduleAt(i * 0.25, null);
+        }
+
+        assertTrue(engine.run(100) > 100);
+
+        return ring;
+    }
+}
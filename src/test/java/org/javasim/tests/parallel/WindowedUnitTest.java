@@ -0,0 +1,151 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.javasim.SimulationException;
+import org.javasim.parallel.Conservative;
+import org.javasim.parallel.LogicalProcess;
+import org.javasim.parallel.Message;
+import org.javasim.parallel.Windowed;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WindowedUnitTest
+{
+    @Test
+    public void test () throws Exception
+    {
+        Conservative conservative = new Conservative(1);
+        List<Relay> expected = ring(conservative, 0.1, 0.1);
+
+        conservative.run(100);
+
+        for (int threads : new int[] { 1, 4 })
+        {
+            Windowed engine = new Windowed(threads);
+            List<Relay> ring = ring(engine, 0.1, 0.1);
+
+            engine.run(100);
+
+            assertTrue(engine.getWindows() > 0);
+            assertTrue(engine.getWindows() < engine.getEventsProcessed());
+
+            for (int i = 0; i < ring.size(); i++)
+            {
+                assertTrue(ring.get(i).count > 0);
+                assertEquals(expected.get(i).count, ring.get(i).count);
+                assertEquals(expected.get(i).sum, ring.get(i).sum);
+                assertEquals(expected.get(i).seed, ring.get(i).seed);
+                assertEquals(ring.get(i).count, ring.get(i).committed);
+            }
+        }
+    }
+
+    @Test
+    public void testLookahead () throws Exception
+    {
+        Windowed small = new Windowed(2);
+        Windowed large = new Windowed(2);
+        List<Relay> smallRing = ring(small, 1.0, 0.1);
+        List<Relay> largeRing = ring(large, 1.0, 1.0);
+
+        small.run(100);
+        large.run(100);
+
+        assertTrue(large.getWindows() < small.getWindows());
+        assertEquals(small.getEventsProcessed(), large.getEventsProcessed());
+
+        for (int i = 0; i < smallRing.size(); i++)
+            assertEquals(smallRing.get(i).sum, largeRing.get(i).sum);
+    }
+
+    @Test
+    public void testChannels () throws Exception
+    {
+        Windowed engine = new Windowed(2);
+        final Relay target = new Relay();
+        LogicalProcess<Object> source = new LogicalProcess<Object>()
+        {
+            protected void handle (Message message)
+            {
+                send(target, 1, null);
+            }
+        };
+
+        engine.add(source);
+        engine.add(target);
+        source.scheduleAt(1, null);
+
+        try
+        {
+            engine.run(10);
+
+            fail();
+        }
+        catch (final SimulationException ex)
+        {
+            assertTrue(ex.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    /*
+     * Builds the ring of ConservativeUnitTest on either engine.
+     */
+
+    private static List<Relay> ring (Object engine, double minimum, double lookahead) throws Exception
+    {
+        List<Relay> ring = new ArrayList<Relay>();
+
+        for (int i = 0; i < 8; i++)
+        {
+            Relay lp = new Relay(minimum);
+
+            ring.add(lp);
+
+            if (engine instanceof Windowed)
+                ((Windowed) engine).add(lp);
+            else
+                ((Conservative) engine).add(lp);
+        }
+
+        for (int i = 0; i < ring.size(); i++)
+        {
+            for (int j = 1; j <= 3; j++)
+            {
+                Relay to = ring.get((i + j) % ring.size());
+
+                if (engine instanceof Windowed)
+                    ring.get(i).outputs.add(((Windowed) engine).connect(ring.get(i), to, lookahead));
+                else
+                    ring.get(i).outputs.add(((Conservative) engine).connect(ring.get(i), to, lookahead));
+            }
+
+            for (int j = 0; j < 3; j++)
+                ring.get(i).scheduleAt(j * 0.25, null);
+        }
+
+        return ring;
+    }
+}
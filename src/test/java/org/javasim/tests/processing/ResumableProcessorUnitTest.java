@@ -0,0 +1,349 @@
+/*
+ * Copyright 1990-2008, Mark Little, University of Newcastle upon Tyne
+ * and others contributors as indicated 
+ * by the @authors tag. All rights reserved. 
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors. 
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ * 
+ * (C) 1990-2008,
+ */
+
+package org.javasim.tests.processing;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.javasim.RestartException;
+import org.javasim.Resumable;
+import org.javasim.ResumableProcess;
+import org.javasim.Simulation;
+import org.javasim.SimulationContext;
+import org.javasim.SimulationEntity;
+import org.javasim.SimulationException;
+import org.javasim.SimulationProcess;
+import org.javasim.TriggerQueue;
+import org.javasim.processing.ResumableProcessor;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/*
+ * A process written with threads in mind. ResumableMachine is generated
+ * from it when the tests are compiled.
+ */
+
+@Resumable
+class Machine extends SimulationEntity
+{
+    public Machine (List<String> trace, TriggerQueue queue, String... parts)
+    {
+        super();
+
+        this.trace = trace;
+        this.queue = queue;
+        this.parts = parts;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            for (int i = 0; i < 3; i++)
+            {
+                trace.add("work " + i + "@" + currentTime());
+                hold(2);
+            }
+
+            int served = 0;
+
+            outer:
+            while (true)
+            {
+                switch (served)
+                {
+                case 0:
+                    hold(1);
+                    break;
+                case 1:
+                    trace.add("passive@" + currentTime());
+                    passivate();
+                    break;
+                default:
+                    break outer;
+                }
+
+                served++;
+            }
+
+            for (String part : parts)
+            {
+                hold(1);
+
+                if (part.isEmpty())
+                    continue;
+
+                trace.add(part + "@" + currentTime());
+            }
+
+            for (int round = 0; round < 2; round++)
+            {
+                try
+                {
+                    waitForTrigger(queue);
+
+                    trace.add("triggered@" + currentTime());
+                }
+                catch (InterruptedException e)
+                {
+                    hold(1);
+
+                    trace.add("interrupted@" + currentTime() + " " + e.getClass().getSimpleName());
+                }
+            }
+
+            int count = 0;
+
+            do
+            {
+                final int n = count;
+                Runnable step = () -> trace.add("step " + n + "@" + currentTime());
+
+                step.run();
+                hold(0.5);
+            }
+            while (++count < 2);
+
+            hold(-1);
+
+            trace.add("not reached");
+        }
+        catch (SimulationException e)
+        {
+            trace.add("failed@" + currentTime());
+        }
+        catch (RestartException e)
+        {
+            trace.add("restarted");
+        }
+
+        terminate();
+    }
+
+    private List<String> trace;
+    private TriggerQueue queue;
+    private String[] parts;
+}
+
+class MachineRunner extends SimulationProcess
+{
+    public MachineRunner (boolean resumable, List<String> trace, CountDownLatch done)
+    {
+        this.resumable = resumable;
+        this.trace = trace;
+        this.done = done;
+    }
+
+    public void run ()
+    {
+        try
+        {
+            TriggerQueue queue = new TriggerQueue();
+            SimulationProcess machine = resumable ? new ResumableMachine(trace, queue, "a", "", "b")
+                    : new Machine(trace, queue, "a", "", "b");
+
+            Simulation.start();
+
+            machine.activate();
+
+            hold(10);
+
+            assertTrue(machine.passivated());
+
+            machine.activate();
+
+            hold(5);
+
+            queue.triggerFirst();
+
+            hold(2);
+
+            queue.triggerFirst(false);
+
+            hold(5);
+
+            assertTrue(machine.terminated());
+
+            trace.add("runner@" + currentTime());
+
+            Simulation.stop();
+        }
+        catch (final Throwable ex)
+        {
+            trace.add(ex.toString());
+        }
+        finally
+        {
+            done.countDown();
+        }
+
+        terminate();
+    }
+
+    public void begin ()
+    {
+        resumeProcess();
+    }
+
+    private boolean resumable;
+    private List<String> trace;
+    private CountDownLatch done;
+}
+
+/*
+ * A source file held in memory.
+ */
+
+class Source extends SimpleJavaFileObject
+{
+    public Source (String name, String code)
+    {
+        super(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+
+        this.code = code;
+    }
+
+    @Override
+    public CharSequence getCharContent (boolean ignoreEncodingErrors)
+    {
+        return code;
+    }
+
+    private final String code;
+}
+
+public class ResumableProcessorUnitTest
+{
+    @Test
+    public void test () throws Exception
+    {
+        List<String> threads = run(false);
+
+        String[] expected = { "work 0@0.0", "work 1@2.0", "work 2@4.0", "passive@7.0", "a@11.0", "b@13.0",
+                "triggered@15.0", "interrupted@18.0 InterruptedException", "step 0@18.0", "step 1@18.5",
+                "failed@19.0", "runner@22.0" };
+
+        assertEquals(Arrays.asList(expected), threads);
+        assertEquals(threads, run(true));
+
+        assertTrue(ResumableProcess.class.isAssignableFrom(ResumableMachine.class));
+    }
+
+    @Test
+    public void testUnsupported () throws Exception
+    {
+        assertEquals("waitFor has no resumable form.", error("waitFor(other);"));
+        assertEquals("A @Resumable process cannot call hold in a lambda expression.",
+                error("Runnable r = () -> { try { hold(1); } catch (Exception e) { } };"));
+        assertEquals("A @Resumable process cannot wait inside a try statement with a finally block or resources.",
+                error("try { hold(1); } finally { other = null; }"));
+        assertEquals("A @Resumable process cannot wait inside a synchronized.",
+                error("synchronized (this) { hold(1); }"));
+        assertNull(error("hold(1);"));
+    }
+
+    @Test
+    public void testWaitOutsideRun () throws Exception
+    {
+        String code = "package p; import org.javasim.*; @Resumable public class Q extends SimulationProcess {"
+                + " public void run () { }"
+                + " void pause () throws Exception { hold(1); } }";
+
+        assertEquals("A @Resumable process can only call hold in run().", compile("p.Q", code));
+    }
+
+    /*
+     * Run the machine in a context of its own, so no reset is needed.
+     */
+
+    private static List<String> run (final boolean resumable) throws Exception
+    {
+        final List<String> trace = new ArrayList<String>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final SimulationContext context = new SimulationContext();
+
+        new Thread(() -> context.execute(() -> new MachineRunner(resumable, trace, done).begin())).start();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+
+        return trace;
+    }
+
+    private static String error (String statement) throws Exception
+    {
+        String code = "package p; import org.javasim.*; @Resumable public class P extends SimulationEntity {"
+                + " SimulationEntity other;"
+                + " public void run () { try { " + statement + " } catch (Exception e) { } } }";
+
+        return compile("p.P", code);
+    }
+
+    /*
+     * Run the processor alone on the code, and return its first error.
+     */
+
+    private static String compile (String name, String code) throws Exception
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        Path generated = Files.createTempDirectory("resumable");
+        List<String> options = Arrays.asList("-proc:only", "-processor", ResumableProcessor.class.getName(),
+                "-classpath", System.getProperty("java.class.path"), "-s", generated.toString());
+
+        try
+        {
+            compiler.getTask(null, null, diagnostics, options, null,
+                    Collections.singletonList(new Source(name, code))).call();
+        }
+        finally
+        {
+            try (Stream<Path> files = Files.walk(generated))
+            {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+        {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                return diagnostic.getMessage(null);
+        }
+
+        return null;
+    }
+}
@@ -21,6 +21,7 @@
 package org.javasim.tests.stats;
 
 import org.javasim.stats.Histogram;
+import org.javasim.stats.PrecisionHistogram;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -47,4 +48,48 @@ public class HistogramUnitTest
         
         assertEquals(hist.numberOfBuckets(), (long) 2);
     }
+
+    @Test
+    public void testMerge () throws Exception
+    {
+        Histogram hist = new Histogram(2, Histogram.ACCUMULATE);
+        Histogram other = new Histogram(2, Histogram.ACCUMULATE);
+
+        hist.setValue(10.0);
+        hist.setValue(20.0);
+        other.setValue(30.0);
+        other.setValue(40.0);
+
+        hist.merge(other);
+
+        assertTrue(hist.numberOfBuckets() <= 2);
+        assertEquals(hist.numberOfSamples(), 4);
+
+        Histogram[] wrong = { new Histogram(3, Histogram.ACCUMULATE), new Histogram(2, Histogram.MAX) };
+
+        for (Histogram h : wrong)
+        {
+            try
+            {
+                hist.merge(h);
+
+                fail();
+            }
+            catch (final IllegalArgumentException ex)
+            {
+            }
+        }
+
+        try
+        {
+            hist.merge(new PrecisionHistogram());
+
+            fail();
+        }
+        catch (final IllegalArgumentException ex)
+        {
+        }
+
+        assertEquals(hist.numberOfSamples(), 4);
+    }
 }
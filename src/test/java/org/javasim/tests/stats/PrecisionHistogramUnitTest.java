@@ -50,4 +50,24 @@ public class PrecisionHistogramUnitTest
         
         assertEquals(hist.numberOfBuckets(), (long) 2);
     }
+
+    @Test
+    public void testMerge () throws Exception
+    {
+        PrecisionHistogram hist = new PrecisionHistogram();
+        PrecisionHistogram other = new PrecisionHistogram();
+
+        hist.setValue(10.0);
+        hist.setValue(100.0);
+        other.setValue(10.0);
+        other.setValue(50.0);
+
+        hist.merge(other);
+
+        assertEquals(hist.numberOfBuckets(), (long) 3);
+        assertEquals(hist.numberOfSamples(), 4);
+        assertTrue(hist.sizeByName(10.0) == 2.0);
+        assertTrue(hist.sizeByName(50.0) == 1.0);
+        assertTrue(hist.sizeByIndex(2) == 1.0);
+    }
 }
@@ -55,4 +55,37 @@ public class SimpleHistogramUnitTest
         
         assertTrue(hist.Width() == 4.0);
     }
+
+    @Test
+    public void testMerge () throws Exception
+    {
+        SimpleHistogram hist = new SimpleHistogram(1.0, 100.0, 20);
+        SimpleHistogram other = new SimpleHistogram(1.0, 100.0, 20);
+
+        hist.setValue(10.0);
+        other.setValue(10.0);
+        other.setValue(100.0);
+
+        hist.merge(other);
+
+        assertEquals(hist.numberOfBuckets(), (long) 20);
+        assertEquals(hist.numberOfSamples(), 3);
+        assertTrue(hist.sizeByName(10.0) == 2.0);
+
+        for (SimpleHistogram wrong : new SimpleHistogram[] { new SimpleHistogram(0.0, 100.0, 20),
+                new SimpleHistogram(1.0, 200.0, 20), new SimpleHistogram(1.0, 100.0, 10) })
+        {
+            try
+            {
+                hist.merge(wrong);
+
+                fail();
+            }
+            catch (final IllegalArgumentException ex)
+            {
+            }
+        }
+
+        assertEquals(hist.numberOfSamples(), 3);
+    }
 }
@@ -21,6 +21,7 @@
 package org.javasim.tests.stats;
 
 import org.javasim.stats.TimeVariance;
+import org.javasim.stats.Variance;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -56,4 +57,36 @@ public class TimeVarianceUnitTest
         
         assertTrue(v == vn.variance());
     }
+
+    @Test
+    public void testMerge () throws Exception
+    {
+        TimeVariance vn = new TimeVariance();
+        TimeVariance other = new TimeVariance();
+
+        vn.setValue(1.0);
+        other.setValue(2.0);
+        other.setValue(3.0);
+
+        try
+        {
+            vn.merge(other);
+
+            fail();
+        }
+        catch (final IllegalArgumentException ex)
+        {
+        }
+
+        assertEquals(1, vn.numberOfSamples());
+
+        // the samples themselves can still be pooled into a Variance
+
+        Variance pooled = new Variance();
+
+        pooled.merge(other);
+
+        assertEquals(2, pooled.numberOfSamples());
+        assertEquals(2.5, pooled.mean(), 0);
+    }
 }
@@ -50,4 +50,35 @@ public class VarianceUnitTest
         
         assertTrue(v == vn.variance());
     }
+
+    @Test
+    public void testMerge () throws Exception
+    {
+        Variance all = new Variance();
+        Variance first = new Variance();
+        Variance second = new Variance();
+
+        for (int i = 1; i <= 5; i++)
+        {
+            all.setValue(i);
+
+            if (i <= 2)
+                first.setValue(i);
+            else
+                second.setValue(i);
+        }
+
+        first.merge(second);
+
+        assertEquals(all.numberOfSamples(), first.numberOfSamples());
+        assertEquals(all.mean(), first.mean(), 1e-12);
+        assertEquals(all.variance(), first.variance(), 1e-12);
+        assertEquals(all.min(), first.min(), 0);
+        assertEquals(all.max(), first.max(), 0);
+
+        // t(0.975, 4) = 2.776
+
+        assertEquals(2.776 * Math.sqrt(2.5) / Math.sqrt(5), all.confidenceInterval(0.95), 0.01);
+        assertTrue(Double.isNaN(new Variance().confidenceInterval(0.95)));
+    }
 }